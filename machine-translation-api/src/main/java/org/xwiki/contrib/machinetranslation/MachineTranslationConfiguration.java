@@ -73,4 +73,113 @@ public interface MachineTranslationConfiguration
      * whatever the translation name strategy.
      */
     String getSameNameTranslationClasses();
+
+    /**
+     * @return number of seconds during which the glossaries known by the translation provider are cached
+     * @since 1.3
+     */
+    long getGlossaryCacheTTL();
+
+    /**
+     * @return maximum number of locales a page is translated to concurrently
+     * @since 1.3
+     */
+    int getTranslationThreads();
+
+    /**
+     * Note that the remembered translations are stored in plain text in the permanent directory, whatever the rights
+     * on the translated pages, hence the translation memory is disabled by default.
+     *
+     * @return true if the translations returned by the translator should be remembered and reused
+     * @since 1.3
+     */
+    boolean isTranslationMemoryEnabled();
+
+    /**
+     * @return the number of days after which the translations remembered by the translation memory are forgotten when
+     *     they are not used, 0 to keep them forever
+     * @since 1.3
+     */
+    long getTranslationMemoryMaxAge();
+
+    /**
+     * @return true if only the blocks of the content which have changed since the last automated translation should
+     *     be translated again when updating a translation
+     * @since 1.3
+     */
+    boolean isIncrementalTranslationEnabled();
+
+    /**
+     * @return the maximum number of requests sent to the translation provider per second, 0 for no limit
+     * @since 1.3
+     */
+    double getRateLimitRequestsPerSecond();
+
+    /**
+     * @return the maximum number of characters sent to the translation provider per second, 0 for no limit
+     * @since 1.3
+     */
+    long getRateLimitCharactersPerSecond();
+
+    /**
+     * @return the maximum number of concurrent requests sent to the translation provider, the actual number being
+     *     adapted to the provider responses
+     * @since 1.3
+     */
+    int getMaxProviderConcurrency();
+
+    /**
+     * @return the maximum number of attempts of a call to the translation provider failing with transient errors
+     * @since 1.3
+     */
+    int getRetryMaxAttempts();
+
+    /**
+     * @return the number of consecutive failures of the translation provider after which it is not called anymore for
+     *     a while
+     * @since 1.3
+     */
+    int getCircuitBreakerFailureThreshold();
+
+    /**
+     * @return the time during which the translation provider is not called anymore after repeated failures, in
+     *     seconds
+     * @since 1.3
+     */
+    long getCircuitBreakerOpenDuration();
+
+    /**
+     * @return the interval at which the usage reported by the translation provider is reloaded in the background,
+     *     in seconds, 0 to never reload it
+     * @since 1.3
+     */
+    long getUsageRefreshInterval();
+
+    /**
+     * @return the maximum size, in bytes, of the parts large HTML contents are split into to be translated
+     *     concurrently, 0 to never split them
+     * @since 1.3
+     */
+    int getChunkSize();
+
+    /**
+     * @return the comma separated identifiers of the macros which are not sent to the translation service and are
+     *     kept as is in the translations
+     * @since 1.3
+     */
+    String getUntranslatableMacros();
+
+    /**
+     * @return the duration, in milliseconds, above which the translation of a page into a locale is logged along with
+     *     the time spent in each of its phases, 0 to never log them
+     * @since 1.3
+     */
+    long getSlowTranslationThreshold();
+
+    /**
+     * @return the base URL of the translation service, typically to use a local stand-in of the service, empty to use
+     *     the default URL of the service
+     * @since 1.3
+     */
+    String getServerUrl();
 }
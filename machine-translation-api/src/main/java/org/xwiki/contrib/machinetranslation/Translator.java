@@ -19,6 +19,9 @@
  */
 package org.xwiki.contrib.machinetranslation;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -27,6 +30,8 @@ import org.xwiki.component.annotation.Role;
 import org.xwiki.contrib.machinetranslation.model.Glossary;
 import org.xwiki.contrib.machinetranslation.model.GlossaryInfo;
 import org.xwiki.contrib.machinetranslation.model.LocalePair;
+import org.xwiki.contrib.machinetranslation.model.TranslationEstimate;
+import org.xwiki.contrib.machinetranslation.model.TranslationResult;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.stability.Unstable;
@@ -86,6 +91,50 @@ public interface Translator
      */
     void translate(EntityReference reference, Locale[] toLocales) throws MachineTranslationException;
 
+    /**
+     * Translates a given page to a set of locales. An error occurring for a given locale does not prevent the
+     * translation to the other locales.
+     *
+     * @param reference A page reference
+     * @param toLocales Target locales
+     * @return the result of the translation to each target locale, in the same order as the target locales
+     * @throws MachineTranslationException in case the page cannot be prepared for translation
+     * @since 1.3
+     */
+    default List<TranslationResult> translateToLocales(EntityReference reference, Locale[] toLocales)
+        throws MachineTranslationException
+    {
+        List<TranslationResult> results = new ArrayList<>(toLocales.length);
+        for (Locale toLocale : toLocales) {
+            try {
+                results.add(new TranslationResult(toLocale, translate(reference, toLocale), null));
+            } catch (MachineTranslationException e) {
+                results.add(new TranslationResult(toLocale, null, e));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Estimates the number of characters the translation of a given page to a set of locales sends to the translation
+     * service. The page is prepared as when translating it, and the contents whose translation is found in the
+     * translation memory are not counted. Nothing is sent to the translation service.
+     * <p>
+     * The default implementation returns an empty estimate, in which case the translations of the page are not limited
+     * by the quota of the translation service.
+     *
+     * @param reference A page reference
+     * @param toLocales Target locales
+     * @return the estimated number of characters for each target locale
+     * @throws MachineTranslationException in case the page cannot be prepared for translation
+     * @since 1.3
+     */
+    default TranslationEstimate estimate(EntityReference reference, Locale[] toLocales)
+        throws MachineTranslationException
+    {
+        return new TranslationEstimate(reference);
+    }
+
     /**
      * Computes the location of a translation based on the location of the original one, its title and its locale.
      *
@@ -110,6 +159,30 @@ public interface Translator
      */
     String translate(String content, Locale from, Locale to, boolean html) throws MachineTranslationException;
 
+    /**
+     * Translates a list of contents sharing the same source and target locales, using as few requests to the
+     * translation service as possible.
+     * <p>
+     * The default implementation translates the contents one by one.
+     *
+     * @param contents the strings to be translated
+     * @param from From locale
+     * @param to To locale
+     * @param html true if the strings to be translated use HTML
+     * @return the translated contents, in the same order as the given ones
+     * @throws MachineTranslationException in case an error occurs
+     * @since 1.3
+     */
+    default List<String> translate(List<String> contents, Locale from, Locale to, boolean html)
+        throws MachineTranslationException
+    {
+        List<String> results = new ArrayList<>(contents.size());
+        for (String content : contents) {
+            results.add(translate(content, from, to, html));
+        }
+        return results;
+    }
+
     /**
      * Checks if a given page is translated according to the rules defined in the translator configuration.
      *
@@ -155,6 +228,29 @@ public interface Translator
      */
     MachineTranslation getTranslation(DocumentReference reference, Locale locale) throws MachineTranslationException;
 
+    /**
+     * Returns all the translations of a given document, indexed by locale. The translations are retrieved once per
+     * request, so that looking up the translation of each available locale does not cost one query per locale.
+     * <p>
+     * The default implementation indexes the translations returned by {@link #getTranslations(DocumentReference)},
+     * without caching them.
+     *
+     * @param reference a document reference
+     * @return the translations of the given document, indexed by locale
+     * @throws MachineTranslationException in case an error occurs
+     * @since 1.3
+     */
+    default Map<Locale, MachineTranslation> getTranslationsForLocales(DocumentReference reference)
+        throws MachineTranslationException
+    {
+        Map<Locale, MachineTranslation> translations = new LinkedHashMap<>();
+        for (MachineTranslation translation : getTranslations(reference)) {
+            // Keep the first translation found for a given locale.
+            translations.putIfAbsent(translation.getLocale(), translation);
+        }
+        return translations;
+    }
+
     /**
      * @param reference an entity reference
      * @return DocumentReference of the original document, with its locale
@@ -227,6 +323,18 @@ public interface Translator
      */
     Usage getUsage() throws MachineTranslationException;
 
+    /**
+     * Returns statistics about the internals of the translator, e.g. its caches, the requests sent to the translation
+     * service and their retries, indexed by component.
+     *
+     * @return the translator statistics, empty if the translator does not collect any
+     * @since 1.3
+     */
+    default Map<String, Object> getStatistics()
+    {
+        return Collections.emptyMap();
+    }
+
     /**
      * Get the glossary name for the specificed locales.
      *
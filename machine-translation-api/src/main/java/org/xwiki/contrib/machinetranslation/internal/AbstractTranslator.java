@@ -24,11 +24,12 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -41,8 +42,17 @@ import org.xwiki.contrib.machinetranslation.MachineTranslationConfiguration;
 import org.xwiki.contrib.machinetranslation.MachineTranslationException;
 import org.xwiki.contrib.machinetranslation.Translator;
 import org.xwiki.contrib.machinetranslation.TranslatorManager;
+import org.xwiki.contrib.machinetranslation.internal.cache.TranslationSetCache;
+import org.xwiki.contrib.machinetranslation.internal.index.TranslationIndex;
+import org.xwiki.contrib.machinetranslation.internal.index.TranslationIndexEntry;
+import org.xwiki.contrib.machinetranslation.internal.memory.TranslationMemory;
+import org.xwiki.contrib.machinetranslation.internal.metrics.OperationMetrics;
+import org.xwiki.contrib.machinetranslation.internal.metrics.TranslationTrace;
+import org.xwiki.contrib.machinetranslation.internal.metrics.TranslationTracer;
+import org.xwiki.contrib.machinetranslation.internal.metrics.TranslatorMetrics;
 import org.xwiki.contrib.machinetranslation.model.LocalePair;
-import org.xwiki.localization.LocaleUtils;
+import org.xwiki.contrib.machinetranslation.model.TranslationEstimate;
+import org.xwiki.contrib.machinetranslation.model.TranslationResult;
 import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
@@ -54,14 +64,13 @@ import org.xwiki.model.reference.SpaceReference;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.model.script.ModelScriptService;
 import org.xwiki.model.validation.EntityNameValidationManager;
-import org.xwiki.query.Query;
-import org.xwiki.query.QueryException;
-import org.xwiki.query.QueryManager;
+import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.parser.ContentParser;
+import org.xwiki.rendering.parser.MissingParserException;
+import org.xwiki.rendering.parser.ParseException;
 import org.xwiki.rendering.renderer.BlockRenderer;
 import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
-import org.xwiki.rendering.renderer.printer.WikiPrinter;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.script.service.ScriptService;
 import org.xwiki.security.authorization.ContextualAuthorizationManager;
@@ -91,10 +100,28 @@ public abstract class AbstractTranslator implements Translator
     /**
      * Translation class reference.
      */
-    static final LocalDocumentReference TRANSLATION_CLASS_REFERENCE =
+    public static final LocalDocumentReference TRANSLATION_CLASS_REFERENCE =
         new LocalDocumentReference(Arrays.asList("XWiki", "MachineTranslation"), "MachineTranslationClass");
 
-    static final String ORIGINAL_PAGE_PROPERTY = "originalPage";
+    /**
+     * Name of the translation class, as used in queries.
+     */
+    public static final String TRANSLATION_CLASS = "XWiki.MachineTranslation.MachineTranslationClass";
+
+    /**
+     * Original document a translation has been made from.
+     */
+    public static final String ORIGINAL_PAGE_PROPERTY = "originalPage";
+
+    /**
+     * Date of the last automated translation.
+     */
+    public static final String TRANSLATION_DATE_PROPERTY = "automatedTranslationDate";
+
+    /**
+     * Version of the original document a translation has been made from.
+     */
+    public static final String SOURCE_VERSION_PROPERTY = "sourceVersion";
 
     static final String CONTENT_REFERENCE = "XWiki.Document^content";
 
@@ -103,6 +130,15 @@ public abstract class AbstractTranslator implements Translator
      */
     static final String LIST_ITEM_SEPARATOR = ",";
 
+    /**
+     * Separates the top level blocks of a content in wiki syntax.
+     */
+    private static final String BLOCK_SEPARATOR = "\n\n";
+
+    private static final String PHASE_RIGHTS = "rights";
+
+    private static final String PHASE_LOAD = "load";
+
     /**
      * Logging helper.
      */
@@ -121,12 +157,6 @@ public abstract class AbstractTranslator implements Translator
     @Inject
     private Provider<XWikiContext> xcontextProvider;
 
-    /**
-     * Query manager.
-     */
-    @Inject
-    private QueryManager queryManager;
-
     /**
      * Dcument resolver.
      */
@@ -204,139 +234,363 @@ public abstract class AbstractTranslator implements Translator
     @Inject
     private WikiDescriptorManager wikiDescriptorManager;
 
+    @Inject
+    private TranslationExecutor translationExecutor;
+
+    @Inject
+    private TranslationSourceCache sourceCache;
+
+    @Inject
+    private TranslationMemory translationMemory;
+
+    @Inject
+    private IncrementalTranslationHelper incrementalTranslationHelper;
+
+    @Inject
+    private RequestScopedCache requestCache;
+
+    @Inject
+    private TranslationIndex translationIndex;
+
+    @Inject
+    private TranslationSetCache translationSetCache;
+
+    @Inject
+    private UntranslatableBlockFilter untranslatableBlockFilter;
+
+    @Inject
+    private TranslatorMetrics translatorMetrics;
+
+    @Inject
+    private TranslationTracer tracer;
+
     @Override
     public EntityReference translate(EntityReference reference, Locale toLocale) throws MachineTranslationException
+    {
+        TranslationTrace trace = this.tracer.begin(reference, toLocale);
+        try {
+            return translate(reference, prepareSource(reference), toLocale);
+        } finally {
+            this.tracer.end(trace);
+        }
+    }
+
+    /**
+     * Returns the contents of the original document of a given page, rendered for translation. The rendering is
+     * done once per version of the original document.
+     *
+     * @param reference A page reference
+     * @return the translation source, to be shared by all the target locales
+     * @throws MachineTranslationException in case an error occurs or the current user is not allowed to view the
+     *     original document
+     */
+    private TranslationSource prepareSource(EntityReference reference) throws MachineTranslationException
+    {
+        XWikiContext xcontext = xcontextProvider.get();
+        XWiki xwiki = xcontext.getWiki();
+        EntityReference originalDocumentReference;
+        try (TranslationTrace.Span span = this.tracer.span(PHASE_RIGHTS)) {
+            originalDocumentReference = getOriginalDocumentReference(reference);
+            if (!authorizationManager.hasAccess(Right.VIEW, originalDocumentReference)) {
+                throw new MachineTranslationException(String.format("Denied view right to [%s] on [%s]",
+                    CurrentUserReference.INSTANCE, originalDocumentReference));
+            }
+        }
+        try (TranslationTrace.Span span = this.tracer.span("render")) {
+            XWikiDocument originalDocument = xwiki.getDocument(originalDocumentReference, xcontext);
+            // The rendered contents also depend on the translated properties and on the location strategy.
+            boolean sameName = isSameNameTranslationNamingStrategy(originalDocument.getDocumentReference());
+            String variant = translatorConfiguration.getTargetProperties() + LIST_ITEM_SEPARATOR + sameName
+                + LIST_ITEM_SEPARATOR + translatorConfiguration.getChunkSize() + LIST_ITEM_SEPARATOR
+                + translatorConfiguration.getUntranslatableMacros();
+            return this.sourceCache.get(originalDocument, variant,
+                () -> new TranslationSource(originalDocument.getDocumentReference(), originalDocument.getVersion(),
+                    originalDocument.getDefaultLocale(), originalDocument.getTitle(), getSegments(originalDocument)));
+        } catch (XWikiException e) {
+            logger.error("Translator error {[]}", e);
+            throw new MachineTranslationException(e);
+        }
+    }
+
+    private EntityReference translate(EntityReference reference, TranslationSource source, Locale toLocale)
+        throws MachineTranslationException
     {
         try {
             XWikiContext xcontext = xcontextProvider.get();
             XWiki xwiki = xcontext.getWiki();
-            EntityReference originalDocumentReference = getOriginalDocumentReference(reference);
-            if (authorizationManager.hasAccess(Right.VIEW, originalDocumentReference)) {
-                XWikiDocument originalDocument = xwiki.getDocument(originalDocumentReference, xcontext).clone();
-
-                Locale fromLocale = originalDocument.getDefaultLocale();
-                if (fromLocale.equals(toLocale)) {
-                    logger.info("Skipping translation of [{}] to same locale as original locale [{}]",
-                        originalDocument.getDocumentReference(), toLocale);
-                    return null;
-                }
 
-                logger.info("Translating [{}] [{}] to locale [{}]", originalDocument.getDocumentReference(), fromLocale,
-                    toLocale);
+            Locale fromLocale = source.getLocale();
+            if (fromLocale.equals(toLocale)) {
+                logger.info("Skipping translation of [{}] to same locale as original locale [{}]",
+                    source.getDocumentReference(), toLocale);
+                return null;
+            }
 
-                String translationTitle = translate(originalDocument.getTitle(), fromLocale, toLocale, false);
+            logger.info("Translating [{}] [{}] to locale [{}]", source.getDocumentReference(), fromLocale, toLocale);
 
-                EntityReference translationReference =
-                    computeTranslationReference(originalDocument.getDocumentReference(), translationTitle, toLocale);
+            // The original document is shared with the concurrent translations of the page: it is only cloned
+            // when its attachments and objects are copied, since copying them loads their content.
+            XWikiDocument originalDocument;
+            try (TranslationTrace.Span span = this.tracer.span(PHASE_LOAD)) {
+                originalDocument = xwiki.getDocument(source.getDocumentReference(), xcontext);
+            }
+            String translationTitle = translate(source.getTitle(), fromLocale, toLocale, false);
 
+            EntityReference translationReference;
+            try (TranslationTrace.Span span = this.tracer.span(PHASE_RIGHTS)) {
+                translationReference =
+                    computeTranslationReference(originalDocument.getDocumentReference(), translationTitle, toLocale);
                 if (!this.authorizationManager.hasAccess(Right.EDIT, translationReference)) {
                     throw new MachineTranslationException(String.format("Denied edit right to [%s] on [%s]",
                         CurrentUserReference.INSTANCE, translationReference));
                 }
+            }
 
-                XWikiDocument translationDocument =
-                    prepareTranslationDocument(originalDocument, translationReference, translationTitle, toLocale);
-                translate(originalDocument, translationDocument, fromLocale, toLocale);
-
-                if (!isSameNameTranslationNamingStrategy(reference)) {
-                    BaseObject translationObj = translationDocument.getXObject(TRANSLATION_CLASS_REFERENCE);
-                    if (translationObj == null) {
-                        translationObj = translationDocument.newXObject(TRANSLATION_CLASS_REFERENCE, xcontext);
-                    }
-                    translationObj.setStringValue(ORIGINAL_PAGE_PROPERTY,
-                        entityReferenceSerializer.serialize(originalDocument.getDocumentReference()));
-                    translationObj.setDateValue("automatedTranslationDate", new Date());
-                    // TODO: fill in translator appropriately
-                    // translationObj.setStringValue("translator", "XWiki.MachineTranslation.DeepL");
+            XWikiDocument translationDocument =
+                loadTranslationDocument(originalDocument, translationReference, toLocale);
+            // The existing translation is read before the objects of the original document replace its own.
+            IncrementalTranslationHelper.PreviousTranslation previousTranslation =
+                this.incrementalTranslationHelper.getPreviousTranslation(translationDocument);
+            prepareTranslationDocument(originalDocument, translationDocument, translationTitle, toLocale);
+            translate(source, originalDocument, translationDocument, previousTranslation, fromLocale, toLocale);
+
+            if (!isSameNameTranslationNamingStrategy(reference)) {
+                BaseObject translationObj = translationDocument.getXObject(TRANSLATION_CLASS_REFERENCE);
+                if (translationObj == null) {
+                    translationObj = translationDocument.newXObject(TRANSLATION_CLASS_REFERENCE, xcontext);
                 }
+                translationObj.setStringValue(ORIGINAL_PAGE_PROPERTY,
+                    entityReferenceSerializer.serialize(originalDocument.getDocumentReference()));
+                translationObj.setDateValue(TRANSLATION_DATE_PROPERTY, new Date());
+                translationObj.setStringValue(SOURCE_VERSION_PROPERTY, source.getVersion());
+                // TODO: fill in translator appropriately
+                // translationObj.setStringValue("translator", "XWiki.MachineTranslation.DeepL");
+            }
 
-                setAuthors(translationDocument);
+            setAuthors(translationDocument);
+            try (TranslationTrace.Span span = this.tracer.span("save")) {
                 xwiki.saveDocument(translationDocument, "Translation from " + fromLocale.getLanguage(), xcontext);
-                return translationDocument.getDocumentReference();
-            } else {
-                throw new MachineTranslationException(String.format("Denied view right to [%s] on [%s]",
-                    CurrentUserReference.INSTANCE, originalDocumentReference));
             }
+            // The decisions taken so far may depend on the translations which exist.
+            this.requestCache.clear();
+            return translationDocument.getDocumentReference();
         } catch (XWikiException e) {
             logger.error("Translator error {[]}", e);
             throw new MachineTranslationException(e);
         }
     }
 
-    private XWikiDocument prepareTranslationDocument(XWikiDocument originalDocument,
-        EntityReference translationReference,
-        String translationTitle, Locale toLocale) throws XWikiException, MachineTranslationException
+    private XWikiDocument loadTranslationDocument(XWikiDocument originalDocument,
+        EntityReference translationReference, Locale toLocale) throws XWikiException, MachineTranslationException
     {
-        XWikiDocument translationDocument = null;
         XWikiContext xcontext = xcontextProvider.get();
         XWiki xwiki = xcontext.getWiki();
+        try (TranslationTrace.Span span = this.tracer.span(PHASE_LOAD)) {
+            if (!isSameNameTranslationNamingStrategy(originalDocument.getDocumentReference())) {
+                return xwiki.getDocument(translationReference, xcontext).clone();
+            } else {
+                return xwiki.getDocument(new DocumentReference(translationReference, toLocale), xcontext).clone();
+            }
+        }
+    }
+
+    private void prepareTranslationDocument(XWikiDocument originalDocument, XWikiDocument translationDocument,
+        String translationTitle, Locale toLocale) throws XWikiException, MachineTranslationException
+    {
         if (!isSameNameTranslationNamingStrategy(originalDocument.getDocumentReference())) {
-            translationDocument = xwiki.getDocument(translationReference, xcontext).clone();
             translationDocument.setDefaultLocale(toLocale);
-            translationDocument.copyAttachments(originalDocument);
-            translationDocument.duplicateXObjects(originalDocument);
-        } else {
-            translationDocument =
-                xwiki.getDocument(new DocumentReference(translationReference, toLocale), xcontext).clone();
+            try (TranslationTrace.Span span = this.tracer.span("copy")) {
+                XWikiDocument copiedDocument = originalDocument.clone();
+                translationDocument.copyAttachments(copiedDocument);
+                translationDocument.duplicateXObjects(copiedDocument);
+            }
         }
         translationDocument.setTitle(translationTitle);
-        return translationDocument;
     }
 
-    private void translate(XWikiDocument original, XWikiDocument translation, Locale from, Locale to)
+    private void translate(TranslationSource source, XWikiDocument original, XWikiDocument translation,
+        IncrementalTranslationHelper.PreviousTranslation previousTranslation, Locale from, Locale to)
         throws MachineTranslationException
     {
-        String content = original.getContent();
+        List<TranslationSource.Segment> segments = new ArrayList<>(source.getSegments());
+        if (segments.isEmpty()) {
+            return;
+        }
         try {
-            for (EntityReference property : getTargetProperties()) {
-                String propertyString = getModelScriptService().serialize(property);
-                if (propertyString.equals(CONTENT_REFERENCE)) {
-                    XDOM xdom = parser.parse(content, Syntax.XWIKI_2_1);
-                    WikiPrinter printer = new DefaultWikiPrinter();
-                    wikiBlockRenderer.render(xdom, printer);
-
-                    Pattern pattern = Pattern.compile(
-                        "<!--startmacro:glossaryReference\\|-\\|glossaryId=\".+?\" "
-                            + "entryId=\".+?\"\\|-\\|(.+?)--><!--stopmacro-->");
-                    StringBuilder builder = new StringBuilder();
-                    Matcher matcher = pattern.matcher(printer.toString());
-                    while (matcher.find()) {
-                        matcher.appendReplacement(builder, matcher.group(1));
-                    }
-                    matcher.appendTail(builder);
-                    String plainHtml = builder.toString();
-                    String translatedContent = translate(plainHtml, from, to, true);
-                    // TODO: We can convert directly without using fromAnnotatedHTML
-                    String wikiSyntax = fromAnnotatedHTML(translatedContent, Syntax.XWIKI_2_1);
-                    translation.setContent(wikiSyntax);
-                } else if (!isSameNameTranslationNamingStrategy(original.getDocumentReference())) {
-                    List<BaseObject> objects = original.getXObjects(property.getParent());
-                    for (BaseObject obj : objects) {
-                        logger.debug("Translating object property [{}] [{}]...", propertyString, obj.getNumber());
-                        String value = obj.getLargeStringValue(property.getName());
-                        if (StringUtils.isNotEmpty(value)) {
-                            String html = toHTML(value, Syntax.XWIKI_2_1);
-                            String translatedContent = translate(html, from, to, true);
-                            translatedContent = fromAnnotatedHTML(translatedContent, Syntax.XWIKI_2_1);
-                            BaseObject object =
-                                translation.getXObject(property.getParent(), obj.getNumber());
-                            object.setLargeStringValue(property.getName(), translatedContent);
+            // When the translation is up to date with a previous version of the original document, only the blocks
+            // of the content which have changed since then need to be translated. They go through the same
+            // placeholders and chunks as the full content.
+            IncrementalTranslationHelper.Changes changes = null;
+            for (int i = 0; i < segments.size(); i++) {
+                if (segments.get(i).getProperty() == null) {
+                    changes = this.incrementalTranslationHelper.getChanges(original, previousTranslation);
+                    if (changes != null) {
+                        segments.remove(i);
+                        for (Block block : changes.getChangedBlocks()) {
+                            segments.add(getContentSegment(new XDOM(Collections.singletonList(block))));
                         }
                     }
+                    break;
+                }
+            }
+            // The chunks of all the other contents are translated a few at a time, then converted back to wiki syntax
+            // right away, so that only the chunks being translated are held as HTML. The window size is in bytes, as
+            // the chunk size.
+            int chunkSize = this.translatorConfiguration.getChunkSize();
+            long windowSize = chunkSize > 0
+                ? (long) chunkSize * Math.max(1, this.translatorConfiguration.getMaxProviderConcurrency())
+                : Long.MAX_VALUE;
+            List<StringBuilder> outputs = new ArrayList<>(segments.size());
+            List<String> window = new ArrayList<>();
+            List<Integer> owners = new ArrayList<>();
+            long windowLength = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                outputs.add(new StringBuilder());
+                for (String chunk : segments.get(i).getChunks()) {
+                    window.add(chunk);
+                    owners.add(i);
+                    windowLength += AnnotatedHTMLSplitter.getSize(chunk);
+                    if (windowLength >= windowSize) {
+                        translateChunks(window, owners, segments, outputs, from, to);
+                        windowLength = 0;
+                    }
                 }
             }
+            translateChunks(window, owners, segments, outputs, from, to);
+            List<String> changedBlocks = new ArrayList<>();
+            for (int i = 0; i < segments.size(); i++) {
+                TranslationSource.Segment segment = segments.get(i);
+                String wikiSyntax = outputs.get(i).toString();
+                // Release the converted content as soon as it has been set.
+                outputs.set(i, null);
+                EntityReference property = segment.getProperty();
+                if (property == null && changes != null) {
+                    changedBlocks.add(wikiSyntax);
+                } else if (property == null) {
+                    translation.setContent(wikiSyntax);
+                } else {
+                    BaseObject object = translation.getXObject(property.getParent(), segment.getObjectNumber());
+                    object.setLargeStringValue(property.getName(), wikiSyntax);
+                }
+            }
+            if (changes != null) {
+                translation.setContent(changes.merge(changedBlocks));
+            }
         } catch (Exception e) {
             logger.error("translate", e);
             throw new MachineTranslationException(e);
         }
     }
 
+    /**
+     * Translates some chunks and appends their conversion to wiki syntax to the content they belong to.
+     */
+    private void translateChunks(List<String> chunks, List<Integer> owners, List<TranslationSource.Segment> segments,
+        List<StringBuilder> outputs, Locale from, Locale to) throws MachineTranslationException
+    {
+        if (chunks.isEmpty()) {
+            return;
+        }
+        // The chunks have been split when rendered, they are not split again.
+        List<String> translatedChunks = translateParts(chunks, from, to, true);
+        try (TranslationTrace.Span span = this.tracer.span("conversion")) {
+            for (int i = 0; i < translatedChunks.size(); i++) {
+                // TODO: We can convert directly without using fromAnnotatedHTML
+                String wikiSyntax = fromAnnotatedHTML(translatedChunks.get(i), Syntax.XWIKI_2_1);
+                TranslationSource.Segment segment = segments.get(owners.get(i));
+                wikiSyntax = segment.getPlaceholders().restore(wikiSyntax);
+                StringBuilder output = outputs.get(owners.get(i));
+                if (segment.getChunks().size() > 1) {
+                    // The chunks are joined as separate blocks, their surrounding blank lines are not duplicated.
+                    if (output.length() > 0) {
+                        output.append(BLOCK_SEPARATOR);
+                    }
+                    output.append(StringUtils.trim(wikiSyntax));
+                } else {
+                    // Kept exactly as converted, like contents which are not split.
+                    output.append(wikiSyntax);
+                }
+            }
+        }
+        chunks.clear();
+        owners.clear();
+    }
+
+    private List<TranslationSource.Segment> getSegments(XWikiDocument original) throws MachineTranslationException
+    {
+        try {
+            return renderSegments(original);
+        } catch (MissingParserException | ParseException e) {
+            logger.error("Error while rendering the contents of [{}]", original.getDocumentReference(), e);
+            throw new MachineTranslationException("Error while rendering the contents to be translated", e);
+        }
+    }
+
+    private List<TranslationSource.Segment> renderSegments(XWikiDocument original)
+        throws MachineTranslationException, MissingParserException, ParseException
+    {
+        List<TranslationSource.Segment> segments = new ArrayList<>();
+        for (EntityReference property : getTargetProperties()) {
+            String propertyString = getModelScriptService().serialize(property);
+            if (propertyString.equals(CONTENT_REFERENCE)) {
+                TranslationSource.Segment segment =
+                    getContentSegment(parser.parse(original.getContent(), Syntax.XWIKI_2_1));
+                if (segment.getPlaceholders().getSkippedCharacters() > 0) {
+                    logger.info("Skipping [{}] characters of untranslatable blocks of [{}]",
+                        segment.getPlaceholders().getSkippedCharacters(), original.getDocumentReference());
+                }
+                segments.add(segment);
+            } else if (!isSameNameTranslationNamingStrategy(original.getDocumentReference())) {
+                List<BaseObject> objects = original.getXObjects(property.getParent());
+                for (BaseObject obj : objects) {
+                    logger.debug("Rendering object property [{}] [{}]...", propertyString, obj.getNumber());
+                    String value = obj.getLargeStringValue(property.getName());
+                    if (StringUtils.isNotEmpty(value)) {
+                        segments.add(new TranslationSource.Segment(property, obj.getNumber(),
+                            split(toHTML(value, Syntax.XWIKI_2_1))));
+                    }
+                }
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Prepares a content for translation: its untranslatable blocks are replaced by placeholders, then it is rendered
+     * to annotated HTML chunks.
+     */
+    private TranslationSource.Segment getContentSegment(XDOM xdom)
+    {
+        UntranslatableBlockFilter.Placeholders placeholders = this.untranslatableBlockFilter.replace(xdom);
+        return new TranslationSource.Segment(null, 0, renderChunks(xdom), placeholders);
+    }
+
+    /**
+     * Renders a content to annotated HTML, split in chunks only when it exceeds the configured chunk size.
+     */
+    private List<String> renderChunks(XDOM xdom)
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        wikiBlockRenderer.render(xdom, printer);
+        return split(AnnotatedHTMLProcessor.stripGlossaryReferences(printer.getBuffer()));
+    }
+
+    /**
+     * Splits an annotated HTML content on block boundaries, in chunks which do not exceed the configured chunk size.
+     */
+    private List<String> split(String html)
+    {
+        int chunkSize = this.translatorConfiguration.getChunkSize();
+        return chunkSize > 0 ? AnnotatedHTMLSplitter.split(html, chunkSize) : Collections.singletonList(html);
+    }
+
     @Override
     public DocumentReference computeTranslationReference(EntityReference reference, String translationTitle,
         Locale translationLocale) throws MachineTranslationException
     {
         try {
-            EntityReference originalDocumentReference = getOriginalDocumentReference(reference);
+            XWikiDocument originalDocument = getOriginalDocument(reference);
+            EntityReference originalDocumentReference = originalDocument.getDocumentReference();
             String translationPageName = translationTitle;
             if (StringUtils.isNotEmpty(translationTitle)) {
                 translationPageName =
@@ -355,9 +609,6 @@ public abstract class AbstractTranslator implements Translator
                 // become "/fr/ma-page/", not "/fr/en/my-page/".
                 EntityReference topLevelSpace = localOriginalDocumentReference.extractFirstReference(EntityType.SPACE);
                 String topLevelSpaceName = entityReferenceSerializer.serialize(topLevelSpace);
-                XWikiContext xcontext = xcontextProvider.get();
-                XWiki xwiki = xcontext.getWiki();
-                XWikiDocument originalDocument = xwiki.getDocument(originalDocumentReference, xcontext);
                 Locale originalDocumentLocale = originalDocument.getDefaultLocale();
                 if (originalDocumentLocale.getLanguage().equals(topLevelSpaceName)) {
                     translationPageReference = translationPageReference.removeParent(topLevelSpace);
@@ -391,11 +642,266 @@ public abstract class AbstractTranslator implements Translator
         }
     }
 
+    @Override
+    public String translate(String content, Locale from, Locale to, boolean html) throws MachineTranslationException
+    {
+        if (StringUtils.isEmpty(content)) {
+            return content;
+        }
+        return translate(Collections.singletonList(content), from, to, html).get(0);
+    }
+
+    @Override
+    public List<String> translate(List<String> contents, Locale from, Locale to, boolean html)
+        throws MachineTranslationException
+    {
+        int chunkSize = html ? this.translatorConfiguration.getChunkSize() : 0;
+        if (chunkSize <= 0) {
+            return translateParts(contents, from, to, html);
+        }
+        // Large contents are split on block boundaries. The chunks are remembered and sent separately, so that they
+        // can be translated concurrently and a failure only requires the failing chunk to be sent again.
+        List<String> chunks = new ArrayList<>();
+        int[] chunkCounts = new int[contents.size()];
+        for (int i = 0; i < contents.size(); i++) {
+            String content = contents.get(i);
+            List<String> contentChunks = StringUtils.isEmpty(content) ? Collections.singletonList(content)
+                : AnnotatedHTMLSplitter.split(content, chunkSize);
+            chunks.addAll(contentChunks);
+            chunkCounts[i] = contentChunks.size();
+        }
+        if (chunks.size() == contents.size()) {
+            return translateParts(contents, from, to, html);
+        }
+        List<String> translatedChunks = translateParts(chunks, from, to, html);
+        List<String> results = new ArrayList<>(contents.size());
+        int start = 0;
+        for (int chunkCount : chunkCounts) {
+            results.add(chunkCount == 1 ? translatedChunks.get(start)
+                : String.join("", translatedChunks.subList(start, start + chunkCount)));
+            start += chunkCount;
+        }
+        return results;
+    }
+
+    private List<String> translateParts(List<String> contents, Locale from, Locale to, boolean html)
+        throws MachineTranslationException
+    {
+        List<String> results = new ArrayList<>(contents);
+        boolean useMemory = this.translationMemory.isEnabled();
+        String glossaryVersion = useMemory ? getGlossaryVersion(from, to) : null;
+        // Only the contents which are neither empty nor already known are sent to the translation service, we keep
+        // track of their position and translation key.
+        List<Integer> positions = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < contents.size(); i++) {
+            String content = contents.get(i);
+            if (StringUtils.isNotEmpty(content)) {
+                String key = null;
+                if (useMemory) {
+                    key = this.translationMemory.getKey(getName(), content, from, to, html, glossaryVersion);
+                    String translation = this.translationMemory.get(key);
+                    if (translation != null) {
+                        results.set(i, translation);
+                        continue;
+                    }
+                }
+                positions.add(i);
+                keys.add(key);
+                texts.add(content);
+            }
+        }
+        if (!texts.isEmpty()) {
+            List<String> translations = translateTextsWithMetrics(texts, from, to, html);
+            for (int i = 0; i < translations.size(); i++) {
+                String translation = translations.get(i);
+                results.set(positions.get(i), translation);
+                if (useMemory && translation != null) {
+                    this.translationMemory.put(keys.get(i), translation);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Calls the translation service, recording its latency and the characters sent for the locale pair.
+     */
+    private List<String> translateTextsWithMetrics(List<String> texts, Locale from, Locale to, boolean html)
+        throws MachineTranslationException
+    {
+        OperationMetrics metrics = this.translatorMetrics.get(getName(), "provider", from + ">" + to);
+        long characters = 0;
+        for (String text : texts) {
+            characters += text.length();
+        }
+        metrics.start(characters);
+        long start = System.nanoTime();
+        try (TranslationTrace.Span span = this.tracer.span("provider")) {
+            List<String> translations = translateTexts(texts, from, to, html);
+            metrics.end(System.nanoTime() - start, null);
+            return translations;
+        } catch (MachineTranslationException | RuntimeException e) {
+            metrics.end(System.nanoTime() - start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Translates texts with the translation service, bypassing the translation memory.
+     *
+     * @param texts the texts to be translated, none of them being empty
+     * @param from the source locale
+     * @param to the target locale
+     * @param html true if the texts are HTML
+     * @return the translated texts, in the same order
+     * @throws MachineTranslationException in case an error occurs
+     * @since 1.3
+     */
+    protected abstract List<String> translateTexts(List<String> texts, Locale from, Locale to, boolean html)
+        throws MachineTranslationException;
+
+    /**
+     * Identifies the version of the glossary used when translating from a locale to another, so that translations
+     * remembered before a glossary update are not reused afterwards.
+     *
+     * @param from the source locale
+     * @param to the target locale
+     * @return the glossary version, or an empty string if no glossary is used
+     * @throws MachineTranslationException in case an error occurs
+     * @since 1.3
+     */
+    protected String getGlossaryVersion(Locale from, Locale to) throws MachineTranslationException
+    {
+        return "";
+    }
+
     @Override
     public void translate(EntityReference reference, Locale[] toLocales) throws MachineTranslationException
     {
-        for (Locale toLocale : toLocales) {
-            translate(reference, toLocale);
+        for (TranslationResult result : translateToLocales(reference, toLocales)) {
+            if (!result.isSuccess()) {
+                throw new MachineTranslationException(String.format("Failed to translate [%s] to locale [%s]",
+                    reference, result.getLocale()), result.getError());
+            }
+        }
+    }
+
+    @Override
+    public List<TranslationResult> translateToLocales(EntityReference reference, Locale[] toLocales)
+        throws MachineTranslationException
+    {
+        // The source is rendered once, then the translations to the target locales are performed concurrently.
+        TranslationSource source = prepareSource(reference);
+        List<TranslationResult> results = new ArrayList<>(toLocales.length);
+        if (toLocales.length <= 1 || this.translationExecutor.getConcurrency() <= 1) {
+            for (Locale toLocale : toLocales) {
+                results.add(translateToLocale(reference, source, toLocale, null));
+            }
+        } else {
+            // The traces of the translations performed by the executor are handed back to the current thread.
+            List<TranslationTrace> traces = Collections.synchronizedList(new ArrayList<>());
+            List<Future<TranslationResult>> futures = new ArrayList<>(toLocales.length);
+            for (Locale toLocale : toLocales) {
+                futures.add(
+                    this.translationExecutor.submit(() -> translateToLocale(reference, source, toLocale, traces)));
+            }
+            for (int i = 0; i < toLocales.length; i++) {
+                results.add(getResult(futures.get(i), toLocales[i]));
+            }
+            synchronized (traces) {
+                this.tracer.addFinishedTraces(traces);
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public TranslationEstimate estimate(EntityReference reference, Locale[] toLocales)
+        throws MachineTranslationException
+    {
+        TranslationSource source = prepareSource(reference);
+        TranslationEstimate estimate = new TranslationEstimate(source.getDocumentReference());
+        boolean useMemory = this.translationMemory.isEnabled();
+        Locale from = source.getLocale();
+        for (Locale to : toLocales) {
+            if (from.equals(to)) {
+                continue;
+            }
+            String glossaryVersion = useMemory ? getGlossaryVersion(from, to) : null;
+            long[] counts = new long[2];
+            // Same contents as sent by #translate(EntityReference, TranslationSource, Locale).
+            count(source.getTitle(), from, to, false, glossaryVersion, counts);
+            for (TranslationSource.Segment segment : source.getSegments()) {
+                for (String chunk : segment.getChunks()) {
+                    count(chunk, from, to, true, glossaryVersion, counts);
+                }
+            }
+            long skippedCharacters = 0;
+            for (TranslationSource.Segment segment : source.getSegments()) {
+                skippedCharacters += segment.getPlaceholders().getSkippedCharacters();
+            }
+            estimate.add(to, counts[0], counts[1], skippedCharacters);
+        }
+        return estimate;
+    }
+
+    private void count(String content, Locale from, Locale to, boolean html, String glossaryVersion, long[] counts)
+    {
+        if (StringUtils.isEmpty(content)) {
+            return;
+        }
+        long characters = countCharacters(content, html);
+        if (glossaryVersion != null
+            && this.translationMemory.contains(
+                this.translationMemory.getKey(getName(), content, from, to, html, glossaryVersion))) {
+            counts[1] += characters;
+        } else {
+            counts[0] += characters;
+        }
+    }
+
+    /**
+     * Counts the characters sent to the translation service to translate a given content.
+     *
+     * @param content the content to be translated
+     * @param html true if the content is HTML
+     * @return the number of characters sent to the translation service
+     * @since 1.3
+     */
+    protected long countCharacters(String content, boolean html)
+    {
+        return content.length();
+    }
+
+    private TranslationResult translateToLocale(EntityReference reference, TranslationSource source,
+        Locale toLocale, List<TranslationTrace> traces)
+    {
+        TranslationTrace trace = this.tracer.begin(reference, toLocale);
+        try {
+            return new TranslationResult(toLocale, translate(reference, source, toLocale), null);
+        } catch (Exception e) {
+            logger.error("Failed to translate [{}] to locale [{}]", reference, toLocale, e);
+            return new TranslationResult(toLocale, null, e);
+        } finally {
+            this.tracer.end(trace);
+            if (trace != null && traces != null) {
+                traces.add(trace);
+            }
+        }
+    }
+
+    private TranslationResult getResult(Future<TranslationResult> future, Locale toLocale)
+    {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return new TranslationResult(toLocale, null, e);
+        } catch (ExecutionException e) {
+            return new TranslationResult(toLocale, null, e.getCause());
         }
     }
 
@@ -408,18 +914,11 @@ public abstract class AbstractTranslator implements Translator
             XWikiDocument doc = xwiki.getDocument(reference, xcontext);
 
             if (isSameNameTranslationNamingStrategy(reference)) {
-                List<Locale> locales = doc.getTranslationLocales(xcontext);
-                List<MachineTranslation> translations = new ArrayList<>();
-
-                for (Locale locale : locales) {
-                    if (authorizationManager.hasAccess(Right.VIEW, reference)) {
-                        XWikiDocument translatedDocument = doc.getTranslatedDocument(locale, xcontext);
-                        translations.add(
-                            new DefaultMachineTranslation(translatedDocument.getDocumentReference(), locale,
-                                translatedDocument.getTitle()));
-                    }
-                }
-                return translations;
+                // The translations are cached for all users, rights are checked afterwards.
+                List<MachineTranslation> translations = this.translationSetCache.get(doc.getDocumentReference(), true,
+                    () -> loadSameNameTranslations(doc));
+                return authorizationManager.hasAccess(Right.VIEW, reference) ? new ArrayList<>(translations)
+                    : new ArrayList<>();
             }
             return retrieveTranslations(doc.getDocumentReference());
         } catch (XWikiException e) {
@@ -427,18 +926,42 @@ public abstract class AbstractTranslator implements Translator
         }
     }
 
+    private List<MachineTranslation> loadSameNameTranslations(XWikiDocument doc) throws MachineTranslationException
+    {
+        XWikiContext xcontext = xcontextProvider.get();
+        try {
+            List<MachineTranslation> translations = new ArrayList<>();
+            for (Locale locale : doc.getTranslationLocales(xcontext)) {
+                XWikiDocument translatedDocument = doc.getTranslatedDocument(locale, xcontext);
+                translations.add(new DefaultMachineTranslation(translatedDocument.getDocumentReference(), locale,
+                    translatedDocument.getTitle()));
+            }
+            return translations;
+        } catch (XWikiException e) {
+            throw new MachineTranslationException(
+                String.format("Failed to get translations for [%s]", doc.getDocumentReference()), e);
+        }
+    }
+
     @Override
     public MachineTranslation getTranslation(DocumentReference reference, Locale locale)
         throws MachineTranslationException
     {
-        // TODO: stream
-        List<MachineTranslation> translations = getTranslations(reference);
-        for (MachineTranslation entry : translations) {
-            if (entry.getLocale().equals(locale)) {
-                return entry;
+        return getTranslationsForLocales(reference).get(locale);
+    }
+
+    @Override
+    public Map<Locale, MachineTranslation> getTranslationsForLocales(DocumentReference reference)
+        throws MachineTranslationException
+    {
+        return this.requestCache.get("translationsForLocales", reference, () -> {
+            Map<Locale, MachineTranslation> translations = new LinkedHashMap<>();
+            for (MachineTranslation translation : getTranslations(reference)) {
+                // Keep the first translation found for a given locale.
+                translations.putIfAbsent(translation.getLocale(), translation);
             }
-        }
-        return null;
+            return Collections.unmodifiableMap(translations);
+        });
     }
 
     private List<MachineTranslation> retrieveTranslations(DocumentReference reference)
@@ -449,26 +972,35 @@ public abstract class AbstractTranslator implements Translator
 
         List<MachineTranslation> translations = new ArrayList<>();
         DocumentReference originalDocumentReference = getOriginalDocumentReference(reference);
-        try {
-            Query query = createTranslationRetrievalQuery(originalDocumentReference);
-            List<Locale> availableLocales = xwiki.getAvailableLocales(xcontext);
-            for (Object obj : query.execute()) {
-                Object[] data = (Object[]) obj;
-                Locale locale = LocaleUtils.toLocale(data[2].toString());
-                DocumentReference pageReference = referenceResolver.resolve(data[0].toString());
-                if (availableLocales.contains(locale) && authorizationManager.hasAccess(Right.VIEW, pageReference)) {
-                    translations.add(new DefaultMachineTranslation(pageReference, locale, (String) data[1]));
-                }
+        List<Locale> availableLocales = xwiki.getAvailableLocales(xcontext);
+        // The translations are cached for all users, rights are checked afterwards.
+        for (MachineTranslation translation : this.translationSetCache.get(originalDocumentReference, false,
+            () -> loadTranslations(originalDocumentReference))) {
+            if (availableLocales.contains(translation.getLocale())
+                && authorizationManager.hasAccess(Right.VIEW, translation.getDocumentReference())) {
+                translations.add(translation);
             }
-            return translations;
-        } catch (QueryException e) {
-            logger.error("Error while retrieving translation pages of [{}]", reference, e);
-            throw new MachineTranslationException("Error when retrieving translation pages", e);
         }
+        return translations;
+    }
+
+    private List<MachineTranslation> loadTranslations(DocumentReference originalDocumentReference)
+        throws MachineTranslationException
+    {
+        List<MachineTranslation> translations = new ArrayList<>();
+        for (TranslationIndexEntry entry : this.translationIndex.getTranslations(originalDocumentReference)) {
+            translations.add(new DefaultMachineTranslation(entry.getReference(), entry.getLocale(), entry.getTitle()));
+        }
+        return translations;
     }
 
     @Override
     public XWikiDocument getOriginalDocument(EntityReference reference) throws MachineTranslationException
+    {
+        return this.requestCache.get("originalDocument", reference, () -> loadOriginalDocument(reference));
+    }
+
+    private XWikiDocument loadOriginalDocument(EntityReference reference) throws MachineTranslationException
     {
         try {
             if (authorizationManager.hasAccess(Right.VIEW, reference)) {
@@ -510,29 +1042,13 @@ public abstract class AbstractTranslator implements Translator
         return getOriginalDocument(reference).getRealLocale();
     }
 
-    /**
-     * Create Query that will retrieve all translations of a given document, when they're located in different
-     * locations.
-     *
-     * @param originalDocument Reference of the original document
-     * @return Query to be used to retrieve all translation documents
-     * @throws QueryException in case an error occurs
-     */
-    private Query createTranslationRetrievalQuery(EntityReference originalDocument)
-        throws QueryException
+    @Override
+    public boolean isTranslatable(EntityReference reference) throws MachineTranslationException
     {
-        String hql = "select doc.fullName, doc.title, doc.defaultLanguage from XWikiDocument as doc, "
-            + "BaseObject as obj, StringProperty as prop where obj.name = doc.fullName and obj.className = "
-            + ":className and prop.id.id = obj.id and prop.id.name = :prop "
-            + "and prop.value = :originalPage";
-        return queryManager.createQuery(hql, Query.HQL)
-            .bindValue("className", entityReferenceSerializer.serialize(TRANSLATION_CLASS_REFERENCE))
-            .bindValue("prop", ORIGINAL_PAGE_PROPERTY)
-            .bindValue(ORIGINAL_PAGE_PROPERTY, entityReferenceSerializer.serialize(originalDocument));
+        return this.requestCache.get("isTranslatable", reference, () -> computeTranslatable(reference));
     }
 
-    @Override
-    public boolean isTranslatable(EntityReference reference) throws MachineTranslationException
+    private boolean computeTranslatable(EntityReference reference) throws MachineTranslationException
     {
         XWikiContext xcontext = xcontextProvider.get();
         XWiki xwiki = xcontext.getWiki();
@@ -606,34 +1122,40 @@ public abstract class AbstractTranslator implements Translator
         if (translatorConfiguration.isSameNameTranslationNamingStrategy()) {
             return true;
         } else {
-            /* We use same name translation naming strategy for all pages which already have a translation
-              at the same location (eg Main.WebHome), and for the ones matching the configuration
-              parameter "sameNameTranslationClasses".
-             */
-            String sameNameTranslationClasses = translatorConfiguration.getSameNameTranslationClasses();
-            XWikiContext xcontext = xcontextProvider.get();
-            XWiki xwiki = xcontext.getWiki();
-            try {
-                XWikiDocument doc = xwiki.getDocument(reference, xcontext);
+            return this.requestCache.get("isSameNameTranslationNamingStrategy", reference,
+                () -> hasSameNameTranslations(reference));
+        }
+    }
 
-                if (CollectionUtils.isNotEmpty(doc.getTranslationLocales(xcontext))) {
-                    return true;
-                }
+    private boolean hasSameNameTranslations(EntityReference reference) throws MachineTranslationException
+    {
+        /* We use same name translation naming strategy for all pages which already have a translation
+          at the same location (eg Main.WebHome), and for the ones matching the configuration
+          parameter "sameNameTranslationClasses".
+         */
+        String sameNameTranslationClasses = translatorConfiguration.getSameNameTranslationClasses();
+        XWikiContext xcontext = xcontextProvider.get();
+        XWiki xwiki = xcontext.getWiki();
+        try {
+            XWikiDocument doc = xwiki.getDocument(reference, xcontext);
 
-                for (String xclass : toList(sameNameTranslationClasses)) {
-                    if (StringUtils.isNotEmpty(xclass)) {
-                        List<BaseObject> objects = doc.getXObjects(referenceResolver.resolve(xclass));
-                        if (!objects.isEmpty()) {
-                            return true;
-                        }
+            if (CollectionUtils.isNotEmpty(doc.getTranslationLocales(xcontext))) {
+                return true;
+            }
+
+            for (String xclass : toList(sameNameTranslationClasses)) {
+                if (StringUtils.isNotEmpty(xclass)) {
+                    List<BaseObject> objects = doc.getXObjects(referenceResolver.resolve(xclass));
+                    if (!objects.isEmpty()) {
+                        return true;
                     }
                 }
-            } catch (XWikiException e) {
-                throw new MachineTranslationException(String.format("Failed to load document [%s]", reference), e);
             }
-
-            return false;
+        } catch (XWikiException e) {
+            throw new MachineTranslationException(String.format("Failed to load document [%s]", reference), e);
         }
+
+        return false;
     }
 
     @Override
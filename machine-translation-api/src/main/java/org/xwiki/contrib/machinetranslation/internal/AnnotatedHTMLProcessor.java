@@ -0,0 +1,193 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal;
+
+/**
+ * Rewrites the annotated HTML sent to and received from translation services. Each rewriting is done in a single pass
+ * over its input, without regular expressions, and appends its output to a given builder, so that no intermediate
+ * copy of the whole content is created.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+public final class AnnotatedHTMLProcessor
+{
+    private static final String COMMENT_START = "<!--";
+
+    private static final String COMMENT_END = "-->";
+
+    private static final String PROTECTION_START = "<script class=\"notranslate\">";
+
+    private static final String PROTECTION_END = "</script>";
+
+    private static final String GLOSSARY_START = "<!--startmacro:glossaryReference|-|glossaryId=\"";
+
+    private static final String GLOSSARY_ENTRY = "\" entryId=\"";
+
+    private static final String GLOSSARY_CONTENT = "\"|-|";
+
+    private static final String GLOSSARY_END = "--><!--stopmacro-->";
+
+    /**
+     * Extra capacity given to output builders, to limit the number of resizes when markup is added.
+     */
+    private static final int EXTRA_CAPACITY_RATIO = 8;
+
+    private AnnotatedHTMLProcessor()
+    {
+        // Utility class.
+    }
+
+    /**
+     * Replaces the {@code glossaryReference} macro markers by the macro content, so that the content gets translated.
+     *
+     * @param html annotated HTML
+     * @return the annotated HTML without glossary reference macros
+     */
+    public static String stripGlossaryReferences(CharSequence html)
+    {
+        StringBuilder builder = new StringBuilder(html.length());
+        stripGlossaryReferences(html, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Replaces the {@code glossaryReference} macro markers by the macro content, so that the content gets translated.
+     *
+     * @param html annotated HTML
+     * @param output where the annotated HTML without glossary reference macros is appended
+     */
+    public static void stripGlossaryReferences(CharSequence html, StringBuilder output)
+    {
+        String input = html.toString();
+        int position = 0;
+        int start = input.indexOf(GLOSSARY_START);
+        while (start >= 0) {
+            int contentStart = findGlossaryContent(input, start);
+            int contentEnd = contentStart < 0 ? -1 : input.indexOf(GLOSSARY_END, contentStart);
+            if (contentEnd > contentStart) {
+                output.append(input, position, start).append(input, contentStart, contentEnd);
+                position = contentEnd + GLOSSARY_END.length();
+                start = input.indexOf(GLOSSARY_START, position);
+            } else {
+                // Not a well-formed glossary reference, keep it as is.
+                start = input.indexOf(GLOSSARY_START, start + GLOSSARY_START.length());
+            }
+        }
+        output.append(input, position, input.length());
+    }
+
+    private static int findGlossaryContent(String input, int start)
+    {
+        int glossaryIdEnd = input.indexOf(GLOSSARY_ENTRY, start + GLOSSARY_START.length() + 1);
+        if (glossaryIdEnd < 0) {
+            return -1;
+        }
+        int entryIdEnd = input.indexOf(GLOSSARY_CONTENT, glossaryIdEnd + GLOSSARY_ENTRY.length() + 1);
+        return entryIdEnd < 0 ? -1 : entryIdEnd + GLOSSARY_CONTENT.length();
+    }
+
+    /**
+     * Wraps the HTML comments in non translatable elements. Some translation services, like DeepL, move the
+     * comments around the text when translating, which breaks the annotated HTML (e.g. the start and end markers of
+     * a link end up next to each other instead of around the link).
+     *
+     * @param html annotated HTML
+     * @return the annotated HTML with protected comments
+     */
+    public static String protectComments(CharSequence html)
+    {
+        StringBuilder builder = new StringBuilder(html.length() + html.length() / EXTRA_CAPACITY_RATIO);
+        protectComments(html, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Wraps the HTML comments in non translatable elements, see {@link #protectComments(CharSequence)}.
+     *
+     * @param html annotated HTML
+     * @param output where the annotated HTML with protected comments is appended
+     */
+    public static void protectComments(CharSequence html, StringBuilder output)
+    {
+        String input = html.toString();
+        int position = 0;
+        int start = input.indexOf(COMMENT_START);
+        int end = input.indexOf(COMMENT_END);
+        while (start >= 0 || end >= 0) {
+            if (start >= 0 && (end < 0 || start < end)) {
+                output.append(input, position, start).append(PROTECTION_START).append(COMMENT_START);
+                position = start + COMMENT_START.length();
+                start = input.indexOf(COMMENT_START, position);
+            } else {
+                output.append(input, position, end).append(COMMENT_END).append(PROTECTION_END);
+                position = end + COMMENT_END.length();
+                end = input.indexOf(COMMENT_END, position);
+            }
+            // Markers overlapping the one which has just been processed are ignored.
+            if (start >= 0 && start < position) {
+                start = input.indexOf(COMMENT_START, position);
+            }
+            if (end >= 0 && end < position) {
+                end = input.indexOf(COMMENT_END, position);
+            }
+        }
+        output.append(input, position, input.length());
+    }
+
+    /**
+     * Removes the elements added by {@link #protectComments(CharSequence)}.
+     *
+     * @param html translated annotated HTML
+     * @return the annotated HTML without the comment protections
+     */
+    public static String unprotectComments(CharSequence html)
+    {
+        StringBuilder builder = new StringBuilder(html.length());
+        unprotectComments(html, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Removes the elements added by {@link #protectComments(CharSequence)}.
+     *
+     * @param html translated annotated HTML
+     * @param output where the annotated HTML without the comment protections is appended
+     */
+    public static void unprotectComments(CharSequence html, StringBuilder output)
+    {
+        String input = html.toString();
+        int position = 0;
+        int start = input.indexOf(PROTECTION_START);
+        int end = input.indexOf(PROTECTION_END);
+        while (start >= 0 || end >= 0) {
+            if (start >= 0 && (end < 0 || start < end)) {
+                output.append(input, position, start);
+                position = start + PROTECTION_START.length();
+                start = input.indexOf(PROTECTION_START, position);
+            } else {
+                output.append(input, position, end);
+                position = end + PROTECTION_END.length();
+                end = input.indexOf(PROTECTION_END, position);
+            }
+        }
+        output.append(input, position, input.length());
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.xwiki.text.StringUtils;
+
+/**
+ * Splits annotated HTML into chunks of limited size, so that very large contents can be translated in several
+ * requests. Chunks are only cut between top level elements, outside of the start and stop markers of macros and
+ * links, so that each chunk is well-formed annotated HTML and the translated chunks can simply be concatenated. A top
+ * level element larger than the size limit is kept whole in its own chunk.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+public final class AnnotatedHTMLSplitter
+{
+    private static final String COMMENT_START = "<!--";
+
+    private static final String COMMENT_END = "-->";
+
+    private static final String MARKER_START = "start";
+
+    private static final String MARKER_STOP = "stop";
+
+    private static final Set<String> VOID_ELEMENTS = new HashSet<>(Arrays.asList("area", "base", "br", "col",
+        "embed", "hr", "img", "input", "link", "meta", "param", "source", "track", "wbr"));
+
+    private static final Set<String> RAW_TEXT_ELEMENTS = new HashSet<>(Arrays.asList("script", "style"));
+
+    /**
+     * Maximum number of bytes of a UTF-8 encoded character, used to skip splitting contents which obviously fit.
+     */
+    private static final int MAX_CHARACTER_BYTES = 3;
+
+    private static final int MAX_ONE_BYTE = 0x7F;
+
+    private static final int MAX_TWO_BYTES = 0x7FF;
+
+    private AnnotatedHTMLSplitter()
+    {
+        // Utility class.
+    }
+
+    /**
+     * Splits annotated HTML into chunks whose UTF-8 encoded size does not exceed a given budget, unless a single top
+     * level element exceeds it.
+     *
+     * @param html annotated HTML
+     * @param maxBytes the maximum size of a chunk, in bytes
+     * @return the chunks, whose concatenation is the given HTML
+     */
+    public static List<String> split(String html, int maxBytes)
+    {
+        if ((long) html.length() * MAX_CHARACTER_BYTES <= maxBytes) {
+            return Collections.singletonList(html);
+        }
+        List<String> chunks = new ArrayList<>();
+        int chunkStart = 0;
+        int chunkBytes = 0;
+        // The last position, in the current chunk, where the HTML can be cut.
+        int boundary = -1;
+        int boundaryBytes = 0;
+        int depth = 0;
+        int markerDepth = 0;
+        int position = 0;
+        while (position < html.length()) {
+            int next = skip(html, position);
+            if (next == position) {
+                // Plain character.
+                next = position + 1;
+            } else if (html.startsWith(COMMENT_START, position)) {
+                markerDepth += getMarkerDelta(html, position + COMMENT_START.length());
+            } else if (html.charAt(position + 1) == '/') {
+                depth = Math.max(0, depth - 1);
+            } else if (!isVoid(html, position, next)) {
+                int rawTextEnd = skipRawText(html, position, next);
+                if (rawTextEnd == next) {
+                    depth++;
+                } else {
+                    // Raw text elements are skipped along with their content and end tag.
+                    next = rawTextEnd < 0 ? html.length() : rawTextEnd;
+                }
+            }
+            chunkBytes += getBytes(html, position, next);
+            position = next;
+            if (chunkBytes > maxBytes && boundary > chunkStart) {
+                chunks.add(html.substring(chunkStart, boundary));
+                chunkBytes -= boundaryBytes;
+                chunkStart = boundary;
+                boundary = -1;
+            }
+            if (depth == 0 && markerDepth <= 0 && html.charAt(position - 1) == '>') {
+                boundary = position;
+                boundaryBytes = chunkBytes;
+            }
+        }
+        chunks.add(html.substring(chunkStart));
+        return chunks;
+    }
+
+    /**
+     * @return the position after the tag or comment starting at the given position, or the given position if there is
+     *     none
+     */
+    private static int skip(String html, int position)
+    {
+        if (html.charAt(position) != '<' || position + 1 >= html.length()) {
+            return position;
+        }
+        if (html.startsWith(COMMENT_START, position)) {
+            int end = html.indexOf(COMMENT_END, position + COMMENT_START.length());
+            return end < 0 ? html.length() : end + COMMENT_END.length();
+        }
+        char c = html.charAt(position + 1);
+        if (c != '/' && !Character.isLetter(c)) {
+            return position;
+        }
+        char quote = 0;
+        for (int i = position + 1; i < html.length(); i++) {
+            char current = html.charAt(i);
+            if (quote != 0) {
+                if (current == quote) {
+                    quote = 0;
+                }
+            } else if (current == '"' || current == '\'') {
+                quote = current;
+            } else if (current == '>') {
+                return i + 1;
+            }
+        }
+        return html.length();
+    }
+
+    private static int getMarkerDelta(String html, int position)
+    {
+        if (html.startsWith(MARKER_START, position)) {
+            return 1;
+        } else if (html.startsWith(MARKER_STOP, position)) {
+            return -1;
+        }
+        return 0;
+    }
+
+    private static String getTagName(String html, int start, int end)
+    {
+        int nameEnd = start + 1;
+        while (nameEnd < end && Character.isLetterOrDigit(html.charAt(nameEnd))) {
+            nameEnd++;
+        }
+        return html.substring(start + 1, nameEnd).toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isVoid(String html, int start, int end)
+    {
+        return html.charAt(end - 2) == '/' || VOID_ELEMENTS.contains(getTagName(html, start, end));
+    }
+
+    /**
+     * @return the position after the end tag of the raw text element starting at the given position, the end of its
+     *     start tag if it is not a raw text element, or -1 if the end tag is missing
+     */
+    private static int skipRawText(String html, int start, int end)
+    {
+        String name = getTagName(html, start, end);
+        if (!RAW_TEXT_ELEMENTS.contains(name)) {
+            return end;
+        }
+        String endTag = "</" + name;
+        int endTagStart = StringUtils.indexOfIgnoreCase(html, endTag, end);
+        return endTagStart < 0 ? -1 : skip(html, endTagStart);
+    }
+
+    /**
+     * @param html some HTML
+     * @return the size of the UTF-8 encoding of the given HTML, in bytes
+     */
+    public static int getSize(CharSequence html)
+    {
+        return getBytes(html, 0, html.length());
+    }
+
+    private static int getBytes(CharSequence html, int start, int end)
+    {
+        int bytes = 0;
+        for (int i = start; i < end; i++) {
+            char c = html.charAt(i);
+            if (c <= MAX_ONE_BYTE) {
+                bytes++;
+            } else if (c <= MAX_TWO_BYTES || Character.isSurrogate(c)) {
+                // A surrogate pair is encoded with 4 bytes.
+                bytes += 2;
+            } else {
+                bytes += MAX_CHARACTER_BYTES;
+            }
+        }
+        return bytes;
+    }
+}
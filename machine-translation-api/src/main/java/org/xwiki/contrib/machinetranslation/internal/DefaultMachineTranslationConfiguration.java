@@ -36,6 +36,31 @@ import org.xwiki.contrib.machinetranslation.MachineTranslationConfiguration;
 @Singleton
 public class DefaultMachineTranslationConfiguration implements MachineTranslationConfiguration
 {
+    private static final String PREFIX = "machinetranslation.";
+
+    private static final long DEFAULT_GLOSSARY_CACHE_TTL = 600L;
+
+    private static final int DEFAULT_TRANSLATION_THREADS = 4;
+
+    private static final int DEFAULT_MAX_PROVIDER_CONCURRENCY = 8;
+
+    private static final long DEFAULT_TRANSLATION_MEMORY_MAX_AGE = 90L;
+
+    private static final int DEFAULT_RETRY_MAX_ATTEMPTS = 3;
+
+    private static final int DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+
+    private static final long DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION = 30L;
+
+    private static final long DEFAULT_USAGE_REFRESH_INTERVAL = 300L;
+
+    private static final int DEFAULT_CHUNK_SIZE = 32 * 1024;
+
+    private static final long DEFAULT_SLOW_TRANSLATION_THRESHOLD = 10000L;
+
+    private static final String DEFAULT_UNTRANSLATABLE_MACROS =
+        "code,velocity,groovy,python,html,include,display,toc,children,documentTree,attachments";
+
     /**
      * Configuration source.
      */
@@ -43,6 +68,13 @@ public class DefaultMachineTranslationConfiguration implements MachineTranslatio
     @Named("machinetranslation")
     private ConfigurationSource configurationSource;
 
+    /**
+     * Source of the tuning parameters that are not exposed in the administration, i.e. {@code xwiki.properties}.
+     */
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource xwikiPropertiesSource;
+
     @Override
     public String getTranslator()
     {
@@ -84,4 +116,105 @@ public class DefaultMachineTranslationConfiguration implements MachineTranslatio
     {
         return configurationSource.getProperty("translatorGlossaryNamePrefix");
     }
+
+    @Override
+    public long getGlossaryCacheTTL()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "glossaryCacheTTL", DEFAULT_GLOSSARY_CACHE_TTL);
+    }
+
+    @Override
+    public int getTranslationThreads()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "translationThreads", DEFAULT_TRANSLATION_THREADS);
+    }
+
+    @Override
+    public boolean isTranslationMemoryEnabled()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "translationMemory.enabled", false);
+    }
+
+    @Override
+    public long getTranslationMemoryMaxAge()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "translationMemory.maxAge",
+            DEFAULT_TRANSLATION_MEMORY_MAX_AGE);
+    }
+
+    @Override
+    public boolean isIncrementalTranslationEnabled()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "incrementalTranslation", false);
+    }
+
+    @Override
+    public double getRateLimitRequestsPerSecond()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "rateLimit.requestsPerSecond", 0D);
+    }
+
+    @Override
+    public long getRateLimitCharactersPerSecond()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "rateLimit.charactersPerSecond", 0L);
+    }
+
+    @Override
+    public int getMaxProviderConcurrency()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "rateLimit.maxConcurrency",
+            DEFAULT_MAX_PROVIDER_CONCURRENCY);
+    }
+
+    @Override
+    public int getRetryMaxAttempts()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "retry.maxAttempts", DEFAULT_RETRY_MAX_ATTEMPTS);
+    }
+
+    @Override
+    public int getCircuitBreakerFailureThreshold()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "circuitBreaker.failureThreshold",
+            DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD);
+    }
+
+    @Override
+    public long getCircuitBreakerOpenDuration()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "circuitBreaker.openDuration",
+            DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION);
+    }
+
+    @Override
+    public long getUsageRefreshInterval()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "usageRefreshInterval", DEFAULT_USAGE_REFRESH_INTERVAL);
+    }
+
+    @Override
+    public int getChunkSize()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "chunkSize", DEFAULT_CHUNK_SIZE);
+    }
+
+    @Override
+    public String getUntranslatableMacros()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "untranslatableMacros", DEFAULT_UNTRANSLATABLE_MACROS);
+    }
+
+    @Override
+    public long getSlowTranslationThreshold()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "slowTranslationThreshold",
+            DEFAULT_SLOW_TRANSLATION_THRESHOLD);
+    }
+
+    @Override
+    public String getServerUrl()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "serverUrl", "");
+    }
 }
@@ -20,7 +20,9 @@
 package org.xwiki.contrib.machinetranslation.internal;
 
 import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -32,9 +34,11 @@ import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.contrib.machinetranslation.Translator;
 import org.xwiki.contrib.machinetranslation.MachineTranslationConfiguration;
 import org.xwiki.contrib.machinetranslation.TranslatorManager;
+import org.xwiki.contrib.machinetranslation.internal.metrics.InstrumentedTranslator;
+import org.xwiki.contrib.machinetranslation.internal.metrics.TranslatorMetrics;
 
 /**
- * Default manager for translators.
+ * Default manager for translators. The returned translators are instrumented, see {@link InstrumentedTranslator}.
  *
  * @version $Id$
  */
@@ -60,6 +64,11 @@ public class DefaultTranslatorManager implements TranslatorManager
     @Inject
     private ComponentManager componentManager;
 
+    @Inject
+    private TranslatorMetrics translatorMetrics;
+
+    private final Map<String, Translator> instrumentedTranslators = new ConcurrentHashMap<>();
+
     @Override
     public Translator getTranslator()
     {
@@ -74,7 +83,11 @@ public class DefaultTranslatorManager implements TranslatorManager
         }
 
         try {
-            return this.componentManager.getInstance(Translator.class, hint);
+            Translator translator = this.componentManager.getInstance(Translator.class, hint);
+            // The translator component may have been replaced (e.g. by an extension upgrade) since it was wrapped.
+            return this.instrumentedTranslators.compute(hint, (key, current) ->
+                current != null && InstrumentedTranslator.unwrap(current) == translator ? current
+                    : InstrumentedTranslator.wrap(translator, this.translatorMetrics));
         } catch (ComponentLookupException e) {
             this.logger.error("Error while getting the Translator with hint [{}]", hint, e);
             return null;
@@ -0,0 +1,280 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.machinetranslation.MachineTranslationConfiguration;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.parser.ContentParser;
+import org.xwiki.rendering.parser.MissingParserException;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.text.StringUtils;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+/**
+ * Finds the top-level blocks of the content of a document which have changed since the version of the original
+ * document the existing translation has been made from, so that only these are sent to the translator. The translation
+ * of the unchanged blocks is taken from the existing translation.
+ * <p>
+ * The blocks of the existing translation can only be matched with the blocks of the previous version of the original
+ * document when both have the same number of top-level blocks, otherwise the document has to be fully retranslated.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+@Component(roles = IncrementalTranslationHelper.class)
+@Singleton
+public class IncrementalTranslationHelper
+{
+    private static final String BLOCK_SEPARATOR = "\n\n";
+
+    @Inject
+    private MachineTranslationConfiguration translatorConfiguration;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private ContentParser parser;
+
+    @Inject
+    @Named("annotatedhtml/5.0")
+    private BlockRenderer annotatedHTMLRenderer;
+
+    @Inject
+    @Named("xwiki/2.1")
+    private BlockRenderer wikiRenderer;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * The content of an original document to be retranslated incrementally: the translation of its unchanged blocks,
+     * taken from the existing translation, and its changed blocks, to be translated.
+     */
+    public static final class Changes
+    {
+        private final List<String> parts;
+
+        private final List<Integer> changedPositions;
+
+        private final List<Block> changedBlocks;
+
+        private Changes(List<String> parts, List<Integer> changedPositions, List<Block> changedBlocks)
+        {
+            this.parts = parts;
+            this.changedPositions = changedPositions;
+            this.changedBlocks = changedBlocks;
+        }
+
+        /**
+         * @return the top-level blocks of the original document content which have changed, in document order
+         */
+        public List<Block> getChangedBlocks()
+        {
+            return this.changedBlocks;
+        }
+
+        /**
+         * @param translations the translation of each changed block, in wiki syntax, in the same order as the changed
+         *     blocks
+         * @return the translated content, in wiki syntax
+         */
+        public String merge(List<String> translations)
+        {
+            List<String> content = new ArrayList<>(this.parts);
+            for (int i = 0; i < this.changedPositions.size(); i++) {
+                content.set(this.changedPositions.get(i), translations.get(i));
+            }
+            return String.join(BLOCK_SEPARATOR, content);
+        }
+    }
+
+    /**
+     * An existing translation, as it was before being updated: the version of the original document it has been made
+     * from and its translated content.
+     */
+    public static final class PreviousTranslation
+    {
+        private final DocumentReference reference;
+
+        private final String sourceVersion;
+
+        private final String content;
+
+        private PreviousTranslation(DocumentReference reference, String sourceVersion, String content)
+        {
+            this.reference = reference;
+            this.sourceVersion = sourceVersion;
+            this.content = content;
+        }
+
+        /**
+         * @return the reference of the translation document
+         */
+        public DocumentReference getReference()
+        {
+            return this.reference;
+        }
+
+        /**
+         * @return the version of the original document the translation has been made from
+         */
+        public String getSourceVersion()
+        {
+            return this.sourceVersion;
+        }
+
+        /**
+         * @return the translated content, in wiki syntax
+         */
+        public String getContent()
+        {
+            return this.content;
+        }
+    }
+
+    /**
+     * Reads what is needed to retranslate incrementally from an existing translation document. This has to be done
+     * before the objects of the original document are copied to the translation document, since they replace the
+     * translation object holding the source version.
+     *
+     * @param translation the existing translation document, as loaded
+     * @return the previous translation, or null if the translation cannot be retranslated incrementally
+     */
+    public PreviousTranslation getPreviousTranslation(XWikiDocument translation)
+    {
+        if (!this.translatorConfiguration.isIncrementalTranslationEnabled() || translation.isNew()) {
+            return null;
+        }
+        BaseObject translationObj = translation.getXObject(AbstractTranslator.TRANSLATION_CLASS_REFERENCE);
+        if (translationObj == null) {
+            return null;
+        }
+        String sourceVersion = translationObj.getStringValue(AbstractTranslator.SOURCE_VERSION_PROPERTY);
+        if (StringUtils.isEmpty(sourceVersion)) {
+            return null;
+        }
+        return new PreviousTranslation(translation.getDocumentReference(), sourceVersion, translation.getContent());
+    }
+
+    /**
+     * Computes the changes of the content of an original document since the version the existing translation has been
+     * made from.
+     *
+     * @param original the original document
+     * @param previous the existing translation, as returned by {@link #getPreviousTranslation(XWikiDocument)}
+     * @return the changes of the content, or null if the content cannot be translated incrementally and has to be
+     *     fully translated
+     */
+    public Changes getChanges(XWikiDocument original, PreviousTranslation previous)
+    {
+        if (previous == null) {
+            return null;
+        }
+        try {
+            XWikiContext xcontext = this.xcontextProvider.get();
+            XWikiDocument previousOriginal =
+                xcontext.getWiki().getDocument(original, previous.getSourceVersion(), xcontext);
+            List<Block> previousBlocks = parse(previousOriginal.getContent());
+            List<Block> translatedBlocks = parse(previous.getContent());
+            if (previousBlocks.size() != translatedBlocks.size()) {
+                this.logger.debug("The translation [{}] does not match version [{}] of [{}], translating it fully",
+                    previous.getReference(), previous.getSourceVersion(), original.getDocumentReference());
+                return null;
+            }
+            return getChanges(original, previousBlocks, translatedBlocks);
+        } catch (XWikiException | MissingParserException | ParseException e) {
+            this.logger.warn("Failed to translate [{}] incrementally, translating it fully. Root cause: [{}]",
+                original.getDocumentReference(), ExceptionUtils.getRootCauseMessage(e));
+            return null;
+        }
+    }
+
+    private Changes getChanges(XWikiDocument original, List<Block> previousBlocks, List<Block> translatedBlocks)
+        throws MissingParserException, ParseException
+    {
+        // Index the blocks of the previous version by their rendering, so that moved blocks are also reused.
+        Map<String, Deque<Integer>> previousIndexes = new HashMap<>();
+        for (int i = 0; i < previousBlocks.size(); i++) {
+            previousIndexes.computeIfAbsent(toHTML(previousBlocks.get(i)), key -> new ArrayDeque<>()).add(i);
+        }
+
+        List<Block> blocks = parse(original.getContent());
+        List<String> parts = new ArrayList<>(blocks.size());
+        List<Integer> changedPositions = new ArrayList<>();
+        List<Block> changedBlocks = new ArrayList<>();
+        for (Block block : blocks) {
+            Deque<Integer> indexes = previousIndexes.get(toHTML(block));
+            if (indexes != null && !indexes.isEmpty()) {
+                parts.add(toWiki(translatedBlocks.get(indexes.poll())));
+            } else {
+                changedPositions.add(parts.size());
+                changedBlocks.add(block);
+                parts.add(null);
+            }
+        }
+
+        this.logger.info("Translating [{}] incrementally: [{}] of [{}] blocks have changed",
+            original.getDocumentReference(), changedBlocks.size(), blocks.size());
+        return new Changes(parts, changedPositions, changedBlocks);
+    }
+
+    private List<Block> parse(String content) throws MissingParserException, ParseException
+    {
+        return this.parser.parse(content, Syntax.XWIKI_2_1).getChildren();
+    }
+
+    private String toHTML(Block block)
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.annotatedHTMLRenderer.render(block, printer);
+        return AnnotatedHTMLProcessor.stripGlossaryReferences(printer.getBuffer());
+    }
+
+    private String toWiki(Block block)
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.wikiRenderer.render(block, printer);
+        return printer.toString();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.contrib.machinetranslation.MachineTranslationException;
+
+/**
+ * Remembers, for the duration of the current request, the documents loaded and the decisions taken by the translator,
+ * so that rendering a page which asks for them once per available locale does not load the same documents again and
+ * again. Values are held by the current execution context, and forgotten as soon as a translation is saved.
+ * <p>
+ * The number of values held is bounded, since long-running execution contexts (e.g. jobs) may ask for many documents.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+@Component(roles = RequestScopedCache.class)
+@Singleton
+public class RequestScopedCache
+{
+    private static final String CONTEXT_PROPERTY = "machinetranslation.requestCache";
+
+    private static final int MAX_SIZE = 256;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final float LOAD_FACTOR = 0.75F;
+
+    /**
+     * Represents a missing value, since null values cannot be distinguished from uncached ones.
+     */
+    private static final Object NULL = new Object();
+
+    @Inject
+    private Execution execution;
+
+    /**
+     * Computes a value which is not cached yet.
+     *
+     * @param <T> the type of the value
+     */
+    @FunctionalInterface
+    public interface Loader<T>
+    {
+        /**
+         * @return the value
+         * @throws MachineTranslationException in case an error occurs
+         */
+        T load() throws MachineTranslationException;
+    }
+
+    /**
+     * Returns a value from the cache of the current request, computing it if needed. Errors are not cached.
+     *
+     * @param kind the kind of value, e.g. the name of the method computing it
+     * @param key identifies the value among values of the same kind
+     * @param loader computes the value when it is not cached
+     * @param <T> the type of the value
+     * @return the value
+     * @throws MachineTranslationException in case the value has to be computed and its computation fails
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String kind, Object key, Loader<T> loader) throws MachineTranslationException
+    {
+        Map<Object, Object> values = getValues();
+        if (values == null) {
+            return loader.load();
+        }
+        Object cacheKey = Arrays.asList(kind, key);
+        Object value = values.get(cacheKey);
+        if (value == null) {
+            T loadedValue = loader.load();
+            values.put(cacheKey, loadedValue != null ? loadedValue : NULL);
+            return loadedValue;
+        }
+        return value == NULL ? null : (T) value;
+    }
+
+    /**
+     * Forgets all the values of the current request, typically after a translation has been saved.
+     */
+    public void clear()
+    {
+        Map<Object, Object> values = getValues();
+        if (values != null) {
+            values.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Object, Object> getValues()
+    {
+        ExecutionContext context = this.execution.getContext();
+        if (context == null) {
+            return null;
+        }
+        Map<Object, Object> values = (Map<Object, Object>) context.getProperty(CONTEXT_PROPERTY);
+        if (values == null) {
+            values = Collections.synchronizedMap(new LinkedHashMap<Object, Object>(INITIAL_CAPACITY, LOAD_FACTOR, true)
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest)
+                {
+                    return size() > MAX_SIZE;
+                }
+            });
+            context.setProperty(CONTEXT_PROPERTY, values);
+        }
+        return values;
+    }
+}
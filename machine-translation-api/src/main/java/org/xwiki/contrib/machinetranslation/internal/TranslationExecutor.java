@@ -0,0 +1,115 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.contrib.machinetranslation.MachineTranslationConfiguration;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.util.AbstractXWikiRunnable;
+
+/**
+ * Bounded pool of threads used to run translation tasks concurrently. Each task is executed in its own execution
+ * context, holding a copy of the XWiki context of the thread which submitted it, so that the current wiki and the
+ * current user (hence the rights checks) are the same as in the calling thread.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+@Component(roles = TranslationExecutor.class)
+@Singleton
+public class TranslationExecutor implements Initializable, Disposable
+{
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    @Inject
+    private MachineTranslationConfiguration translatorConfiguration;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    private ThreadPoolExecutor executor;
+
+    @Override
+    public void initialize()
+    {
+        int threads = Math.max(1, this.translatorConfiguration.getTranslationThreads());
+        BasicThreadFactory threadFactory =
+            new BasicThreadFactory.Builder().namingPattern("Machine translation %d").daemon(true).build();
+        this.executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return the maximum number of tasks executed concurrently
+     */
+    public int getConcurrency()
+    {
+        return this.executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Submits a task to be executed with a copy of the current XWiki context.
+     *
+     * @param task the task to execute
+     * @param <T> the type of the task result
+     * @return the future result of the task
+     */
+    public <T> Future<T> submit(Callable<T> task)
+    {
+        FutureTask<T> future = new FutureTask<>(task);
+        XWikiContext xcontext = this.xcontextProvider.get().clone();
+        this.executor.execute(new AbstractXWikiRunnable(XWikiContext.EXECUTIONCONTEXT_KEY, xcontext)
+        {
+            @Override
+            protected void runInternal()
+            {
+                future.run();
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        ExecutorService currentExecutor = this.executor;
+        if (currentExecutor != null) {
+            currentExecutor.shutdownNow();
+        }
+    }
+}
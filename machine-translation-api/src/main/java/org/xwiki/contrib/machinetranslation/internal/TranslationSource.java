@@ -0,0 +1,181 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+
+/**
+ * The contents of a given version of an original document, rendered to annotated HTML and ready to be sent to the
+ * translation service. It is computed once per document version and shared by the translations to all the target
+ * locales, possibly from several threads, hence it is immutable.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+public final class TranslationSource
+{
+    private final DocumentReference documentReference;
+
+    private final String version;
+
+    private final Locale locale;
+
+    private final String title;
+
+    private final List<Segment> segments;
+
+    /**
+     * A content to be translated: either the document content or the value of an object property. Contents larger
+     * than the chunk size are kept as several chunks cut on block boundaries, which are translated and converted back
+     * to wiki syntax one at a time.
+     */
+    public static final class Segment
+    {
+        /**
+         * The translated property, {@code null} for the document content.
+         */
+        private final EntityReference property;
+
+        private final int objectNumber;
+
+        private final List<String> chunks;
+
+        private final UntranslatableBlockFilter.Placeholders placeholders;
+
+        /**
+         * @param property the translated property, {@code null} for the document content
+         * @param objectNumber the number of the object holding the property
+         * @param chunks the content to be translated, as consecutive chunks of annotated HTML
+         */
+        public Segment(EntityReference property, int objectNumber, List<String> chunks)
+        {
+            this(property, objectNumber, chunks, UntranslatableBlockFilter.Placeholders.NONE);
+        }
+
+        /**
+         * @param property the translated property, {@code null} for the document content
+         * @param objectNumber the number of the object holding the property
+         * @param chunks the content to be translated, as consecutive chunks of annotated HTML
+         * @param placeholders the untranslatable blocks replaced by placeholders in the content
+         */
+        public Segment(EntityReference property, int objectNumber, List<String> chunks,
+            UntranslatableBlockFilter.Placeholders placeholders)
+        {
+            this.property = property;
+            this.objectNumber = objectNumber;
+            this.chunks = Collections.unmodifiableList(chunks);
+            this.placeholders = placeholders;
+        }
+
+        /**
+         * @return the translated property, {@code null} for the document content
+         */
+        public EntityReference getProperty()
+        {
+            return this.property;
+        }
+
+        /**
+         * @return the number of the object holding the property
+         */
+        public int getObjectNumber()
+        {
+            return this.objectNumber;
+        }
+
+        /**
+         * @return the content to be translated, as consecutive chunks of annotated HTML
+         */
+        public List<String> getChunks()
+        {
+            return this.chunks;
+        }
+
+        /**
+         * @return the untranslatable blocks replaced by placeholders in the content, to be restored once translated
+         */
+        public UntranslatableBlockFilter.Placeholders getPlaceholders()
+        {
+            return this.placeholders;
+        }
+    }
+
+    /**
+     * @param documentReference the reference of the original document
+     * @param version the version of the original document
+     * @param locale the locale of the original document
+     * @param title the title of the original document
+     * @param segments the contents to be translated
+     */
+    public TranslationSource(DocumentReference documentReference, String version, Locale locale, String title,
+        List<Segment> segments)
+    {
+        this.documentReference = documentReference;
+        this.version = version;
+        this.locale = locale;
+        this.title = title;
+        this.segments = Collections.unmodifiableList(segments);
+    }
+
+    /**
+     * @return the reference of the original document
+     */
+    public DocumentReference getDocumentReference()
+    {
+        return this.documentReference;
+    }
+
+    /**
+     * @return the version of the original document the contents come from
+     */
+    public String getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * @return the locale of the original document
+     */
+    public Locale getLocale()
+    {
+        return this.locale;
+    }
+
+    /**
+     * @return the title of the original document
+     */
+    public String getTitle()
+    {
+        return this.title;
+    }
+
+    /**
+     * @return the contents to be translated
+     */
+    public List<Segment> getSegments()
+    {
+        return this.segments;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.contrib.machinetranslation.MachineTranslationException;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Keeps the latest {@link TranslationSource}s, so that translating a given version of a document into several
+ * locales, in one or several calls, parses and renders its contents only once. The sources of a document are
+ * identified by its version and its date, since a version number is reused when a deleted document is created again:
+ * they are replaced when the document is saved, and removed when it is deleted.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+@Component(roles = TranslationSourceCache.class)
+@Singleton
+public class TranslationSourceCache implements Initializable, Disposable
+{
+    private static final int CACHE_SIZE = 32;
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    private Cache<Entry> cache;
+
+    /**
+     * The translation sources of a given state of a document, indexed by variant.
+     */
+    private static final class Entry
+    {
+        private final String stamp;
+
+        private final Map<String, TranslationSource> sources = new ConcurrentHashMap<>();
+
+        Entry(String stamp)
+        {
+            this.stamp = stamp;
+        }
+    }
+
+    /**
+     * Computes a translation source which is not in the cache.
+     */
+    @FunctionalInterface
+    public interface Loader
+    {
+        /**
+         * @return the translation source
+         * @throws MachineTranslationException in case an error occurs
+         */
+        TranslationSource load() throws MachineTranslationException;
+    }
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        try {
+            this.cache =
+                this.cacheManager.createNewCache(new LRUCacheConfiguration("machinetranslation.sources", CACHE_SIZE));
+        } catch (CacheException e) {
+            throw new InitializationException("Failed to create the translation source cache", e);
+        }
+    }
+
+    /**
+     * Returns the translation source of a document, computing it if needed.
+     *
+     * @param document the original document
+     * @param variant identifies the parameters the source is computed with, besides the document itself (e.g. the
+     *     translated properties)
+     * @param loader used to compute the source when it is not cached yet
+     * @return the translation source
+     * @throws MachineTranslationException in case an error occurs when computing the source
+     */
+    public TranslationSource get(XWikiDocument document, String variant, Loader loader)
+        throws MachineTranslationException
+    {
+        String key = this.serializer.serialize(document.getDocumentReferenceWithLocale());
+        Date date = document.getDate();
+        String stamp = String.format("%s@%d", document.getVersion(), date != null ? date.getTime() : 0);
+        Entry entry = this.cache.get(key);
+        if (entry == null || !entry.stamp.equals(stamp)) {
+            entry = new Entry(stamp);
+            this.cache.set(key, entry);
+        }
+        TranslationSource source = entry.sources.get(variant);
+        if (source == null) {
+            source = loader.load();
+            entry.sources.put(variant, source);
+        }
+        return source;
+    }
+
+    /**
+     * Removes the translation sources of a document.
+     *
+     * @param reference the reference of the document, with its locale
+     */
+    public void remove(DocumentReference reference)
+    {
+        this.cache.remove(this.serializer.serialize(reference));
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.cache != null) {
+            this.cache.dispose();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.machinetranslation.MachineTranslationConfiguration;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.ImageBlock;
+import org.xwiki.rendering.block.MacroBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.text.StringUtils;
+
+/**
+ * Replaces the blocks of a content which do not need to be translated (code and scripting macros, images without
+ * alternative text, etc.) with compact placeholders before the content is sent to the translation service, and
+ * restores them verbatim in the translated content. The translation service then neither has to skip them nor bills
+ * their characters.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+@Component(roles = UntranslatableBlockFilter.class)
+@Singleton
+public class UntranslatableBlockFilter
+{
+    private static final String PLACEHOLDER_MACRO = "mtplaceholder";
+
+    private static final String PLACEHOLDER_ID = "id";
+
+    private static final String PLACEHOLDER_START = "{{" + PLACEHOLDER_MACRO + " " + PLACEHOLDER_ID + "=\"";
+
+    private static final String PLACEHOLDER_END = "\"/}}";
+
+    @Inject
+    private MachineTranslationConfiguration translatorConfiguration;
+
+    @Inject
+    @Named("xwiki/2.1")
+    private BlockRenderer wikiRenderer;
+
+    @Inject
+    @Named("annotatedhtml/5.0")
+    private BlockRenderer annotatedHTMLRenderer;
+
+    /**
+     * The blocks replaced in a content, indexed by placeholder identifier.
+     */
+    public static final class Placeholders
+    {
+        /**
+         * No placeholder.
+         */
+        public static final Placeholders NONE = new Placeholders(Collections.emptyMap(), 0);
+
+        private final Map<String, String> blocks;
+
+        private final long skippedCharacters;
+
+        Placeholders(Map<String, String> blocks, long skippedCharacters)
+        {
+            this.blocks = blocks;
+            this.skippedCharacters = skippedCharacters;
+        }
+
+        /**
+         * @return the number of characters which are not sent to the translation service thanks to the placeholders
+         */
+        public long getSkippedCharacters()
+        {
+            return this.skippedCharacters;
+        }
+
+        /**
+         * Replaces the placeholders found in a translated content by the wiki syntax of the blocks they stand for.
+         *
+         * @param wikiSyntax the translated content, in wiki syntax
+         * @return the translated content with the original blocks
+         */
+        public String restore(String wikiSyntax)
+        {
+            if (this.blocks.isEmpty() || wikiSyntax.indexOf(PLACEHOLDER_START) < 0) {
+                return wikiSyntax;
+            }
+            StringBuilder output = new StringBuilder(wikiSyntax.length());
+            int position = 0;
+            int start = wikiSyntax.indexOf(PLACEHOLDER_START);
+            while (start >= 0) {
+                int idStart = start + PLACEHOLDER_START.length();
+                int end = wikiSyntax.indexOf(PLACEHOLDER_END, idStart);
+                String block = end < 0 ? null : this.blocks.get(wikiSyntax.substring(idStart, end));
+                if (block != null) {
+                    output.append(wikiSyntax, position, start).append(block);
+                    position = end + PLACEHOLDER_END.length();
+                }
+                start = wikiSyntax.indexOf(PLACEHOLDER_START, idStart);
+            }
+            output.append(wikiSyntax, position, wikiSyntax.length());
+            return output.toString();
+        }
+    }
+
+    /**
+     * Replaces the untranslatable blocks of a parsed content with placeholders.
+     *
+     * @param xdom the parsed content, modified in place
+     * @return the replaced blocks, to be restored in the translated content
+     */
+    public Placeholders replace(XDOM xdom)
+    {
+        Set<String> macros = new HashSet<>();
+        for (String macro : StringUtils.split(this.translatorConfiguration.getUntranslatableMacros(), ',')) {
+            macros.add(macro.trim());
+        }
+        Map<String, String> blocks = new HashMap<>();
+        long skippedCharacters = replace(xdom, macros, blocks);
+        return blocks.isEmpty() ? Placeholders.NONE : new Placeholders(blocks, Math.max(0, skippedCharacters));
+    }
+
+    private long replace(Block parent, Set<String> macros, Map<String, String> blocks)
+    {
+        long skippedCharacters = 0;
+        // Copy the children since they are replaced while iterating.
+        for (Block block : new ArrayList<>(parent.getChildren())) {
+            if (isUntranslatable(block, macros)) {
+                String id = String.valueOf(blocks.size());
+                boolean inline = !(block instanceof MacroBlock) || ((MacroBlock) block).isInline();
+                MacroBlock placeholder =
+                    new MacroBlock(PLACEHOLDER_MACRO, Collections.singletonMap(PLACEHOLDER_ID, id), inline);
+                blocks.put(id, render(this.wikiRenderer, block));
+                skippedCharacters += render(this.annotatedHTMLRenderer, block).length()
+                    - render(this.annotatedHTMLRenderer, placeholder).length();
+                parent.replaceChild(placeholder, block);
+            } else {
+                skippedCharacters += replace(block, macros, blocks);
+            }
+        }
+        return skippedCharacters;
+    }
+
+    private static boolean isUntranslatable(Block block, Set<String> macros)
+    {
+        if (block instanceof MacroBlock) {
+            return macros.contains(((MacroBlock) block).getId());
+        }
+        // Images are only translated for their alternative text and title.
+        return block instanceof ImageBlock && block.getParameter("alt") == null && block.getParameter("title") == null;
+    }
+
+    private static String render(BlockRenderer renderer, Block block)
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        renderer.render(block, printer);
+        return printer.toString();
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.cache;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.contrib.machinetranslation.MachineTranslation;
+import org.xwiki.contrib.machinetranslation.MachineTranslationException;
+import org.xwiki.contrib.machinetranslation.internal.index.TranslationIndexListener;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+
+/**
+ * Caches the translations of each original document, before filtering them according to the rights of the current
+ * user. When an original document or one of its translations is modified, the cache is invalidated on all the cluster
+ * members by {@link TranslationIndexListener}, once the translation index is up to date.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+@Component(roles = TranslationSetCache.class)
+@Singleton
+public class TranslationSetCache implements Initializable, Disposable
+{
+    private static final int CACHE_SIZE = 1000;
+
+    private static final String SAME_NAME_PREFIX = "samename:";
+
+    private static final String DISTINCT_PREFIX = "distinct:";
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    @Named("default")
+    private EntityReferenceSerializer<String> serializer;
+
+    private Cache<List<MachineTranslation>> cache;
+
+    /**
+     * Incremented by each invalidation, so that translations loaded while an invalidation happens are not cached.
+     */
+    private long generation;
+
+    /**
+     * Computes the translations of a document which are not cached.
+     */
+    @FunctionalInterface
+    public interface Loader
+    {
+        /**
+         * @return the translations of the document, whatever the rights of the current user
+         * @throws MachineTranslationException in case an error occurs
+         */
+        List<MachineTranslation> load() throws MachineTranslationException;
+    }
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        try {
+            this.cache = this.cacheManager
+                .createNewCache(new LRUCacheConfiguration("machinetranslation.translations", CACHE_SIZE));
+        } catch (CacheException e) {
+            throw new InitializationException("Failed to create the translation set cache", e);
+        }
+    }
+
+    /**
+     * Returns the translations of a document, loading them if needed.
+     *
+     * @param original the original document
+     * @param sameName true if the translations are located at the same place as the original document
+     * @param loader used to load the translations when they are not cached
+     * @return the translations of the document, whatever the rights of the current user
+     * @throws MachineTranslationException in case the translations need to be loaded and loading them fails
+     */
+    public List<MachineTranslation> get(DocumentReference original, boolean sameName, Loader loader)
+        throws MachineTranslationException
+    {
+        String key = (sameName ? SAME_NAME_PREFIX : DISTINCT_PREFIX) + this.serializer.serialize(original);
+        List<MachineTranslation> translations = this.cache.get(key);
+        if (translations == null) {
+            long loadedGeneration = getGeneration();
+            translations = Collections.unmodifiableList(loader.load());
+            synchronized (this) {
+                if (loadedGeneration == this.generation) {
+                    this.cache.set(key, translations);
+                }
+            }
+        }
+        return translations;
+    }
+
+    /**
+     * Forgets the translations of a document on the current cluster member.
+     *
+     * @param original the original document
+     */
+    public synchronized void invalidate(DocumentReference original)
+    {
+        this.generation++;
+        String serializedReference = this.serializer.serialize(original);
+        this.cache.remove(SAME_NAME_PREFIX + serializedReference);
+        this.cache.remove(DISTINCT_PREFIX + serializedReference);
+    }
+
+    /**
+     * Forgets all the translations on the current cluster member, typically because a wiki has been deleted.
+     */
+    public synchronized void invalidateAll()
+    {
+        this.generation++;
+        this.cache.removeAll();
+    }
+
+    private synchronized long getGeneration()
+    {
+        return this.generation;
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.cache != null) {
+            this.cache.dispose();
+        }
+    }
+}
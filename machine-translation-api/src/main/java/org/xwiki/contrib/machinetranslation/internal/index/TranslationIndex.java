@@ -0,0 +1,250 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.machinetranslation.MachineTranslationException;
+import org.xwiki.contrib.machinetranslation.internal.AbstractTranslator;
+import org.xwiki.localization.LocaleUtils;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+/**
+ * Reverse index from original pages to their translations, for the translations located in distinct pages. The index
+ * of a wiki is loaded from the database on first use, then kept up to date by {@link TranslationIndexListener}, so
+ * that retrieving the translations of a page does not require querying the database.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+@Component(roles = TranslationIndex.class)
+@Singleton
+public class TranslationIndex
+{
+    private static final String CLASS_NAME = "className";
+
+    private static final String PROPERTY = "prop";
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    @Named("current")
+    private DocumentReferenceResolver<String> referenceResolver;
+
+    @Inject
+    private Logger logger;
+
+    private final Map<String, WikiIndex> wikis = new ConcurrentHashMap<>();
+
+    /**
+     * The translations of the original pages of a wiki.
+     */
+    private static final class WikiIndex
+    {
+        private final Map<DocumentReference, Map<DocumentReference, TranslationIndexEntry>> translations =
+            new HashMap<>();
+
+        private final Map<DocumentReference, DocumentReference> originals = new HashMap<>();
+
+        private boolean loaded;
+
+        void put(DocumentReference original, TranslationIndexEntry entry)
+        {
+            remove(entry.getReference());
+            this.translations.computeIfAbsent(original, key -> new LinkedHashMap<>()).put(entry.getReference(),
+                entry);
+            this.originals.put(entry.getReference(), original);
+        }
+
+        void remove(DocumentReference translation)
+        {
+            DocumentReference original = this.originals.remove(translation);
+            if (original != null) {
+                Map<DocumentReference, TranslationIndexEntry> entries = this.translations.get(original);
+                entries.remove(translation);
+                if (entries.isEmpty()) {
+                    this.translations.remove(original);
+                }
+            }
+        }
+
+        void clear()
+        {
+            this.translations.clear();
+            this.originals.clear();
+        }
+    }
+
+    /**
+     * Returns the translations of a given page.
+     *
+     * @param original the reference of the original page
+     * @return the translations of the given page, whatever the rights of the current user
+     * @throws MachineTranslationException in case the index of the wiki cannot be loaded
+     */
+    public List<TranslationIndexEntry> getTranslations(DocumentReference original) throws MachineTranslationException
+    {
+        WikiIndex index = getWikiIndex(original.getWikiReference());
+        synchronized (index) {
+            Map<DocumentReference, TranslationIndexEntry> entries = index.translations.get(original);
+            return entries != null ? new ArrayList<>(entries.values()) : Collections.emptyList();
+        }
+    }
+
+    /**
+     * Updates the index after a document has been saved.
+     *
+     * @param document the saved document
+     */
+    public void update(XWikiDocument document)
+    {
+        WikiIndex index = this.wikis.get(document.getDocumentReference().getWikiReference().getName());
+        if (index == null) {
+            // The index of the wiki has not been loaded yet, it will be up to date when loaded.
+            return;
+        }
+        synchronized (index) {
+            BaseObject translationObj = document.getXObject(AbstractTranslator.TRANSLATION_CLASS_REFERENCE);
+            String originalPage =
+                translationObj != null ? translationObj.getStringValue(AbstractTranslator.ORIGINAL_PAGE_PROPERTY) : "";
+            if (originalPage.isEmpty()) {
+                index.remove(document.getDocumentReference());
+            } else {
+                Date date = translationObj.getDateValue(AbstractTranslator.TRANSLATION_DATE_PROPERTY);
+                index.put(this.referenceResolver.resolve(originalPage, document.getDocumentReference()),
+                    new TranslationIndexEntry(document.getDocumentReference(), document.getDefaultLocale(),
+                        document.getTitle(), date));
+            }
+        }
+    }
+
+    /**
+     * Updates the index after a document has been deleted.
+     *
+     * @param reference the reference of the deleted document
+     */
+    public void remove(DocumentReference reference)
+    {
+        WikiIndex index = this.wikis.get(reference.getWikiReference().getName());
+        if (index != null) {
+            synchronized (index) {
+                index.remove(reference);
+            }
+        }
+    }
+
+    /**
+     * Forgets the index of a wiki, typically because the wiki has been deleted.
+     *
+     * @param wikiId the wiki identifier
+     */
+    public void invalidate(String wikiId)
+    {
+        this.wikis.remove(wikiId);
+    }
+
+    /**
+     * Reloads the index of a wiki from the database.
+     *
+     * @param wiki the wiki whose index should be rebuilt
+     * @return the number of translations found
+     * @throws MachineTranslationException in case the index cannot be loaded
+     */
+    public int rebuild(WikiReference wiki) throws MachineTranslationException
+    {
+        WikiIndex index = this.wikis.computeIfAbsent(wiki.getName(), key -> new WikiIndex());
+        synchronized (index) {
+            load(wiki, index);
+            return index.originals.size();
+        }
+    }
+
+    private WikiIndex getWikiIndex(WikiReference wiki) throws MachineTranslationException
+    {
+        WikiIndex index = this.wikis.computeIfAbsent(wiki.getName(), key -> new WikiIndex());
+        synchronized (index) {
+            if (!index.loaded) {
+                load(wiki, index);
+            }
+        }
+        return index;
+    }
+
+    private void load(WikiReference wiki, WikiIndex index) throws MachineTranslationException
+    {
+        try {
+            long start = System.currentTimeMillis();
+            Map<String, Date> dates = new HashMap<>();
+            Query datesQuery = createQuery(wiki,
+                "select doc.fullName, prop.value from XWikiDocument as doc, BaseObject as obj, DateProperty as prop",
+                AbstractTranslator.TRANSLATION_DATE_PROPERTY);
+            for (Object[] data : datesQuery.<Object[]>execute()) {
+                dates.put((String) data[0], (Date) data[1]);
+            }
+            index.clear();
+            Query translationsQuery = createQuery(wiki, "select doc.fullName, doc.title, doc.defaultLanguage, "
+                + "prop.value from XWikiDocument as doc, BaseObject as obj, StringProperty as prop",
+                AbstractTranslator.ORIGINAL_PAGE_PROPERTY);
+            for (Object[] data : translationsQuery.<Object[]>execute()) {
+                DocumentReference translation = this.referenceResolver.resolve((String) data[0], wiki);
+                DocumentReference original = this.referenceResolver.resolve((String) data[3], translation);
+                index.put(original, new TranslationIndexEntry(translation, LocaleUtils.toLocale((String) data[2]),
+                    (String) data[1], dates.get(data[0])));
+            }
+            index.loaded = true;
+            this.logger.debug("Loaded [{}] translations of wiki [{}] in [{}] ms", index.originals.size(),
+                wiki.getName(), System.currentTimeMillis() - start);
+        } catch (QueryException e) {
+            throw new MachineTranslationException(String.format("Failed to load the translations of [%s]", wiki), e);
+        }
+    }
+
+    private Query createQuery(WikiReference wiki, String select, String property) throws QueryException
+    {
+        String hql = select + " where obj.name = doc.fullName and obj.className = :className "
+            + "and prop.id.id = obj.id and prop.id.name = :prop and doc.translation = 0";
+        return this.queryManager.createQuery(hql, Query.HQL)
+            .setWiki(wiki.getName())
+            .bindValue(CLASS_NAME, AbstractTranslator.TRANSLATION_CLASS)
+            .bindValue(PROPERTY, property);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.index;
+
+import java.util.Date;
+import java.util.Locale;
+
+import org.xwiki.model.reference.DocumentReference;
+
+/**
+ * A translation page, as known by the {@link TranslationIndex}.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+public final class TranslationIndexEntry
+{
+    private final DocumentReference reference;
+
+    private final Locale locale;
+
+    private final String title;
+
+    private final Date date;
+
+    /**
+     * @param reference the reference of the translation page
+     * @param locale the locale of the translation
+     * @param title the title of the translation page
+     * @param date the date of the automated translation, null if unknown
+     */
+    public TranslationIndexEntry(DocumentReference reference, Locale locale, String title, Date date)
+    {
+        this.reference = reference;
+        this.locale = locale;
+        this.title = title;
+        this.date = date;
+    }
+
+    /**
+     * @return the reference of the translation page
+     */
+    public DocumentReference getReference()
+    {
+        return this.reference;
+    }
+
+    /**
+     * @return the locale of the translation
+     */
+    public Locale getLocale()
+    {
+        return this.locale;
+    }
+
+    /**
+     * @return the title of the translation page
+     */
+    public String getTitle()
+    {
+        return this.title;
+    }
+
+    /**
+     * @return the date of the automated translation, null if unknown
+     */
+    public Date getDate()
+    {
+        return this.date;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.index;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.event.DocumentCreatedEvent;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiDeletedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.machinetranslation.internal.AbstractTranslator;
+import org.xwiki.contrib.machinetranslation.internal.cache.TranslationSetCache;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+import org.xwiki.text.StringUtils;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+/**
+ * Keeps the {@link TranslationIndex} up to date when translation pages are saved or deleted, then invalidates the
+ * {@link TranslationSetCache} entries which may have changed, so that they are never reloaded from an outdated index.
+ * Document events are also received from the other cluster members, so the index and the cache of each member stay up
+ * to date.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+@Component
+@Named(TranslationIndexListener.NAME)
+@Singleton
+public class TranslationIndexListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "machinetranslation.index";
+
+    @Inject
+    private TranslationIndex translationIndex;
+
+    @Inject
+    private TranslationSetCache translationSetCache;
+
+    @Inject
+    @Named("current")
+    private DocumentReferenceResolver<String> referenceResolver;
+
+    /**
+     * Default constructor.
+     */
+    public TranslationIndexListener()
+    {
+        super(NAME, Arrays.asList(new DocumentCreatedEvent(), new DocumentUpdatedEvent(), new DocumentDeletedEvent(),
+            new WikiDeletedEvent()));
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (event instanceof WikiDeletedEvent) {
+            this.translationIndex.invalidate(((WikiDeletedEvent) event).getWikiId());
+            this.translationSetCache.invalidateAll();
+            return;
+        }
+        XWikiDocument document = (XWikiDocument) source;
+        // Objects are held by the document in its default locale.
+        if (Locale.ROOT.equals(document.getLocale())) {
+            if (event instanceof DocumentDeletedEvent) {
+                this.translationIndex.remove(document.getDocumentReference());
+            } else {
+                this.translationIndex.update(document);
+            }
+        }
+        for (DocumentReference original : getOriginals(document)) {
+            this.translationSetCache.invalidate(original);
+        }
+    }
+
+    /**
+     * Returns the documents whose translations may have changed: the document itself, in case it is an original
+     * document, and the original documents it was and is a translation of.
+     */
+    private Set<DocumentReference> getOriginals(XWikiDocument document)
+    {
+        Set<DocumentReference> originals = new LinkedHashSet<>();
+        // The reference does not hold the locale, so that saving a translation in the same location invalidates the
+        // translations of the original document.
+        originals.add(document.getDocumentReference());
+        addOriginal(document, originals);
+        if (document.getOriginalDocument() != null) {
+            addOriginal(document.getOriginalDocument(), originals);
+        }
+        return originals;
+    }
+
+    private void addOriginal(XWikiDocument document, Set<DocumentReference> originals)
+    {
+        BaseObject translationObj = document.getXObject(AbstractTranslator.TRANSLATION_CLASS_REFERENCE);
+        if (translationObj != null) {
+            String originalPage = translationObj.getStringValue(AbstractTranslator.ORIGINAL_PAGE_PROPERTY);
+            if (StringUtils.isNotEmpty(originalPage)) {
+                originals.add(this.referenceResolver.resolve(originalPage, document.getDocumentReference()));
+            }
+        }
+    }
+}
@@ -0,0 +1,460 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.job;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.InstantiationStrategy;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.contrib.machinetranslation.MachineTranslationConfiguration;
+import org.xwiki.contrib.machinetranslation.MachineTranslationException;
+import org.xwiki.contrib.machinetranslation.Translator;
+import org.xwiki.contrib.machinetranslation.TranslatorManager;
+import org.xwiki.contrib.machinetranslation.internal.AbstractTranslator;
+import org.xwiki.contrib.machinetranslation.internal.metrics.TranslationTrace;
+import org.xwiki.contrib.machinetranslation.internal.metrics.TranslationTracer;
+import org.xwiki.contrib.machinetranslation.job.BulkTranslationJobStatus;
+import org.xwiki.contrib.machinetranslation.job.BulkTranslationRequest;
+import org.xwiki.contrib.machinetranslation.model.TranslationEstimate;
+import org.xwiki.contrib.machinetranslation.model.TranslationResult;
+import org.xwiki.environment.Environment;
+import org.xwiki.job.AbstractJob;
+import org.xwiki.job.GroupedJob;
+import org.xwiki.job.JobGroupPath;
+import org.xwiki.job.Request;
+import org.xwiki.job.event.status.JobStatus;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.util.AbstractXWikiRunnable;
+
+/**
+ * Translates all the translatable documents of a wiki or of a space into a set of locales. Documents are translated
+ * concurrently by a pool of workers, each worker translating a document into all the requested locales. The documents
+ * which have been translated are recorded in a checkpoint file, so that a job interrupted by a restart can be resumed
+ * where it stopped.
+ * <p>
+ * The job starts whatever the remaining quota of the translation service. Documents are estimated and translated batch
+ * by batch, from the cheapest to the most expensive one, each only once the characters it needs are available, so
+ * that the quota is never exhausted in the middle of a document. The documents which do not fit in the quota are
+ * deferred, to be translated when the job is resumed once the quota has been renewed.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+@Component
+@Named(BulkTranslationJob.JOBTYPE)
+@InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
+public class BulkTranslationJob extends AbstractJob<BulkTranslationRequest, BulkTranslationJobStatus>
+    implements GroupedJob
+{
+    /**
+     * The id of the job type.
+     */
+    public static final String JOBTYPE = "machinetranslation.bulk";
+
+    private static final JobGroupPath GROUP_PATH = new JobGroupPath(BulkTranslationRequest.JOB_ID_PREFIX);
+
+    /**
+     * Number of documents estimated, then translated, at once.
+     */
+    private static final int BATCH_SIZE = 100;
+
+    @Inject
+    private TranslatorManager translatorManager;
+
+    @Inject
+    private MachineTranslationConfiguration translatorConfiguration;
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    @Named("current")
+    private DocumentReferenceResolver<String> documentReferenceResolver;
+
+    @Inject
+    @Named("local")
+    private EntityReferenceSerializer<String> localSerializer;
+
+    @Inject
+    @Named("default")
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    private TranslationTracer tracer;
+
+    private Path checkpointFile;
+
+    /**
+     * The traces of the translations performed by the workers, logged from the job thread.
+     */
+    private final Map<DocumentReference, List<TranslationTrace>> traces = new ConcurrentHashMap<>();
+
+    @Override
+    public String getType()
+    {
+        return JOBTYPE;
+    }
+
+    @Override
+    public JobGroupPath getGroupPath()
+    {
+        // Bulk translations are run one at a time, not to exceed the translation service rate limits.
+        return GROUP_PATH;
+    }
+
+    @Override
+    protected BulkTranslationRequest castRequest(Request request)
+    {
+        return request instanceof BulkTranslationRequest ? (BulkTranslationRequest) request
+            : new BulkTranslationRequest(request);
+    }
+
+    @Override
+    protected BulkTranslationJobStatus createNewStatus(BulkTranslationRequest request)
+    {
+        JobStatus parentJobStatus =
+            this.jobContext.getCurrentJob() != null ? this.jobContext.getCurrentJob().getStatus() : null;
+        return new BulkTranslationJobStatus(JOBTYPE, request, parentJobStatus, this.observationManager,
+            this.loggerManager);
+    }
+
+    @Override
+    protected void runInternal() throws Exception
+    {
+        Translator translator = this.translatorManager.getTranslator();
+        if (translator == null) {
+            throw new MachineTranslationException("No translator is configured");
+        }
+        List<Locale> locales = this.request.getLocales();
+        this.checkpointFile = getCheckpointFile();
+        Set<String> done = this.request.isResume() ? readCheckpoint() : Collections.emptySet();
+
+        List<DocumentReference> documents = new ArrayList<>();
+        for (DocumentReference document : getDocuments()) {
+            if (done.contains(this.serializer.serialize(document))) {
+                this.status.addSkippedDocument();
+            } else if (translator.isTranslatable(document)) {
+                documents.add(document);
+            }
+        }
+        // The job starts whatever the quota: the documents which do not fit in it are deferred until it is renewed.
+        TranslationQuota quota = new TranslationQuota(translator);
+        this.logger.info("Translating [{}] documents of [{}] into [{}] ([{}] already translated)", documents.size(),
+            this.request.getRoot(), locales, this.status.getSkippedDocuments());
+
+        int workers = this.request.getWorkers() > 0 ? this.request.getWorkers()
+            : Math.max(1, this.translatorConfiguration.getTranslationThreads());
+        ExecutorService executor = Executors.newFixedThreadPool(workers,
+            new BasicThreadFactory.Builder().namingPattern("Machine translation bulk %d").daemon(true).build());
+        this.progressManager.pushLevelProgress(documents.size(), this);
+        try {
+            for (int start = 0; start < documents.size() && !this.status.isCanceled(); start += BATCH_SIZE) {
+                int end = Math.min(documents.size(), start + BATCH_SIZE);
+                translateBatch(translator, documents.subList(start, end), locales, quota, executor);
+            }
+        } finally {
+            this.progressManager.popLevelProgress(this);
+            executor.shutdownNow();
+        }
+
+        logSummary();
+        boolean complete = this.status.getFailedDocuments() == 0 && this.status.getDeferredDocuments() == 0;
+        if (!this.status.isCanceled() && complete) {
+            Files.deleteIfExists(this.checkpointFile);
+        }
+    }
+
+    /**
+     * Estimates and translates a batch of documents, the cheapest first so that as many as possible are translated if
+     * the quota runs out. When it has run out before the batch starts, the documents are deferred without being
+     * estimated.
+     */
+    private void translateBatch(Translator translator, List<DocumentReference> batch, List<Locale> locales,
+        TranslationQuota quota, ExecutorService executor) throws InterruptedException, MachineTranslationException
+    {
+        quota.refresh();
+        if (quota.isExhausted()) {
+            for (int i = 0; i < batch.size(); i++) {
+                this.progressManager.startStep(this);
+                this.status.addDeferredDocument();
+                this.progressManager.endStep(this);
+            }
+            return;
+        }
+
+        Map<DocumentReference, TranslationEstimate> estimates = estimate(translator, batch, locales);
+        List<DocumentReference> documents = new ArrayList<>(estimates.keySet());
+        documents.sort(Comparator.comparingLong(document -> estimates.get(document).getCharacters()));
+        // The documents which could not be estimated have already been reported as failed.
+        for (int i = documents.size(); i < batch.size(); i++) {
+            this.progressManager.startStep(this);
+            this.progressManager.endStep(this);
+        }
+
+        List<Future<List<TranslationResult>>> futures = new ArrayList<>(documents.size());
+        for (DocumentReference document : documents) {
+            TranslationEstimate estimate = estimates.get(document);
+            futures.add(submit(executor, () -> translate(translator, document, locales, estimate, quota)));
+        }
+        // Progress is reported from the job thread, in the order the documents have been submitted.
+        for (int i = 0; i < futures.size(); i++) {
+            this.progressManager.startStep(this);
+            if (this.status.isCanceled()) {
+                this.progressManager.endStep(this);
+                break;
+            }
+            waitFor(futures.get(i), documents.get(i));
+            this.progressManager.endStep(this);
+        }
+    }
+
+    /**
+     * Estimates the characters needed to translate each document. The documents which cannot be prepared for
+     * translation are reported as failed.
+     */
+    private Map<DocumentReference, TranslationEstimate> estimate(Translator translator,
+        List<DocumentReference> documents, List<Locale> locales)
+    {
+        Locale[] toLocales = locales.toArray(new Locale[0]);
+        Map<DocumentReference, TranslationEstimate> estimates = new LinkedHashMap<>();
+        long characters = 0;
+        for (DocumentReference document : documents) {
+            try {
+                TranslationEstimate estimate = translator.estimate(document, toLocales);
+                estimates.put(document, estimate);
+                characters += estimate.getCharacters();
+            } catch (MachineTranslationException e) {
+                this.status.addFailedDocument();
+                this.logger.error("Failed to prepare [{}] for translation. Root cause: [{}]", document,
+                    ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+        this.status.addEstimatedCharacters(characters);
+        return estimates;
+    }
+
+    /**
+     * Translates a document into all the requested locales. Executed by the workers.
+     */
+    private List<TranslationResult> translate(Translator translator, DocumentReference document,
+        List<Locale> locales, TranslationEstimate estimate, TranslationQuota quota) throws MachineTranslationException
+    {
+        long characters = estimate.getCharacters();
+        if (this.status.isCanceled()) {
+            return Collections.emptyList();
+        }
+        if (!quota.reserve(characters)) {
+            // Left to be translated when the job is resumed, once the quota has been renewed.
+            this.status.addDeferredDocument();
+            return Collections.emptyList();
+        }
+        List<TranslationResult> results;
+        try {
+            // The document is prepared once for all the locales.
+            results = translator.translateToLocales(document, locales.toArray(new Locale[0]));
+        } finally {
+            addTraces(document);
+        }
+        if (results.size() == locales.size() && results.stream().allMatch(TranslationResult::isSuccess)) {
+            this.status.addTranslatedDocument(characters);
+            writeCheckpoint(document);
+        } else {
+            this.status.addFailedDocument();
+        }
+        return results;
+    }
+
+    private void addTraces(DocumentReference document)
+    {
+        List<TranslationTrace> finished = this.tracer.takeFinishedTraces();
+        for (TranslationTrace trace : finished) {
+            this.status.addPhaseTimes(trace.getPhases());
+        }
+        if (!finished.isEmpty()) {
+            this.traces.computeIfAbsent(document, key -> new ArrayList<>()).addAll(finished);
+        }
+    }
+
+    private <T> Future<T> submit(ExecutorService executor, Callable<T> task)
+    {
+        FutureTask<T> future = new FutureTask<>(task);
+        XWikiContext xcontext = this.xcontextProvider.get().clone();
+        executor.execute(new AbstractXWikiRunnable(XWikiContext.EXECUTIONCONTEXT_KEY, xcontext)
+        {
+            @Override
+            protected void runInternal()
+            {
+                future.run();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Waits for the translation of a document and logs its errors and the time spent in each translation phase from
+     * the job thread, so that they are part of the job log.
+     */
+    private void waitFor(Future<List<TranslationResult>> future, DocumentReference document)
+        throws InterruptedException
+    {
+        try {
+            for (TranslationResult result : future.get()) {
+                if (!result.isSuccess()) {
+                    this.logger.error("Failed to translate [{}] to [{}]. Root cause: [{}]", document,
+                        result.getLocale(), ExceptionUtils.getRootCauseMessage(result.getError()));
+                }
+            }
+        } catch (ExecutionException e) {
+            this.status.addFailedDocument();
+            this.logger.error("Failed to translate [{}]. Root cause: [{}]", document,
+                ExceptionUtils.getRootCauseMessage(e.getCause()));
+        } finally {
+            logTraces(document);
+        }
+    }
+
+    private void logTraces(DocumentReference document)
+    {
+        List<TranslationTrace> documentTraces = this.traces.remove(document);
+        if (documentTraces == null) {
+            return;
+        }
+        long threshold = this.translatorConfiguration.getSlowTranslationThreshold();
+        for (TranslationTrace trace : documentTraces) {
+            if (threshold > 0 && trace.getTotal() >= threshold) {
+                this.logger.warn("Slow translation of {}", trace);
+            } else {
+                this.logger.debug("Translation of {}", trace);
+            }
+        }
+    }
+
+    private List<DocumentReference> getDocuments() throws QueryException
+    {
+        EntityReference root = this.request.getRoot();
+        EntityReference space = root.extractReference(EntityType.SPACE);
+        StringBuilder statement = new StringBuilder("select distinct doc.fullName from XWikiDocument doc "
+            + "where doc.translation = 0 and not exists (select obj.id from BaseObject obj "
+            + "where obj.name = doc.fullName and obj.className = :className)");
+        if (space != null) {
+            statement.append(" and (doc.space = :space or doc.space like :spacePrefix escape '!')");
+        }
+        statement.append(" order by doc.fullName");
+        Query query = this.queryManager.createQuery(statement.toString(), Query.HQL)
+            .bindValue("className", AbstractTranslator.TRANSLATION_CLASS)
+            .setWiki(root.extractReference(EntityType.WIKI).getName());
+        if (space != null) {
+            String localSpace = this.localSerializer.serialize(space);
+            query.bindValue("space", localSpace);
+            query.bindValue("spacePrefix", localSpace.replaceAll("([%_!])", "!$1") + ".%");
+        }
+        List<DocumentReference> documents = new ArrayList<>();
+        for (Object fullName : query.execute()) {
+            documents.add(this.documentReferenceResolver.resolve((String) fullName, root));
+        }
+        return documents;
+    }
+
+    private Path getCheckpointFile()
+    {
+        // One checkpoint per root and set of locales.
+        List<Locale> locales = new ArrayList<>(this.request.getLocales());
+        locales.sort((a, b) -> a.toString().compareTo(b.toString()));
+        String key = DigestUtils.sha256Hex(this.serializer.serialize(this.request.getRoot()) + locales);
+        return new File(this.environment.getPermanentDirectory(), "machinetranslation/bulk/" + key + ".checkpoint")
+            .toPath();
+    }
+
+    private Set<String> readCheckpoint() throws IOException
+    {
+        if (!Files.isRegularFile(this.checkpointFile)) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(Files.readAllLines(this.checkpointFile, StandardCharsets.UTF_8));
+    }
+
+    private synchronized void writeCheckpoint(DocumentReference document)
+    {
+        try {
+            Files.createDirectories(this.checkpointFile.getParent());
+            Files.write(this.checkpointFile,
+                Collections.singletonList(this.serializer.serialize(document)), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            this.logger.warn("Failed to write bulk translation checkpoint [{}]: [{}]", this.checkpointFile,
+                e.getMessage());
+        }
+    }
+
+    private void logSummary()
+    {
+        this.logger.info("Translated [{}] documents ([{}] failed, [{}] skipped, [{}] deferred until the quota is "
+            + "renewed) and [{}] characters in [{}] ms: [{}] documents per minute, [{}] characters per second",
+            this.status.getTranslatedDocuments(), this.status.getFailedDocuments(), this.status.getSkippedDocuments(),
+            this.status.getDeferredDocuments(), this.status.getCharacters(),
+            this.status.getElapsedTime(), String.format("%.1f", this.status.getDocumentsPerMinute()),
+            String.format("%.0f", this.status.getCharactersPerSecond()));
+        this.logger.info("Time spent in each translation phase, in milliseconds: [{}]", this.status.getPhaseTimes());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.job;
+
+import org.xwiki.contrib.machinetranslation.MachineTranslationException;
+import org.xwiki.contrib.machinetranslation.Translator;
+import org.xwiki.contrib.machinetranslation.Usage;
+
+/**
+ * Shares the characters remaining in the translation service quota between the workers of a bulk translation, so
+ * that a document is only translated when the characters it needs are available.
+ * <p>
+ * The quota is checked batch by batch: {@link #refresh()} reads the usage of the translator when a batch starts, then
+ * the characters reserved by the documents of the batch are added to it. Since the usage is also updated with the
+ * characters sent, the characters of a document are counted once, by its reservation or by the usage, whichever is
+ * the highest, until the batch completes.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+public class TranslationQuota
+{
+    private final Translator translator;
+
+    /**
+     * The characters counted in the usage when the current batch started.
+     */
+    private long counted;
+
+    private long reserved;
+
+    private boolean exhausted;
+
+    /**
+     * @param translator the translator whose usage is checked
+     */
+    public TranslationQuota(Translator translator)
+    {
+        this.translator = translator;
+    }
+
+    /**
+     * Starts a new batch: forgets the reservations of the previous one, whose characters are now counted in the usage,
+     * and checks the quota against the current usage, which may have been renewed meanwhile.
+     *
+     * @throws MachineTranslationException in case the usage cannot be retrieved
+     */
+    public synchronized void refresh() throws MachineTranslationException
+    {
+        Usage usage = this.translator.getUsage();
+        this.counted = usage != null ? usage.getCount() : 0;
+        this.reserved = 0;
+        this.exhausted = getRemaining() == 0;
+    }
+
+    /**
+     * @return the number of characters remaining in the quota, or {@link Long#MAX_VALUE} if it is unknown or
+     *     unlimited
+     * @throws MachineTranslationException in case the usage cannot be retrieved
+     */
+    public synchronized long getRemaining() throws MachineTranslationException
+    {
+        Usage usage = this.translator.getUsage();
+        if (usage == null || usage.getLimit() <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, usage.getLimit() - Math.max(usage.getCount(), this.counted + this.reserved));
+    }
+
+    /**
+     * Reserves the characters needed to translate a document, until the batch completes. Once a reservation has
+     * failed, all the following ones of the batch fail too, so that documents are not translated out of order.
+     *
+     * @param characters the number of characters needed
+     * @return true if the characters have been reserved, false if the quota would be exceeded
+     * @throws MachineTranslationException in case the usage cannot be retrieved
+     */
+    public synchronized boolean reserve(long characters) throws MachineTranslationException
+    {
+        if (!this.exhausted) {
+            long remaining = getRemaining();
+            if (remaining == Long.MAX_VALUE || characters <= remaining) {
+                this.reserved += characters;
+                return true;
+            }
+            this.exhausted = true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the quota has run out during the current batch, in which case all the following reservations of
+     *     the batch fail
+     */
+    public synchronized boolean isExhausted()
+    {
+        return this.exhausted;
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.memory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.contrib.machinetranslation.MachineTranslationConfiguration;
+import org.xwiki.environment.Environment;
+
+/**
+ * Remembers the translations returned by the translation services, so that a content which has already been
+ * translated is not sent again. Translations are identified by a hash of the exact source content, the translator, the
+ * source and target locales, the HTML flag and the version of the glossary used.
+ * <p>
+ * Translations are stored on disk, in plain text in the permanent directory, one file per translation, so that they
+ * survive restarts, regardless of the rights on the translated pages. The entries which have not been written or read
+ * from disk for longer than the configured maximum age are deleted daily. The most recently used translations are also
+ * kept in memory.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+@Component(roles = TranslationMemory.class)
+@Singleton
+public class TranslationMemory implements Initializable, Disposable
+{
+    private static final int HOT_TIER_SIZE = 10000;
+
+    private static final String SEPARATOR = "\u0000";
+
+    /**
+     * Number of characters of the hash used to name the sub-directories, to keep directories reasonably small.
+     */
+    private static final int SHARD_LENGTH = 2;
+
+    private static final long CLEANUP_INTERVAL_HOURS = 24L;
+
+    @Inject
+    private MachineTranslationConfiguration translatorConfiguration;
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    private Logger logger;
+
+    private Cache<String> hotTier;
+
+    private Path directory;
+
+    private ScheduledExecutorService cleanupExecutor;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+
+    private final AtomicLong diskHits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong stores = new AtomicLong();
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        try {
+            this.hotTier = this.cacheManager
+                .createNewCache(new LRUCacheConfiguration("machinetranslation.memory", HOT_TIER_SIZE));
+        } catch (CacheException e) {
+            throw new InitializationException("Failed to create the translation memory cache", e);
+        }
+        this.directory = new File(this.environment.getPermanentDirectory(), "machinetranslation/memory").toPath();
+        if (this.translatorConfiguration.getTranslationMemoryMaxAge() > 0) {
+            this.cleanupExecutor = Executors.newSingleThreadScheduledExecutor(new BasicThreadFactory.Builder()
+                .namingPattern("Translation memory cleanup").daemon(true).build());
+            this.cleanupExecutor.scheduleWithFixedDelay(this::deleteExpiredEntries, 0, CLEANUP_INTERVAL_HOURS,
+                TimeUnit.HOURS);
+        }
+    }
+
+    /**
+     * @return true if the translation memory should be used
+     */
+    public boolean isEnabled()
+    {
+        return this.translatorConfiguration.isTranslationMemoryEnabled();
+    }
+
+    /**
+     * Looks up the translation of a given content.
+     *
+     * @param key the translation key, see {@link #getKey(String, String, Locale, Locale, boolean, String)}
+     * @return the translation, or null if the content has not been translated yet
+     */
+    public String get(String key)
+    {
+        String translation = this.hotTier.get(key);
+        if (translation != null) {
+            this.memoryHits.incrementAndGet();
+            return translation;
+        }
+        Path file = getFile(key);
+        if (Files.isRegularFile(file)) {
+            try {
+                translation = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+                // Keep the entry from expiring while it is used.
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                this.hotTier.set(key, translation);
+                this.diskHits.incrementAndGet();
+                return translation;
+            } catch (IOException e) {
+                this.logger.warn("Failed to read translation memory entry [{}]: [{}]", file, e.getMessage());
+            }
+        }
+        this.misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Checks whether the translation of a given content is known, without reading it nor updating the hit counters.
+     *
+     * @param key the translation key, see {@link #getKey(String, String, Locale, Locale, boolean, String)}
+     * @return true if the content has already been translated
+     */
+    public boolean contains(String key)
+    {
+        return this.hotTier.get(key) != null || Files.isRegularFile(getFile(key));
+    }
+
+    /**
+     * Stores the translation of a given content.
+     *
+     * @param key the translation key, see {@link #getKey(String, String, Locale, Locale, boolean, String)}
+     * @param translation the translation
+     */
+    public void put(String key, String translation)
+    {
+        this.hotTier.set(key, translation);
+        Path file = getFile(key);
+        try {
+            Files.createDirectories(file.getParent());
+            // Write to a temporary file first so that readers never see a partially written entry.
+            Path temporaryFile = Files.createTempFile(file.getParent(), key, ".tmp");
+            Files.write(temporaryFile, translation.getBytes(StandardCharsets.UTF_8));
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.stores.incrementAndGet();
+        } catch (IOException e) {
+            this.logger.warn("Failed to write translation memory entry [{}]: [{}]", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Computes the key identifying the translation of a content.
+     *
+     * @param translator the name of the translator
+     * @param content the content to be translated
+     * @param from the source locale
+     * @param to the target locale
+     * @param html true if the content is HTML
+     * @param glossaryVersion identifies the version of the glossary used for the translation, empty if none
+     * @return the translation key
+     */
+    public String getKey(String translator, String content, Locale from, Locale to, boolean html,
+        String glossaryVersion)
+    {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, translator);
+            update(digest, from.toString());
+            update(digest, to.toString());
+            update(digest, String.valueOf(html));
+            update(digest, glossaryVersion);
+            // The exact content, since its translation is returned as is, with its surrounding white spaces.
+            update(digest, content);
+            return Hex.encodeHexString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is required to be supported by all Java platforms.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the hit and miss counters of the translation memory
+     */
+    public Map<String, Object> getStatistics()
+    {
+        long hits = this.memoryHits.get() + this.diskHits.get();
+        long lookups = hits + this.misses.get();
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("memoryHits", this.memoryHits.get());
+        statistics.put("diskHits", this.diskHits.get());
+        statistics.put("misses", this.misses.get());
+        statistics.put("stores", this.stores.get());
+        statistics.put("hitRate", lookups > 0 ? (double) hits / lookups : 0D);
+        return statistics;
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.cleanupExecutor != null) {
+            this.cleanupExecutor.shutdownNow();
+        }
+        if (this.hotTier != null) {
+            this.hotTier.dispose();
+        }
+    }
+
+    private void deleteExpiredEntries()
+    {
+        if (!Files.isDirectory(this.directory)) {
+            return;
+        }
+        long maxAge = TimeUnit.DAYS.toMillis(this.translatorConfiguration.getTranslationMemoryMaxAge());
+        FileTime expiration = FileTime.fromMillis(System.currentTimeMillis() - maxAge);
+        long deleted = 0;
+        try (Stream<Path> files = Files.walk(this.directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file) && Files.getLastModifiedTime(file).compareTo(expiration) < 0
+                    && Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            this.logger.warn("Failed to delete the expired translation memory entries: [{}]", e.getMessage());
+        }
+        this.logger.debug("Deleted [{}] expired translation memory entries", deleted);
+    }
+
+    private static void update(MessageDigest digest, String value)
+    {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update(SEPARATOR.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Path getFile(String key)
+    {
+        return this.directory.resolve(key.substring(0, SHARD_LENGTH)).resolve(key);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.xwiki.contrib.machinetranslation.Translator;
+
+/**
+ * Wraps a translator to record the latency, the errors and the translated characters of its operations. Cheap
+ * operations (naming, locale normalization, etc.) are not instrumented.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+public final class InstrumentedTranslator implements InvocationHandler
+{
+    private static final Set<String> INSTRUMENTED_OPERATIONS = new HashSet<>(Arrays.asList("translate", "estimate",
+        "computeTranslationReference", "isTranslatable", "canTranslate", "getTranslations", "getTranslation",
+        "getTranslationsForLocales", "getUsage", "getGlossaryLocalePairSupport", "getGlossaryLocalePairs",
+        "getGlossaries", "getGlossaryEntries", "updateGlossaries"));
+
+    /**
+     * Names of the instrumented operations. Overloaded operations are named after their parameter types, e.g.
+     * {@code translate(EntityReference,Locale)}, so that the translation of a page and the one of a string do not
+     * share the same latency distribution.
+     */
+    private static final Map<Method, String> OPERATION_NAMES = getOperationNames();
+
+    private static final String LOCALE_PAIR_SEPARATOR = ">";
+
+    private final Translator translator;
+
+    private final TranslatorMetrics metrics;
+
+    private InstrumentedTranslator(Translator translator, TranslatorMetrics metrics)
+    {
+        this.translator = translator;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param translator the translator to instrument
+     * @param metrics where the metrics are recorded
+     * @return the instrumented translator
+     */
+    public static Translator wrap(Translator translator, TranslatorMetrics metrics)
+    {
+        return (Translator) Proxy.newProxyInstance(Translator.class.getClassLoader(),
+            new Class<?>[] {Translator.class}, new InstrumentedTranslator(translator, metrics));
+    }
+
+    /**
+     * @param proxy an instrumented translator
+     * @return the translator it wraps, or the given translator if it is not instrumented
+     */
+    public static Translator unwrap(Translator proxy)
+    {
+        if (Proxy.isProxyClass(proxy.getClass())
+            && Proxy.getInvocationHandler(proxy) instanceof InstrumentedTranslator) {
+            return ((InstrumentedTranslator) Proxy.getInvocationHandler(proxy)).translator;
+        }
+        return proxy;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+        String operationName = OPERATION_NAMES.get(method);
+        if (operationName == null) {
+            return call(method, args);
+        }
+        OperationMetrics operation =
+            this.metrics.get(this.translator.getName(), operationName, getLocalePair(method, args));
+        operation.start(getCharacters(method, args));
+        long start = System.nanoTime();
+        try {
+            Object result = method.invoke(this.translator, args);
+            operation.end(System.nanoTime() - start, null);
+            return result;
+        } catch (InvocationTargetException e) {
+            operation.end(System.nanoTime() - start, e.getCause());
+            throw e.getCause();
+        }
+    }
+
+    private Object call(Method method, Object[] args) throws Throwable
+    {
+        try {
+            return method.invoke(this.translator, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Map<Method, String> getOperationNames()
+    {
+        Map<String, Integer> overloads = new HashMap<>();
+        for (Method method : Translator.class.getMethods()) {
+            overloads.merge(method.getName(), 1, Integer::sum);
+        }
+        Map<Method, String> names = new HashMap<>();
+        for (Method method : Translator.class.getMethods()) {
+            if (INSTRUMENTED_OPERATIONS.contains(method.getName())) {
+                String name = method.getName();
+                if (overloads.get(name) > 1) {
+                    name += Arrays.stream(method.getParameterTypes()).map(Class::getSimpleName)
+                        .collect(Collectors.joining(",", "(", ")"));
+                }
+                names.put(method, name);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @return the source and target locales of a translation, null for the other operations
+     */
+    private static String getLocalePair(Method method, Object[] args)
+    {
+        Class<?>[] types = method.getParameterTypes();
+        if (types.length > 2 && types[1] == Locale.class && types[2] == Locale.class) {
+            return args[1] + LOCALE_PAIR_SEPARATOR + args[2];
+        } else if (types.length == 2 && types[1] == Locale.class) {
+            return LOCALE_PAIR_SEPARATOR + args[1];
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of characters of the texts to be translated, 0 for the other operations
+     */
+    private static long getCharacters(Method method, Object[] args)
+    {
+        if (args == null || args.length == 0 || !"translate".equals(method.getName())) {
+            return 0;
+        }
+        long characters = 0;
+        if (args[0] instanceof String) {
+            characters = ((String) args[0]).length();
+        } else if (args[0] instanceof List) {
+            for (Object text : (List<?>) args[0]) {
+                characters += text instanceof String ? ((String) text).length() : 0;
+            }
+        }
+        return characters;
+    }
+}
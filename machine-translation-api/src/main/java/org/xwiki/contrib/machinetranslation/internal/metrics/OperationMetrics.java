@@ -0,0 +1,188 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Metrics of a translator operation, for a given provider and locale pair: call, error and character counters, calls
+ * in flight, and a latency histogram from which percentiles are computed. All the updates are lock-free.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+public class OperationMetrics
+{
+    /**
+     * Upper bounds of the latency histogram buckets, in milliseconds. The last bucket is unbounded.
+     */
+    private static final long[] BUCKETS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000, 60000};
+
+    private static final double P50 = 0.5;
+
+    private static final double P95 = 0.95;
+
+    private static final double P99 = 0.99;
+
+    private final AtomicLong calls = new AtomicLong();
+
+    private final AtomicLong errorCount = new AtomicLong();
+
+    private final AtomicLong characters = new AtomicLong();
+
+    private final AtomicLong inFlight = new AtomicLong();
+
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS.length + 1);
+
+    private final Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+
+    /**
+     * Records the start of a call.
+     *
+     * @param callCharacters the number of characters to be translated by the call, 0 if not relevant
+     */
+    public void start(long callCharacters)
+    {
+        this.inFlight.incrementAndGet();
+        this.characters.addAndGet(callCharacters);
+    }
+
+    /**
+     * Records the end of a call.
+     *
+     * @param nanos the duration of the call, in nanoseconds
+     * @param error the error which made the call fail, null if it succeeded
+     */
+    public void end(long nanos, Throwable error)
+    {
+        this.inFlight.decrementAndGet();
+        this.calls.incrementAndGet();
+        this.totalNanos.addAndGet(nanos);
+        this.maxNanos.accumulateAndGet(nanos, Math::max);
+        this.histogram.incrementAndGet(getBucket(TimeUnit.NANOSECONDS.toMillis(nanos)));
+        if (error != null) {
+            this.errorCount.incrementAndGet();
+            this.errors.computeIfAbsent(error.getClass().getName(), key -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of finished calls
+     */
+    public long getCalls()
+    {
+        return this.calls.get();
+    }
+
+    /**
+     * @return the number of failed calls
+     */
+    public long getErrors()
+    {
+        return this.errorCount.get();
+    }
+
+    /**
+     * @return the number of characters to be translated by the calls
+     */
+    public long getCharacters()
+    {
+        return this.characters.get();
+    }
+
+    /**
+     * @return the number of calls in progress
+     */
+    public long getInFlight()
+    {
+        return this.inFlight.get();
+    }
+
+    /**
+     * Computes a latency percentile from the histogram. The result is the upper bound of the bucket the percentile
+     * falls in, or the maximum latency for the unbounded bucket.
+     *
+     * @param percentile the percentile, between 0 and 1
+     * @return the latency percentile, in milliseconds
+     */
+    public double getPercentile(double percentile)
+    {
+        long count = 0;
+        long[] counts = new long[this.histogram.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = this.histogram.get(i);
+            count += counts[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return BUCKETS[i];
+            }
+        }
+        return TimeUnit.NANOSECONDS.toMillis(this.maxNanos.get());
+    }
+
+    /**
+     * @return all the metrics of the operation
+     */
+    public Map<String, Object> getStatistics()
+    {
+        long finishedCalls = this.calls.get();
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("calls", finishedCalls);
+        statistics.put("errors", this.errorCount.get());
+        statistics.put("inFlight", this.inFlight.get());
+        statistics.put("characters", this.characters.get());
+        statistics.put("meanMillis",
+            finishedCalls > 0 ? (double) TimeUnit.NANOSECONDS.toMillis(this.totalNanos.get()) / finishedCalls : 0D);
+        statistics.put("maxMillis", TimeUnit.NANOSECONDS.toMillis(this.maxNanos.get()));
+        statistics.put("p50Millis", getPercentile(P50));
+        statistics.put("p95Millis", getPercentile(P95));
+        statistics.put("p99Millis", getPercentile(P99));
+        Map<String, Long> errorClasses = new LinkedHashMap<>();
+        this.errors.forEach((errorClass, count) -> errorClasses.put(errorClass, count.get()));
+        statistics.put("errorClasses", errorClasses);
+        return statistics;
+    }
+
+    private static int getBucket(long millis)
+    {
+        for (int i = 0; i < BUCKETS.length; i++) {
+            if (millis <= BUCKETS[i]) {
+                return i;
+            }
+        }
+        return BUCKETS.length;
+    }
+}
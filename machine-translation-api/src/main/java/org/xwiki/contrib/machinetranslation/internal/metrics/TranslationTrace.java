@@ -0,0 +1,182 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.xwiki.model.reference.EntityReference;
+
+/**
+ * The time spent in each phase of the translation of a page into a locale (rights checks, document loading,
+ * rendering, provider calls, conversion, saving, etc.). Phases can be nested, the time of a nested phase being only
+ * counted in the nested phase. A trace is only used by the thread translating the page.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+public class TranslationTrace
+{
+    /**
+     * Phase of the time not spent in any other phase.
+     */
+    public static final String OTHER = "other";
+
+    private final EntityReference reference;
+
+    private final Locale locale;
+
+    private final long start = System.nanoTime();
+
+    private long end;
+
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+
+    private Span current;
+
+    /**
+     * A phase being timed, to be closed when the phase is over.
+     */
+    public static final class Span implements AutoCloseable
+    {
+        /**
+         * Span doing nothing, used when no translation is traced.
+         */
+        public static final Span NONE = new Span(null, null, null);
+
+        private final TranslationTrace trace;
+
+        private final String phase;
+
+        private final Span parent;
+
+        private long resumed = System.nanoTime();
+
+        private long elapsed;
+
+        private Span(TranslationTrace trace, String phase, Span parent)
+        {
+            this.trace = trace;
+            this.phase = phase;
+            this.parent = parent;
+        }
+
+        private void pause(long now)
+        {
+            this.elapsed += now - this.resumed;
+        }
+
+        @Override
+        public void close()
+        {
+            if (this.trace == null) {
+                return;
+            }
+            long now = System.nanoTime();
+            pause(now);
+            this.trace.phases.merge(this.phase, this.elapsed, Long::sum);
+            this.trace.current = this.parent;
+            if (this.parent != null) {
+                this.parent.resumed = now;
+            }
+        }
+    }
+
+    /**
+     * @param reference the translated page
+     * @param locale the target locale
+     */
+    public TranslationTrace(EntityReference reference, Locale locale)
+    {
+        this.reference = reference;
+        this.locale = locale;
+    }
+
+    /**
+     * Starts timing a phase, pausing the current phase if any.
+     *
+     * @param phase the phase name
+     * @return the phase being timed
+     */
+    public Span start(String phase)
+    {
+        if (this.current != null) {
+            this.current.pause(System.nanoTime());
+        }
+        this.current = new Span(this, phase, this.current);
+        return this.current;
+    }
+
+    /**
+     * Marks the end of the translation.
+     */
+    public void finish()
+    {
+        this.end = System.nanoTime();
+    }
+
+    /**
+     * @return the translated page
+     */
+    public EntityReference getReference()
+    {
+        return this.reference;
+    }
+
+    /**
+     * @return the target locale
+     */
+    public Locale getLocale()
+    {
+        return this.locale;
+    }
+
+    /**
+     * @return the duration of the translation, in milliseconds
+     */
+    public long getTotal()
+    {
+        return TimeUnit.NANOSECONDS.toMillis((this.end > 0 ? this.end : System.nanoTime()) - this.start);
+    }
+
+    /**
+     * @return the time spent in each phase, in milliseconds, including the time not spent in any phase
+     */
+    public Map<String, Long> getPhases()
+    {
+        Map<String, Long> millis = new LinkedHashMap<>();
+        long phasesNanos = 0;
+        for (Map.Entry<String, Long> entry : this.phases.entrySet()) {
+            millis.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue()));
+            phasesNanos += entry.getValue();
+        }
+        long totalNanos = (this.end > 0 ? this.end : System.nanoTime()) - this.start;
+        millis.put(OTHER, TimeUnit.NANOSECONDS.toMillis(Math.max(0, totalNanos - phasesNanos)));
+        return millis;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("[%s] to [%s] in [%d] ms %s", this.reference, this.locale, getTotal(), getPhases());
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.metrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.contrib.machinetranslation.MachineTranslationConfiguration;
+import org.xwiki.model.reference.EntityReference;
+
+/**
+ * Traces the phases of the translations of pages, see {@link TranslationTrace}. The trace of the translation in
+ * progress is held by the execution context. Finished traces are aggregated, and the ones exceeding the configured
+ * threshold are logged and kept in a slow translation log.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+@Component(roles = TranslationTracer.class)
+@Singleton
+public class TranslationTracer
+{
+    private static final String CURRENT_PROPERTY = "machinetranslation.trace";
+
+    private static final String FINISHED_PROPERTY = "machinetranslation.finishedTraces";
+
+    private static final int SLOW_LOG_SIZE = 50;
+
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private MachineTranslationConfiguration translatorConfiguration;
+
+    @Inject
+    private Logger logger;
+
+    private final Map<String, AtomicLong> phaseTotals = new ConcurrentHashMap<>();
+
+    private final AtomicLong traces = new AtomicLong();
+
+    private final Deque<TranslationTrace> slowTranslations = new ArrayDeque<>();
+
+    /**
+     * Starts tracing the translation of a page, unless a translation is already traced by the current thread.
+     *
+     * @param reference the translated page
+     * @param locale the target locale
+     * @return the new trace, or null if a translation is already traced or there is no execution context
+     */
+    public TranslationTrace begin(EntityReference reference, Locale locale)
+    {
+        ExecutionContext context = this.execution.getContext();
+        if (context == null || context.getProperty(CURRENT_PROPERTY) != null) {
+            return null;
+        }
+        TranslationTrace trace = new TranslationTrace(reference, locale);
+        context.setProperty(CURRENT_PROPERTY, trace);
+        return trace;
+    }
+
+    /**
+     * Starts timing a phase of the translation traced by the current thread.
+     *
+     * @param phase the phase name
+     * @return the phase being timed, to be closed at the end of the phase
+     */
+    public TranslationTrace.Span span(String phase)
+    {
+        ExecutionContext context = this.execution.getContext();
+        TranslationTrace trace = context != null ? (TranslationTrace) context.getProperty(CURRENT_PROPERTY) : null;
+        return trace != null ? trace.start(phase) : TranslationTrace.Span.NONE;
+    }
+
+    /**
+     * Ends a trace started with {@link #begin(EntityReference, Locale)}.
+     *
+     * @param trace the trace, null if the translation was not traced
+     */
+    public void end(TranslationTrace trace)
+    {
+        if (trace == null) {
+            return;
+        }
+        trace.finish();
+        ExecutionContext context = this.execution.getContext();
+        if (context != null) {
+            context.removeProperty(CURRENT_PROPERTY);
+            getFinishedTraces(context).add(trace);
+        }
+        this.traces.incrementAndGet();
+        trace.getPhases().forEach(
+            (phase, millis) -> this.phaseTotals.computeIfAbsent(phase, key -> new AtomicLong()).addAndGet(millis));
+        long threshold = this.translatorConfiguration.getSlowTranslationThreshold();
+        if (threshold > 0 && trace.getTotal() >= threshold) {
+            this.logger.warn("Slow translation of {}", trace);
+            synchronized (this.slowTranslations) {
+                if (this.slowTranslations.size() >= SLOW_LOG_SIZE) {
+                    this.slowTranslations.removeFirst();
+                }
+                this.slowTranslations.addLast(trace);
+            }
+        }
+    }
+
+    /**
+     * Returns and forgets the traces of the translations finished by the current thread.
+     *
+     * @return the traces, in the order the translations have finished, empty if no translation has been finished
+     *     since the last call
+     */
+    public List<TranslationTrace> takeFinishedTraces()
+    {
+        ExecutionContext context = this.execution.getContext();
+        if (context == null) {
+            return Collections.emptyList();
+        }
+        List<TranslationTrace> finished = getFinishedTraces(context);
+        context.removeProperty(FINISHED_PROPERTY);
+        return finished;
+    }
+
+    /**
+     * Hands the traces of translations finished by other threads on behalf of the current thread to the current
+     * thread, so that they are returned by {@link #takeFinishedTraces()}.
+     *
+     * @param traces the traces of the translations finished by other threads
+     */
+    public void addFinishedTraces(List<TranslationTrace> traces)
+    {
+        ExecutionContext context = this.execution.getContext();
+        if (context != null) {
+            getFinishedTraces(context).addAll(traces);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<TranslationTrace> getFinishedTraces(ExecutionContext context)
+    {
+        List<TranslationTrace> finished = (List<TranslationTrace>) context.getProperty(FINISHED_PROPERTY);
+        if (finished == null) {
+            finished = new ArrayList<>();
+            context.setProperty(FINISHED_PROPERTY, finished);
+        }
+        return finished;
+    }
+
+    /**
+     * @return the last translations which took longer than the configured threshold, the oldest first
+     */
+    public List<TranslationTrace> getSlowTranslations()
+    {
+        synchronized (this.slowTranslations) {
+            return new ArrayList<>(this.slowTranslations);
+        }
+    }
+
+    /**
+     * @return the number of traced translations and the total time spent in each phase, in milliseconds
+     */
+    public Map<String, Object> getStatistics()
+    {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("translations", this.traces.get());
+        Map<String, Long> phases = new LinkedHashMap<>();
+        this.phaseTotals.forEach((phase, millis) -> phases.put(phase, millis.get()));
+        statistics.put("phases", phases);
+        return statistics;
+    }
+}
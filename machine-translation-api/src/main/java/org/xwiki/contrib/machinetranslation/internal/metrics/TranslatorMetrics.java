@@ -0,0 +1,189 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.contrib.machinetranslation.internal.memory.TranslationMemory;
+
+/**
+ * Collects the metrics of the translator operations, see {@link InstrumentedTranslator}, and exposes them over JMX.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+@Component(roles = TranslatorMetrics.class)
+@Singleton
+public class TranslatorMetrics implements TranslatorMetricsMXBean, Initializable, Disposable
+{
+    private static final String OBJECT_NAME = "org.xwiki.contrib.machinetranslation:type=TranslatorMetrics";
+
+    private static final double P50 = 0.5;
+
+    private static final double P95 = 0.95;
+
+    private static final double P99 = 0.99;
+
+    private static final String SEPARATOR = ".";
+
+    @Inject
+    private TranslationMemory translationMemory;
+
+    @Inject
+    private Logger logger;
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    private ObjectName objectName;
+
+    @Override
+    public void initialize()
+    {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+                this.objectName = name;
+            }
+        } catch (JMException e) {
+            this.logger.warn("Failed to register the translator metrics MBean: [{}]", e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the metrics of an operation, creating them on first use.
+     *
+     * @param provider the name of the translator
+     * @param operation the operation name
+     * @param localePair the source and target locales, e.g. {@code en>fr}, or null if not relevant
+     * @return the metrics of the operation
+     */
+    public OperationMetrics get(String provider, String operation, String localePair)
+    {
+        String name = provider + SEPARATOR + operation;
+        if (localePair != null) {
+            name += SEPARATOR + localePair;
+        }
+        return this.operations.computeIfAbsent(name, key -> new OperationMetrics());
+    }
+
+    /**
+     * @return the metrics of all the operations, indexed by metric name, along with the translation memory statistics
+     */
+    public Map<String, Object> getStatistics()
+    {
+        Map<String, Object> statistics = new TreeMap<>();
+        this.operations.forEach((name, metrics) -> statistics.put(name, metrics.getStatistics()));
+        statistics.put("translationMemory", this.translationMemory.getStatistics());
+        return statistics;
+    }
+
+    @Override
+    public Map<String, Long> getCalls()
+    {
+        return collect(OperationMetrics::getCalls);
+    }
+
+    @Override
+    public Map<String, Long> getErrors()
+    {
+        return collect(OperationMetrics::getErrors);
+    }
+
+    @Override
+    public Map<String, Long> getInFlight()
+    {
+        return collect(OperationMetrics::getInFlight);
+    }
+
+    @Override
+    public Map<String, Long> getCharacters()
+    {
+        return collect(OperationMetrics::getCharacters);
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP50()
+    {
+        return collectPercentile(metrics -> metrics.getPercentile(P50));
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP95()
+    {
+        return collectPercentile(metrics -> metrics.getPercentile(P95));
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP99()
+    {
+        return collectPercentile(metrics -> metrics.getPercentile(P99));
+    }
+
+    @Override
+    public double getTranslationMemoryHitRate()
+    {
+        Object hitRate = this.translationMemory.getStatistics().get("hitRate");
+        return hitRate instanceof Double ? (Double) hitRate : 0D;
+    }
+
+    private Map<String, Long> collect(ToLongFunction<OperationMetrics> metric)
+    {
+        Map<String, Long> values = new TreeMap<>();
+        this.operations.forEach((name, metrics) -> values.put(name, metric.applyAsLong(metrics)));
+        return values;
+    }
+
+    private Map<String, Double> collectPercentile(ToDoubleFunction<OperationMetrics> metric)
+    {
+        Map<String, Double> values = new TreeMap<>();
+        this.operations.forEach((name, metrics) -> values.put(name, metric.applyAsDouble(metrics)));
+        return values;
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.objectName);
+            } catch (JMException e) {
+                this.logger.warn("Failed to unregister the translator metrics MBean: [{}]", e.getMessage());
+            }
+        }
+    }
+}
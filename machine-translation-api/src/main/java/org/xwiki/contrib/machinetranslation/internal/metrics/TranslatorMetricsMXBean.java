@@ -0,0 +1,72 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.metrics;
+
+import java.util.Map;
+
+/**
+ * Exposes the translator metrics over JMX. The maps are indexed by metric name, made of the provider, the operation
+ * and the locale pair if any (e.g. {@code deepl.translate.en>fr}).
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+public interface TranslatorMetricsMXBean
+{
+    /**
+     * @return the number of finished calls
+     */
+    Map<String, Long> getCalls();
+
+    /**
+     * @return the number of failed calls
+     */
+    Map<String, Long> getErrors();
+
+    /**
+     * @return the number of calls in progress
+     */
+    Map<String, Long> getInFlight();
+
+    /**
+     * @return the number of characters to be translated
+     */
+    Map<String, Long> getCharacters();
+
+    /**
+     * @return the median latency, in milliseconds
+     */
+    Map<String, Double> getLatencyP50();
+
+    /**
+     * @return the 95th percentile of the latency, in milliseconds
+     */
+    Map<String, Double> getLatencyP95();
+
+    /**
+     * @return the 99th percentile of the latency, in milliseconds
+     */
+    Map<String, Double> getLatencyP99();
+
+    /**
+     * @return the ratio of the translation memory lookups which found a translation
+     */
+    double getTranslationMemoryHitRate();
+}
@@ -0,0 +1,163 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.resilience;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stops calling a provider which keeps failing, so that callers fail fast instead of waiting for timeouts.
+ * <p>
+ * The circuit opens after a number of consecutive failures. Once open, calls are rejected until the open duration
+ * has elapsed; the circuit is then half-open and lets a single trial call through. The circuit closes again if the
+ * trial call succeeds, and opens again if it fails.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+public class CircuitBreaker
+{
+    /**
+     * The states of the circuit.
+     */
+    public enum State
+    {
+        /**
+         * Calls are let through.
+         */
+        CLOSED,
+
+        /**
+         * Calls are rejected.
+         */
+        OPEN,
+
+        /**
+         * A single trial call is let through.
+         */
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+
+    private final long openDuration;
+
+    private State state = State.CLOSED;
+
+    private int consecutiveFailures;
+
+    private long openedAt;
+
+    private boolean trialInProgress;
+
+    private long rejectedCalls;
+
+    private long openings;
+
+    /**
+     * @param failureThreshold the number of consecutive failures after which the circuit opens
+     * @param openDuration the time during which calls are rejected once the circuit is open, in milliseconds
+     */
+    public CircuitBreaker(int failureThreshold, long openDuration)
+    {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Checks whether a call can be made. A call which is allowed must be followed by a call to {@link #onSuccess()},
+     * {@link #onFailure()} or {@link #onIgnored()}.
+     *
+     * @return true if the call can be made, false if it should be rejected
+     */
+    public synchronized boolean allowCall()
+    {
+        if (this.state == State.OPEN && System.currentTimeMillis() - this.openedAt >= this.openDuration) {
+            this.state = State.HALF_OPEN;
+        }
+        if (this.state == State.CLOSED || (this.state == State.HALF_OPEN && !this.trialInProgress)) {
+            this.trialInProgress = this.state == State.HALF_OPEN;
+            return true;
+        }
+        this.rejectedCalls++;
+        return false;
+    }
+
+    /**
+     * Records a call which succeeded.
+     */
+    public synchronized void onSuccess()
+    {
+        this.consecutiveFailures = 0;
+        this.trialInProgress = false;
+        this.state = State.CLOSED;
+    }
+
+    /**
+     * Records a call which failed because of the provider.
+     */
+    public synchronized void onFailure()
+    {
+        this.consecutiveFailures++;
+        if (this.state == State.HALF_OPEN || this.consecutiveFailures >= this.failureThreshold) {
+            if (this.state != State.OPEN) {
+                this.openings++;
+            }
+            this.state = State.OPEN;
+            this.openedAt = System.currentTimeMillis();
+        }
+        this.trialInProgress = false;
+    }
+
+    /**
+     * Records a call whose outcome tells nothing about the availability of the provider, e.g. an interrupted call or
+     * a call rejected by the provider as invalid. The state of the circuit is kept, but a half-open circuit lets
+     * another trial call through.
+     */
+    public synchronized void onIgnored()
+    {
+        this.trialInProgress = false;
+    }
+
+    /**
+     * @return the current state of the circuit
+     */
+    public synchronized State getState()
+    {
+        if (this.state == State.OPEN && System.currentTimeMillis() - this.openedAt >= this.openDuration) {
+            return State.HALF_OPEN;
+        }
+        return this.state;
+    }
+
+    /**
+     * @return statistics about the circuit
+     */
+    public synchronized Map<String, Object> getStatistics()
+    {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("state", getState().name());
+        statistics.put("consecutiveFailures", this.consecutiveFailures);
+        statistics.put("openings", this.openings);
+        statistics.put("rejectedCalls", this.rejectedCalls);
+        statistics.put("openedAt", this.openedAt);
+        return statistics;
+    }
+}
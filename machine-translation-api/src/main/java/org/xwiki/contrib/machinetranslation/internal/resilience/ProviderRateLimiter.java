@@ -0,0 +1,271 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.resilience;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the calls made to a translation provider, shared by all the callers of a translator.
+ * <p>
+ * Two token buckets limit the number of requests per second and the number of characters per second. The number of
+ * concurrent requests is adapted AIMD-style: it grows additively while the provider answers quickly, and is reduced
+ * multiplicatively when the provider answers that too many requests are sent, or when its latency degrades. After such
+ * an answer, no request is sent until the provider backoff delay has elapsed. Only the latency of the successful
+ * requests is taken into account.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+public class ProviderRateLimiter
+{
+    private static final double THROTTLED_DECREASE_FACTOR = 0.5;
+
+    private static final double LATENCY_DECREASE_FACTOR = 0.9;
+
+    /**
+     * Latency, relative to the best latency observed, above which the provider is considered overloaded.
+     */
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    /**
+     * Weight of the best latency observed so far when decaying it towards the latest latency, so that the baseline
+     * follows durable changes of the provider latency.
+     */
+    private static final double BASELINE_DECAY = 0.99;
+
+    /**
+     * Number of characters the latency is normalized to, since the latency grows with the size of the request.
+     */
+    private static final double LATENCY_UNIT_CHARACTERS = 1000.0;
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final TokenBucket requests;
+
+    private final TokenBucket characters;
+
+    private final int maxConcurrency;
+
+    private double concurrencyLimit;
+
+    private int inFlight;
+
+    private long blockedUntil;
+
+    private double baselineLatency = Double.MAX_VALUE;
+
+    private long permits;
+
+    private long throttled;
+
+    private long waitTime;
+
+    /**
+     * A token bucket, refilled continuously at a given rate, holding at most one second worth of tokens. A rate of 0
+     * disables the bucket.
+     */
+    private static final class TokenBucket
+    {
+        private final double rate;
+
+        private double tokens;
+
+        private long lastRefill = System.nanoTime();
+
+        TokenBucket(double rate)
+        {
+            this.rate = rate;
+            this.tokens = rate;
+        }
+
+        /**
+         * @return the time to wait before the given amount of tokens can be taken, in nanoseconds, 0 if they can be
+         *     taken right away
+         */
+        long getDelay(long amount, long now)
+        {
+            if (this.rate <= 0) {
+                return 0;
+            }
+            this.tokens = Math.min(this.rate, this.tokens + (now - this.lastRefill) * this.rate / NANOS_PER_SECOND);
+            this.lastRefill = now;
+            // Requests larger than the bucket only wait for the bucket to be full, then put it in debt.
+            double needed = Math.min(amount, this.rate) - this.tokens;
+            return needed > 0 ? (long) Math.ceil(needed * NANOS_PER_SECOND / this.rate) : 0;
+        }
+
+        void take(long amount)
+        {
+            if (this.rate > 0) {
+                this.tokens -= amount;
+            }
+        }
+    }
+
+    /**
+     * A granted call to the provider, to be released once the call is over.
+     */
+    public final class Permit implements AutoCloseable
+    {
+        private final long characterCount;
+
+        private final long start = System.nanoTime();
+
+        private boolean released;
+
+        private Permit(long characterCount)
+        {
+            this.characterCount = characterCount;
+        }
+
+        /**
+         * Reports that the provider answered that too many requests are sent, and releases the permit.
+         *
+         * @param backoff the time to wait before sending new requests, in milliseconds
+         */
+        public void throttled(long backoff)
+        {
+            if (!this.released) {
+                this.released = true;
+                onThrottled(backoff);
+            }
+        }
+
+        /**
+         * Reports that the request failed, and releases the permit. The latency of failed requests is not relevant to
+         * the load of the provider (e.g. a server error is answered right away), it is not recorded.
+         */
+        public void failed()
+        {
+            if (!this.released) {
+                this.released = true;
+                onFailed();
+            }
+        }
+
+        /**
+         * Reports that the request succeeded, recording its latency, and releases the permit.
+         */
+        @Override
+        public void close()
+        {
+            if (!this.released) {
+                this.released = true;
+                onReleased(System.nanoTime() - this.start, this.characterCount);
+            }
+        }
+    }
+
+    /**
+     * @param requestsPerSecond the maximum number of requests per second, 0 for no limit
+     * @param charactersPerSecond the maximum number of characters per second, 0 for no limit
+     * @param maxConcurrency the maximum number of concurrent requests
+     */
+    public ProviderRateLimiter(double requestsPerSecond, long charactersPerSecond, int maxConcurrency)
+    {
+        this.requests = new TokenBucket(requestsPerSecond);
+        this.characters = new TokenBucket(charactersPerSecond);
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.concurrencyLimit = this.maxConcurrency;
+    }
+
+    /**
+     * Waits until a request sending the given number of characters can be sent to the provider.
+     *
+     * @param characterCount the number of characters sent by the request
+     * @return the permit, to be closed once the request is over
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public synchronized Permit acquire(long characterCount) throws InterruptedException
+    {
+        long waitStart = System.nanoTime();
+        while (true) {
+            long now = System.nanoTime();
+            long delay = Math.max(this.blockedUntil - now,
+                Math.max(this.requests.getDelay(1, now), this.characters.getDelay(characterCount, now)));
+            if (delay <= 0 && this.inFlight < (int) this.concurrencyLimit) {
+                break;
+            }
+            if (delay > 0) {
+                TimeUnit.NANOSECONDS.timedWait(this, delay);
+            } else {
+                // Woken up when a request is released.
+                wait();
+            }
+        }
+        this.requests.take(1);
+        this.characters.take(characterCount);
+        this.inFlight++;
+        this.permits++;
+        this.waitTime += System.nanoTime() - waitStart;
+        return new Permit(characterCount);
+    }
+
+    /**
+     * @return statistics about the limiter
+     */
+    public synchronized Map<String, Object> getStatistics()
+    {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("concurrencyLimit", (int) this.concurrencyLimit);
+        statistics.put("maxConcurrency", this.maxConcurrency);
+        statistics.put("inFlight", this.inFlight);
+        statistics.put("requests", this.permits);
+        statistics.put("throttled", this.throttled);
+        statistics.put("waitTime", TimeUnit.NANOSECONDS.toMillis(this.waitTime));
+        statistics.put("blockedFor", Math.max(0, TimeUnit.NANOSECONDS.toMillis(this.blockedUntil - System.nanoTime())));
+        return statistics;
+    }
+
+    private synchronized void onThrottled(long backoff)
+    {
+        this.inFlight--;
+        this.throttled++;
+        this.concurrencyLimit = Math.max(1, this.concurrencyLimit * THROTTLED_DECREASE_FACTOR);
+        this.blockedUntil = Math.max(this.blockedUntil, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff));
+        notifyAll();
+    }
+
+    private synchronized void onFailed()
+    {
+        this.inFlight--;
+        notifyAll();
+    }
+
+    private synchronized void onReleased(long latency, long characterCount)
+    {
+        this.inFlight--;
+        double normalizedLatency = latency / (1 + characterCount / LATENCY_UNIT_CHARACTERS);
+        if (normalizedLatency < this.baselineLatency) {
+            this.baselineLatency = normalizedLatency;
+        } else {
+            this.baselineLatency =
+                BASELINE_DECAY * this.baselineLatency + (1 - BASELINE_DECAY) * normalizedLatency;
+        }
+        if (normalizedLatency > LATENCY_TOLERANCE * this.baselineLatency) {
+            this.concurrencyLimit = Math.max(1, this.concurrencyLimit * LATENCY_DECREASE_FACTOR);
+        } else {
+            this.concurrencyLimit = Math.min(this.maxConcurrency, this.concurrencyLimit + 1 / this.concurrencyLimit);
+        }
+        notifyAll();
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.resilience;
+
+import org.xwiki.contrib.machinetranslation.MachineTranslationException;
+
+/**
+ * Thrown without calling the translation provider when its circuit breaker is open, i.e. when the provider has
+ * recently been failing.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+public class ProviderUnavailableException extends MachineTranslationException
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param message the exception message
+     */
+    public ProviderUnavailableException(String message)
+    {
+        super(message);
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.resilience;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Calls a translation provider through a {@link CircuitBreaker}, retrying the calls which fail with a transient error
+ * after a jittered exponential backoff delay.
+ * <p>
+ * The errors are classified by the provider. Transient errors are the errors which are worth retrying (e.g. network
+ * errors, server errors), and which count as failures of the provider for the circuit breaker. Throttling errors,
+ * returned when too many requests are sent, reduce the concurrency of the {@link ProviderRateLimiter} and are retried
+ * once the provider backoff delay has elapsed. Other errors are thrown right away.
+ * <p>
+ * The caller is the only one retrying the calls to the provider: the provider client must not retry them itself.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+public class ResilientCaller
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResilientCaller.class);
+
+    /**
+     * Bounds the exponential growth of the delay, to avoid overflows.
+     */
+    private static final int MAX_DELAY_SHIFT = 20;
+
+    /**
+     * Number of times a call is made when the provider keeps answering that too many requests are sent.
+     */
+    private static final int MAX_THROTTLED_ATTEMPTS = 5;
+
+    private final String providerName;
+
+    private final int maxAttempts;
+
+    private final long baseDelay;
+
+    private final long maxDelay;
+
+    private final Function<Exception, ErrorType> errorClassifier;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final ProviderRateLimiter rateLimiter;
+
+    private final AtomicLong calls = new AtomicLong();
+
+    private final AtomicLong retries = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    private final AtomicLong throttled = new AtomicLong();
+
+    /**
+     * The types of errors returned by a provider.
+     */
+    public enum ErrorType
+    {
+        /**
+         * The call is retried after a backoff delay, and counts as a failure of the provider.
+         */
+        TRANSIENT,
+
+        /**
+         * The provider answered that too many requests are sent: the call is retried once the provider backoff
+         * delay has elapsed.
+         */
+        THROTTLED,
+
+        /**
+         * The call is not retried.
+         */
+        PERMANENT
+    }
+
+    /**
+     * A call to the provider.
+     *
+     * @param <T> the type of the call result
+     * @param <E> the type of the errors thrown by the provider
+     */
+    @FunctionalInterface
+    public interface ProviderCall<T, E extends Exception>
+    {
+        /**
+         * @return the result of the call
+         * @throws E in case the provider returns an error
+         * @throws InterruptedException if the call is interrupted
+         */
+        T call() throws E, InterruptedException;
+    }
+
+    /**
+     * @param providerName the name of the provider, used in messages
+     * @param maxAttempts the maximum number of attempts of a call failing with transient errors
+     * @param baseDelay the delay before the first retry, in milliseconds, doubled on each retry
+     * @param maxDelay the maximum delay between two attempts, in milliseconds
+     * @param errorClassifier decides the type of the errors returned by the provider
+     * @param circuitBreaker the circuit breaker of the provider
+     * @param rateLimiter the rate limiter shared by the calls to the provider which send characters
+     */
+    public ResilientCaller(String providerName, int maxAttempts, long baseDelay, long maxDelay,
+        Function<Exception, ErrorType> errorClassifier, CircuitBreaker circuitBreaker, ProviderRateLimiter rateLimiter)
+    {
+        this.providerName = providerName;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.errorClassifier = errorClassifier;
+        this.circuitBreaker = circuitBreaker;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Calls the provider, outside of the rate limiter.
+     *
+     * @param operation the name of the operation, used in messages
+     * @param call the call to the provider
+     * @param <T> the type of the call result
+     * @param <E> the type of the errors thrown by the provider
+     * @return the result of the call
+     * @throws E in case the provider returns a non transient error, or keeps returning transient errors
+     * @throws InterruptedException if the call or the wait between two attempts is interrupted
+     * @throws ProviderUnavailableException if the circuit breaker is open
+     */
+    public <T, E extends Exception> T call(String operation, ProviderCall<T, E> call)
+        throws E, InterruptedException, ProviderUnavailableException
+    {
+        return call(operation, -1, call);
+    }
+
+    /**
+     * Calls the provider within the limits of the rate limiter, each attempt waiting for its own permit.
+     *
+     * @param operation the name of the operation, used in messages
+     * @param characters the number of characters sent by the call, or a negative number to call the provider
+     *     outside of the rate limiter
+     * @param call the call to the provider
+     * @param <T> the type of the call result
+     * @param <E> the type of the errors thrown by the provider
+     * @return the result of the call
+     * @throws E in case the provider returns a non transient error, or keeps returning transient or throttling
+     *     errors
+     * @throws InterruptedException if the call or the wait between two attempts is interrupted
+     * @throws ProviderUnavailableException if the circuit breaker is open
+     */
+    public <T, E extends Exception> T call(String operation, long characters, ProviderCall<T, E> call)
+        throws E, InterruptedException, ProviderUnavailableException
+    {
+        this.calls.incrementAndGet();
+        // The number of attempts which failed with a transient error, and with a throttling error.
+        int[] attempts = new int[2];
+        while (true) {
+            if (!this.circuitBreaker.allowCall()) {
+                throw new ProviderUnavailableException(String.format(
+                    "%s is unavailable after repeated failures, [%s] has not been attempted", this.providerName,
+                    operation));
+            }
+            ProviderRateLimiter.Permit permit = null;
+            try {
+                if (characters >= 0 && this.rateLimiter != null) {
+                    permit = this.rateLimiter.acquire(characters);
+                }
+                T result = call.call();
+                this.circuitBreaker.onSuccess();
+                return result;
+            } catch (InterruptedException e) {
+                this.circuitBreaker.onIgnored();
+                if (permit != null) {
+                    permit.failed();
+                }
+                throw e;
+            } catch (Exception e) {
+                if (!retry(operation, e, attempts, permit)) {
+                    throw e;
+                }
+            } finally {
+                if (permit != null) {
+                    permit.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a failed attempt and waits before the next one.
+     *
+     * @return true if the call should be attempted again, false if the error should be thrown
+     */
+    private boolean retry(String operation, Exception e, int[] attempts, ProviderRateLimiter.Permit permit)
+        throws InterruptedException
+    {
+        ErrorType errorType = this.errorClassifier.apply(e);
+        // The permit is released before waiting, so that the backoff delay neither holds a concurrency slot nor counts
+        // as provider latency.
+        if (errorType != ErrorType.THROTTLED && permit != null) {
+            permit.failed();
+        }
+        if (errorType == ErrorType.THROTTLED) {
+            // The provider answered, but it is overloaded: this does not tell whether it has recovered.
+            this.circuitBreaker.onIgnored();
+            this.throttled.incrementAndGet();
+            if (++attempts[1] >= MAX_THROTTLED_ATTEMPTS) {
+                // Still reported as throttled, so that the permit is not released as a successful call.
+                if (permit != null) {
+                    permit.throttled(getBackoff(attempts[1]));
+                }
+                return false;
+            }
+            onThrottled(operation, getBackoff(attempts[1]), permit);
+            return true;
+        } else if (errorType == ErrorType.TRANSIENT) {
+            this.circuitBreaker.onFailure();
+            this.failures.incrementAndGet();
+            if (++attempts[0] >= this.maxAttempts) {
+                return false;
+            }
+            // Full jitter, so that concurrent callers do not retry all at once.
+            long delay = ThreadLocalRandom.current().nextLong(getBackoff(attempts[0]) + 1);
+            LOGGER.debug("[{}] failed with a transient error, retrying in [{}] ms: [{}]", operation, delay,
+                e.getMessage());
+            this.retries.incrementAndGet();
+            Thread.sleep(delay);
+            return true;
+        }
+        // The call is wrong, or the provider refuses it: this does not tell whether the provider has recovered.
+        this.circuitBreaker.onIgnored();
+        return false;
+    }
+
+    /**
+     * Waits for the provider backoff delay: through the rate limiter when the call holds a permit, so that no caller
+     * sends requests until the delay has elapsed, otherwise by sleeping.
+     */
+    private void onThrottled(String operation, long backoff, ProviderRateLimiter.Permit permit)
+        throws InterruptedException
+    {
+        LOGGER.debug("{} is throttling requests, retrying [{}] in [{}] ms", this.providerName, operation, backoff);
+        this.retries.incrementAndGet();
+        if (permit != null) {
+            permit.throttled(backoff);
+        } else {
+            Thread.sleep(backoff);
+        }
+    }
+
+    /**
+     * @return the circuit breaker of the provider
+     */
+    public CircuitBreaker getCircuitBreaker()
+    {
+        return this.circuitBreaker;
+    }
+
+    /**
+     * @return statistics about the calls, the circuit breaker and the rate limiter, if any
+     */
+    public Map<String, Object> getStatistics()
+    {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("calls", this.calls.get());
+        statistics.put("retries", this.retries.get());
+        statistics.put("transientFailures", this.failures.get());
+        statistics.put("throttled", this.throttled.get());
+        statistics.put("circuitBreaker", this.circuitBreaker.getStatistics());
+        if (this.rateLimiter != null) {
+            statistics.put("rateLimiter", this.rateLimiter.getStatistics());
+        }
+        return statistics;
+    }
+
+    /**
+     * Computes the exponential backoff delay before the next attempt.
+     */
+    private long getBackoff(int attempt)
+    {
+        return Math.min(this.maxDelay, this.baseDelay << Math.min(attempt - 1, MAX_DELAY_SHIFT));
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.job;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.xwiki.job.DefaultJobStatus;
+import org.xwiki.job.event.status.JobStatus;
+import org.xwiki.logging.LoggerManager;
+import org.xwiki.observation.ObservationManager;
+
+/**
+ * Status of a bulk translation job, holding the throughput of the job.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+public class BulkTranslationJobStatus extends DefaultJobStatus<BulkTranslationRequest>
+{
+    private final AtomicLong translatedDocuments = new AtomicLong();
+
+    private final AtomicLong failedDocuments = new AtomicLong();
+
+    private final AtomicLong skippedDocuments = new AtomicLong();
+
+    private final AtomicLong deferredDocuments = new AtomicLong();
+
+    private final AtomicLong characters = new AtomicLong();
+
+    private final AtomicLong estimatedCharacters = new AtomicLong();
+
+    private final Map<String, AtomicLong> phaseTimes = new ConcurrentHashMap<>();
+
+    private final long startTime = System.currentTimeMillis();
+
+    /**
+     * @param jobType the type of the job
+     * @param request the request provided when started the job
+     * @param parentJobStatus the status of the parent job (i.e. the status of the job that started this one); pass
+     *     {@code null} if this job hasn't been started by another job (i.e. if this is not a sub-job)
+     * @param observationManager the observation manager component
+     * @param loggerManager the logger manager component
+     */
+    public BulkTranslationJobStatus(String jobType, BulkTranslationRequest request, JobStatus parentJobStatus,
+        ObservationManager observationManager, LoggerManager loggerManager)
+    {
+        super(jobType, request, parentJobStatus, observationManager, loggerManager);
+        setCancelable(true);
+    }
+
+    /**
+     * Records a translated document.
+     *
+     * @param documentCharacters the number of characters of the document which have been translated
+     */
+    public void addTranslatedDocument(long documentCharacters)
+    {
+        this.translatedDocuments.incrementAndGet();
+        this.characters.addAndGet(documentCharacters);
+    }
+
+    /**
+     * Records a document which could not be translated into some locales.
+     */
+    public void addFailedDocument()
+    {
+        this.failedDocuments.incrementAndGet();
+    }
+
+    /**
+     * Records a document skipped because it had already been translated by a previous run of the job.
+     */
+    public void addSkippedDocument()
+    {
+        this.skippedDocuments.incrementAndGet();
+    }
+
+    /**
+     * Records a document which has not been translated because the translation service quota would have been
+     * exceeded. It is translated when the job is resumed.
+     */
+    public void addDeferredDocument()
+    {
+        this.deferredDocuments.incrementAndGet();
+    }
+
+    /**
+     * Records the time spent in each phase of the translation of a document into a locale.
+     *
+     * @param phases the time spent in each phase, in milliseconds
+     */
+    public void addPhaseTimes(Map<String, Long> phases)
+    {
+        phases.forEach((phase, millis) -> this.phaseTimes.computeIfAbsent(phase, key -> new AtomicLong())
+            .addAndGet(millis));
+    }
+
+    /**
+     * @param batchCharacters the number of characters the translation of a batch of documents is expected to send to
+     *     the translation service
+     */
+    public void addEstimatedCharacters(long batchCharacters)
+    {
+        this.estimatedCharacters.addAndGet(batchCharacters);
+    }
+
+    /**
+     * @return the number of documents translated into all the requested locales
+     */
+    public long getTranslatedDocuments()
+    {
+        return this.translatedDocuments.get();
+    }
+
+    /**
+     * @return the number of documents which could not be translated into some locales
+     */
+    public long getFailedDocuments()
+    {
+        return this.failedDocuments.get();
+    }
+
+    /**
+     * @return the number of documents skipped because they had already been translated by a previous run of the job
+     */
+    public long getSkippedDocuments()
+    {
+        return this.skippedDocuments.get();
+    }
+
+    /**
+     * @return the number of documents which have not been translated because the translation service quota would
+     *     have been exceeded
+     */
+    public long getDeferredDocuments()
+    {
+        return this.deferredDocuments.get();
+    }
+
+    /**
+     * @return the number of characters the job is expected to send to the translation service, estimated batch by
+     *     batch before translating the documents of each batch
+     */
+    public long getEstimatedCharacters()
+    {
+        return this.estimatedCharacters.get();
+    }
+
+    /**
+     * @return the number of characters translated, summed over all the target locales
+     */
+    public long getCharacters()
+    {
+        return this.characters.get();
+    }
+
+    /**
+     * @return the total time spent in each phase of the translations (rights checks, document loading, rendering,
+     *     translation service calls, conversion, saving, etc.), in milliseconds, summed over all the workers
+     */
+    public Map<String, Long> getPhaseTimes()
+    {
+        Map<String, Long> times = new LinkedHashMap<>();
+        this.phaseTimes.forEach((phase, millis) -> times.put(phase, millis.get()));
+        return times;
+    }
+
+    /**
+     * @return the number of documents translated per minute
+     */
+    public double getDocumentsPerMinute()
+    {
+        return this.translatedDocuments.get() * (double) TimeUnit.MINUTES.toMillis(1) / getElapsedTime();
+    }
+
+    /**
+     * @return the number of characters translated per second
+     */
+    public double getCharactersPerSecond()
+    {
+        return this.characters.get() * (double) TimeUnit.SECONDS.toMillis(1) / getElapsedTime();
+    }
+
+    /**
+     * @return the time elapsed since the job started, or the duration of the job if it is finished, in milliseconds
+     */
+    public long getElapsedTime()
+    {
+        long endTime = getEndDate() != null ? getEndDate().getTime() : System.currentTimeMillis();
+        return Math.max(1, endTime - this.startTime);
+    }
+}
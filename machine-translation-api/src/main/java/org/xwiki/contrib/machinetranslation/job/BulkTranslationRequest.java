@@ -0,0 +1,137 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.job;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.xwiki.job.AbstractRequest;
+import org.xwiki.job.Request;
+import org.xwiki.model.reference.EntityReference;
+
+/**
+ * Request to translate all the translatable documents of a wiki or of a space into a set of locales.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+public class BulkTranslationRequest extends AbstractRequest
+{
+    /**
+     * Prefix of the identifier of bulk translation jobs.
+     */
+    public static final List<String> JOB_ID_PREFIX = Collections.unmodifiableList(Arrays.asList("machinetranslation",
+        "bulk"));
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String PROPERTY_ROOT = "root";
+
+    private static final String PROPERTY_LOCALES = "locales";
+
+    private static final String PROPERTY_WORKERS = "workers";
+
+    private static final String PROPERTY_RESUME = "resume";
+
+    /**
+     * Default constructor.
+     */
+    public BulkTranslationRequest()
+    {
+    }
+
+    /**
+     * @param request the request to copy
+     */
+    public BulkTranslationRequest(Request request)
+    {
+        super(request);
+    }
+
+    /**
+     * @return the wiki or space whose documents are translated
+     */
+    public EntityReference getRoot()
+    {
+        return getProperty(PROPERTY_ROOT);
+    }
+
+    /**
+     * @param root the wiki or space whose documents are translated
+     */
+    public void setRoot(EntityReference root)
+    {
+        setProperty(PROPERTY_ROOT, root);
+    }
+
+    /**
+     * @return the locales the documents are translated into
+     */
+    public List<Locale> getLocales()
+    {
+        return getProperty(PROPERTY_LOCALES, Collections.emptyList());
+    }
+
+    /**
+     * @param locales the locales the documents are translated into
+     */
+    public void setLocales(List<Locale> locales)
+    {
+        setProperty(PROPERTY_LOCALES, new ArrayList<>(locales));
+    }
+
+    /**
+     * @return the number of documents translated concurrently, 0 to use the configured number of translation threads
+     */
+    public int getWorkers()
+    {
+        return getProperty(PROPERTY_WORKERS, 0);
+    }
+
+    /**
+     * @param workers the number of documents translated concurrently, 0 to use the configured number of translation
+     *     threads
+     */
+    public void setWorkers(int workers)
+    {
+        setProperty(PROPERTY_WORKERS, workers);
+    }
+
+    /**
+     * @return true if the documents already translated by a previous, interrupted, run of the same job should be
+     *     skipped
+     */
+    public boolean isResume()
+    {
+        return getProperty(PROPERTY_RESUME, true);
+    }
+
+    /**
+     * @param resume true if the documents already translated by a previous, interrupted, run of the same job should
+     *     be skipped
+     */
+    public void setResume(boolean resume)
+    {
+        setProperty(PROPERTY_RESUME, resume);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.xwiki.model.reference.EntityReference;
+
+/**
+ * Number of characters a translation of a page into a set of locales is expected to send to the translation service,
+ * computed before translating it.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+public class TranslationEstimate
+{
+    private final EntityReference reference;
+
+    private final Map<Locale, Long> characters = new LinkedHashMap<>();
+
+    private final Map<Locale, Long> memoryCharacters = new LinkedHashMap<>();
+
+    private final Map<Locale, Long> skippedCharacters = new LinkedHashMap<>();
+
+    /**
+     * Constructs an empty TranslationEstimate.
+     *
+     * @param reference Reference to the original page
+     */
+    public TranslationEstimate(EntityReference reference)
+    {
+        this.reference = reference;
+    }
+
+    /**
+     * Records the estimate of the translation to a given locale.
+     *
+     * @param locale Target locale
+     * @param sentCharacters Number of characters to be sent to the translation service
+     * @param rememberedCharacters Number of characters whose translation is found in the translation memory
+     * @param untranslatableCharacters Number of characters of untranslatable blocks, which are not sent
+     */
+    public void add(Locale locale, long sentCharacters, long rememberedCharacters, long untranslatableCharacters)
+    {
+        this.characters.merge(locale, sentCharacters, Long::sum);
+        this.memoryCharacters.merge(locale, rememberedCharacters, Long::sum);
+        this.skippedCharacters.merge(locale, untranslatableCharacters, Long::sum);
+    }
+
+    /**
+     * @return the reference to the original page
+     */
+    public EntityReference getReference()
+    {
+        return reference;
+    }
+
+    /**
+     * @return the number of characters to be sent to the translation service, for all the target locales
+     */
+    public long getCharacters()
+    {
+        return sum(this.characters);
+    }
+
+    /**
+     * @param locale a target locale
+     * @return the number of characters to be sent to the translation service for the given locale
+     */
+    public long getCharacters(Locale locale)
+    {
+        return this.characters.getOrDefault(locale, 0L);
+    }
+
+    /**
+     * @return the number of characters which are not sent to the translation service because their translation is
+     *     found in the translation memory, for all the target locales
+     */
+    public long getMemoryCharacters()
+    {
+        return sum(this.memoryCharacters);
+    }
+
+    /**
+     * @return the number of characters which are not sent to the translation service because they belong to
+     *     untranslatable blocks (e.g. code macros), for all the target locales
+     */
+    public long getSkippedCharacters()
+    {
+        return sum(this.skippedCharacters);
+    }
+
+    /**
+     * @return the number of characters to be sent to the translation service, indexed by target locale
+     */
+    public Map<Locale, Long> getCharactersByLocale()
+    {
+        return Collections.unmodifiableMap(this.characters);
+    }
+
+    private static long sum(Map<Locale, Long> values)
+    {
+        long sum = 0;
+        for (long value : values.values()) {
+            sum += value;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.model;
+
+import java.util.Locale;
+
+import org.xwiki.model.reference.EntityReference;
+
+/**
+ * Outcome of the translation of a page into a given locale.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+public class TranslationResult
+{
+    private final Locale locale;
+
+    private final EntityReference reference;
+
+    private final Throwable error;
+
+    /**
+     * Constructs a TranslationResult.
+     *
+     * @param locale Target locale
+     * @param reference Reference to the translated page, null if the page has not been translated
+     * @param error Error which prevented the translation, if any
+     */
+    public TranslationResult(Locale locale, EntityReference reference, Throwable error)
+    {
+        this.locale = locale;
+        this.reference = reference;
+        this.error = error;
+    }
+
+    /**
+     * @return the target locale
+     */
+    public Locale getLocale()
+    {
+        return locale;
+    }
+
+    /**
+     * @return the reference to the translated page, null if the page has not been translated
+     */
+    public EntityReference getReference()
+    {
+        return reference;
+    }
+
+    /**
+     * @return the error which prevented the translation, null if the translation succeeded
+     */
+    public Throwable getError()
+    {
+        return error;
+    }
+
+    /**
+     * @return true if no error occurred
+     */
+    public boolean isSuccess()
+    {
+        return error == null;
+    }
+}
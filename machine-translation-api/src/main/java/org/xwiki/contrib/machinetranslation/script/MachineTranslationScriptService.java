@@ -20,7 +20,9 @@
 package org.xwiki.contrib.machinetranslation.script;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -32,16 +34,33 @@ import javax.inject.Provider;
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.context.concurrent.ContextStoreManager;
 import org.xwiki.contrib.machinetranslation.MachineTranslation;
 import org.xwiki.contrib.machinetranslation.MachineTranslationConfiguration;
 import org.xwiki.contrib.machinetranslation.MachineTranslationException;
 import org.xwiki.contrib.machinetranslation.Translator;
 import org.xwiki.contrib.machinetranslation.TranslatorManager;
 import org.xwiki.contrib.machinetranslation.Usage;
+import org.xwiki.contrib.machinetranslation.internal.index.TranslationIndex;
+import org.xwiki.contrib.machinetranslation.internal.job.BulkTranslationJob;
+import org.xwiki.contrib.machinetranslation.internal.memory.TranslationMemory;
+import org.xwiki.contrib.machinetranslation.internal.metrics.TranslationTrace;
+import org.xwiki.contrib.machinetranslation.internal.metrics.TranslationTracer;
+import org.xwiki.contrib.machinetranslation.internal.metrics.TranslatorMetrics;
+import org.xwiki.contrib.machinetranslation.job.BulkTranslationRequest;
 import org.xwiki.contrib.machinetranslation.model.GlossaryInfo;
 import org.xwiki.contrib.machinetranslation.model.LocalePair;
+import org.xwiki.contrib.machinetranslation.model.TranslationEstimate;
+import org.xwiki.contrib.machinetranslation.model.TranslationResult;
+import org.xwiki.job.Job;
+import org.xwiki.job.JobException;
+import org.xwiki.job.JobExecutor;
+import org.xwiki.job.JobStatusStore;
+import org.xwiki.job.event.status.JobStatus;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.WikiReference;
 import org.xwiki.script.service.ScriptService;
 import org.xwiki.security.authorization.ContextualAuthorizationManager;
 import org.xwiki.security.authorization.Right;
@@ -80,6 +99,27 @@ public class MachineTranslationScriptService implements ScriptService
     @Inject
     private Provider<XWikiContext> xwikiContextProvider;
 
+    @Inject
+    private TranslationMemory translationMemory;
+
+    @Inject
+    private TranslatorMetrics translatorMetrics;
+
+    @Inject
+    private TranslationTracer translationTracer;
+
+    @Inject
+    private TranslationIndex translationIndex;
+
+    @Inject
+    private JobExecutor jobExecutor;
+
+    @Inject
+    private JobStatusStore jobStatusStore;
+
+    @Inject
+    private ContextStoreManager contextStoreManager;
+
     /**
      * Returns the original document reference and locale of a given document.
      *
@@ -185,6 +225,25 @@ public class MachineTranslationScriptService implements ScriptService
         return translator.getTranslation(reference, locale);
     }
 
+    /**
+     * Returns all the translations of a given document, indexed by locale. Prefer this method to calling
+     * {@link #getTranslation(DocumentReference, Locale)} for each locale.
+     *
+     * @param reference Reference of a document
+     * @return the translations of the given document, indexed by locale
+     * @throws MachineTranslationException in case an error occurs
+     * @since 1.3
+     */
+    public Map<Locale, MachineTranslation> getTranslationsForLocales(DocumentReference reference)
+        throws MachineTranslationException
+    {
+        Translator translator = translatorManager.getTranslator();
+        if (translator == null) {
+            return Collections.emptyMap();
+        }
+        return translator.getTranslationsForLocales(reference);
+    }
+
     /**
      * Checks if a given reference can be translated according to the rules defined in the translator configuration.
      *
@@ -263,6 +322,37 @@ public class MachineTranslationScriptService implements ScriptService
         return translatorManager.getTranslator().translate(reference, toLocale);
     }
 
+    /**
+     * Translates given page into several locales, concurrently.
+     *
+     * @param reference A page reference
+     * @param toLocales Target locales
+     * @return the result of the translation to each locale
+     * @throws MachineTranslationException in case the page cannot be prepared for translation
+     * @since 1.3
+     */
+    public List<TranslationResult> translate(EntityReference reference, List<Locale> toLocales)
+        throws MachineTranslationException
+    {
+        return translatorManager.getTranslator().translateToLocales(reference, toLocales.toArray(new Locale[0]));
+    }
+
+    /**
+     * Estimates the number of characters sent to the translation service when translating a given page into several
+     * locales, without translating it.
+     *
+     * @param reference A page reference
+     * @param toLocales Target locales
+     * @return the estimated number of characters for each locale
+     * @throws MachineTranslationException in case the page cannot be prepared for translation
+     * @since 1.3
+     */
+    public TranslationEstimate estimate(EntityReference reference, List<Locale> toLocales)
+        throws MachineTranslationException
+    {
+        return translatorManager.getTranslator().estimate(reference, toLocales.toArray(new Locale[0]));
+    }
+
     /**
      * Translates given content from given locale to another locale, optionally with html.
      *
@@ -333,6 +423,171 @@ public class MachineTranslationScriptService implements ScriptService
         return translator.getUsage();
     }
 
+    /**
+     * Starts translating all the translatable documents of a wiki or of a space into the given locales, in the
+     * background. An interrupted bulk translation of the same documents into the same locales is resumed where it
+     * stopped.
+     *
+     * @param root the wiki or space whose documents should be translated
+     * @param locales the target locales
+     * @return the bulk translation job, or null if the current user is not an administrator of the wiki or space
+     * @throws MachineTranslationException in case the job cannot be started
+     * @since 1.3
+     */
+    public Job translateAll(EntityReference root, List<Locale> locales) throws MachineTranslationException
+    {
+        if (!this.authorizationManager.hasAccess(Right.ADMIN, root)) {
+            return null;
+        }
+        BulkTranslationRequest request = new BulkTranslationRequest();
+        request.setId(getBulkTranslationJobId(root));
+        request.setRoot(root);
+        request.setLocales(locales);
+        try {
+            // Translations are performed on behalf of the current user, in the current wiki.
+            request.setContext(this.contextStoreManager.save(this.contextStoreManager.getSupportedEntries()));
+            return this.jobExecutor.execute(BulkTranslationJob.JOBTYPE, request);
+        } catch (ComponentLookupException | JobException e) {
+            throw new MachineTranslationException(String.format("Failed to start the translation of [%s]", root), e);
+        }
+    }
+
+    /**
+     * Returns the status of the bulk translation of a wiki or of a space.
+     *
+     * @param root the wiki or space whose documents are translated
+     * @return the status of the last bulk translation job, or null if there is none or the current user is not an
+     *     administrator of the wiki or space
+     * @since 1.3
+     */
+    public JobStatus getBulkTranslationStatus(EntityReference root)
+    {
+        if (!this.authorizationManager.hasAccess(Right.ADMIN, root)) {
+            return null;
+        }
+        List<String> jobId = getBulkTranslationJobId(root);
+        Job job = this.jobExecutor.getJob(jobId);
+        return job != null ? job.getStatus() : this.jobStatusStore.getJobStatus(jobId);
+    }
+
+    private List<String> getBulkTranslationJobId(EntityReference root)
+    {
+        List<String> jobId = new ArrayList<>(BulkTranslationRequest.JOB_ID_PREFIX);
+        for (EntityReference reference : root.getReversedReferenceChain()) {
+            jobId.add(reference.getName());
+        }
+        return jobId;
+    }
+
+    /**
+     * Rebuilds the index of the translations of the current wiki from the database. The index is kept up to date when
+     * pages are saved or deleted, so this is only needed after the database has been modified directly.
+     *
+     * @return the number of translations found, or -1 if the current user is not an administrator of the wiki
+     * @throws MachineTranslationException in case the index cannot be rebuilt
+     * @since 1.3
+     */
+    public int rebuildTranslationIndex() throws MachineTranslationException
+    {
+        WikiReference wiki = this.xwikiContextProvider.get().getWikiReference();
+        if (!this.authorizationManager.hasAccess(Right.ADMIN, wiki)) {
+            return -1;
+        }
+        return this.translationIndex.rebuild(wiki);
+    }
+
+    /**
+     * Returns the hit and miss counters of the translation memory.
+     *
+     * @return the translation memory statistics, or null if the current user does not have programming rights
+     * @since 1.3
+     */
+    public Map<String, Object> getTranslationMemoryStatistics()
+    {
+        if (this.authorizationManager.hasAccess(Right.PROGRAM)) {
+            return this.translationMemory.getStatistics();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the latency, error, character and in-flight call metrics of the translator operations, for each
+     * provider and locale pair, along with the translation memory hit ratio. The same metrics are exposed over JMX.
+     *
+     * @return the translator metrics indexed by metric name, or null if the current user does not have programming
+     *     rights
+     * @since 1.3
+     */
+    public Map<String, Object> getTranslatorMetrics()
+    {
+        if (this.authorizationManager.hasAccess(Right.PROGRAM)) {
+            return this.translatorMetrics.getStatistics();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Returns statistics about the internals of the current translator, e.g. the state of its caches and the requests
+     * sent to the translation service, see {@link Translator#getStatistics()}.
+     *
+     * @return the statistics of the current translator, or null if there is no translator or the current user does
+     *     not have programming rights
+     * @since 1.3
+     */
+    public Map<String, Object> getTranslatorStatistics()
+    {
+        Translator translator = translatorManager.getTranslator();
+        if (translator != null && this.authorizationManager.hasAccess(Right.PROGRAM)) {
+            return translator.getStatistics();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the number of translations of pages traced so far and the total time spent in each of their phases
+     * (rights checks, document loading, rendering, translation service calls, conversion, saving, etc.).
+     *
+     * @return the tracing statistics, or null if the current user does not have programming rights
+     * @since 1.3
+     */
+    public Map<String, Object> getTranslationPhaseStatistics()
+    {
+        if (this.authorizationManager.hasAccess(Right.PROGRAM)) {
+            return this.translationTracer.getStatistics();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the last translations of pages which took longer than the configured slow translation threshold, along
+     * with the time spent in each of their phases. Each translation is described by its {@code reference},
+     * {@code locale}, {@code total} duration and {@code phases} durations, in milliseconds.
+     *
+     * @return the slow translations, the oldest first, or null if the current user does not have programming rights
+     * @since 1.3
+     */
+    public List<Map<String, Object>> getSlowTranslations()
+    {
+        if (this.authorizationManager.hasAccess(Right.PROGRAM)) {
+            List<Map<String, Object>> translations = new ArrayList<>();
+            for (TranslationTrace trace : this.translationTracer.getSlowTranslations()) {
+                Map<String, Object> translation = new LinkedHashMap<>();
+                translation.put("reference", trace.getReference());
+                translation.put("locale", trace.getLocale());
+                translation.put("total", trace.getTotal());
+                translation.put("phases", trace.getPhases());
+                translations.add(translation);
+            }
+            return translations;
+        } else {
+            return null;
+        }
+    }
+
     /**
      * Computes the location of a translation based on the original document and the translation title.
      *
@@ -0,0 +1,75 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for {@link AnnotatedHTMLProcessor}.
+ *
+ * @version $Id$
+ */
+class AnnotatedHTMLProcessorTest
+{
+    private static final String GLOSSARY_REFERENCE =
+        "<!--startmacro:glossaryReference|-|glossaryId=\"g1\" entryId=\"e1\"|-|wiki--><!--stopmacro-->";
+
+    @Test
+    void stripGlossaryReferences()
+    {
+        assertEquals("<p>A wiki page and a wiki</p>", AnnotatedHTMLProcessor.stripGlossaryReferences(
+            "<p>A " + GLOSSARY_REFERENCE + " page and a " + GLOSSARY_REFERENCE + "</p>"));
+    }
+
+    @Test
+    void stripGlossaryReferencesKeepsMalformedReferences()
+    {
+        String html = "<p><!--startmacro:glossaryReference|-|glossaryId=\"g1\"|-|wiki--><!--stopmacro--></p>";
+
+        assertEquals(html, AnnotatedHTMLProcessor.stripGlossaryReferences(html));
+    }
+
+    @Test
+    void protectComments()
+    {
+        assertEquals("<p><script class=\"notranslate\"><!--startwikilink:Page--></script>link"
+            + "<script class=\"notranslate\"><!--stopwikilink--></script></p>",
+            AnnotatedHTMLProcessor.protectComments("<p><!--startwikilink:Page-->link<!--stopwikilink--></p>"));
+    }
+
+    @Test
+    void unprotectComments()
+    {
+        String html = "<p>Text<!--startmacro:info|-||-|--><!--stopmacro--> and more text</p>";
+
+        assertEquals(html, AnnotatedHTMLProcessor.unprotectComments(AnnotatedHTMLProcessor.protectComments(html)));
+    }
+
+    @Test
+    void protectWithoutComments()
+    {
+        String html = "<p>No comment</p>";
+
+        assertEquals(html, AnnotatedHTMLProcessor.protectComments(html));
+        assertEquals(html, AnnotatedHTMLProcessor.unprotectComments(html));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for {@link AnnotatedHTMLSplitter}.
+ *
+ * @version $Id$
+ */
+class AnnotatedHTMLSplitterTest
+{
+    private static final String FIRST = "<p>aaaa</p>";
+
+    private static final String SECOND = "<p>bbbb</p>";
+
+    private static final String THIRD = "<p>cccc</p>";
+
+    @Test
+    void splitSmallContent()
+    {
+        String html = FIRST + SECOND;
+
+        assertEquals(Collections.singletonList(html), AnnotatedHTMLSplitter.split(html, 1000));
+    }
+
+    @Test
+    void splitOnTopLevelElements()
+    {
+        List<String> chunks = AnnotatedHTMLSplitter.split(FIRST + SECOND + THIRD, 20);
+
+        assertEquals(Arrays.asList(FIRST, SECOND, THIRD), chunks);
+    }
+
+    @Test
+    void splitKeepsNestedElementsTogether()
+    {
+        String div = "<div>" + FIRST + SECOND + "</div>";
+
+        assertEquals(Arrays.asList(div, THIRD), AnnotatedHTMLSplitter.split(div + THIRD, 20));
+    }
+
+    @Test
+    void splitKeepsMacroMarkersTogether()
+    {
+        String macro = "<!--startmacro:info|-||-|-->" + FIRST + SECOND + "<!--stopmacro-->";
+
+        assertEquals(Arrays.asList(macro, THIRD), AnnotatedHTMLSplitter.split(macro + THIRD, 20));
+    }
+
+    @Test
+    void splitSkipsScriptContent()
+    {
+        String script = "<script>if (a < b) { c(); }</script>";
+
+        assertEquals(Arrays.asList(FIRST + script, SECOND), AnnotatedHTMLSplitter.split(FIRST + script + SECOND,
+            50));
+    }
+
+    @Test
+    void getSize()
+    {
+        assertEquals(0, AnnotatedHTMLSplitter.getSize(""));
+        // 1 byte for a, 2 for e acute, 3 for the euro sign and 4 for the surrogate pair of the emoji.
+        assertEquals(10, AnnotatedHTMLSplitter.getSize("a\u00e9\u20ac\ud83d\ude00"));
+    }
+}
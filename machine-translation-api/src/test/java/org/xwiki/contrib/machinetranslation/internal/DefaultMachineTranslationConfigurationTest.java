@@ -0,0 +1,81 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DefaultMachineTranslationConfiguration}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class DefaultMachineTranslationConfigurationTest
+{
+    @InjectMockComponents
+    private DefaultMachineTranslationConfiguration configuration;
+
+    @MockComponent
+    @Named("machinetranslation")
+    private ConfigurationSource configurationSource;
+
+    @MockComponent
+    @Named("xwikiproperties")
+    private ConfigurationSource xwikiPropertiesSource;
+
+    @BeforeEach
+    void setUp()
+    {
+        // Nothing is configured in xwiki.properties.
+        when(this.xwikiPropertiesSource.getProperty(anyString(), any())).thenAnswer(
+            invocation -> invocation.getArgument(1));
+    }
+
+    @Test
+    void translationMemoryIsDisabledByDefault()
+    {
+        assertFalse(this.configuration.isTranslationMemoryEnabled());
+        assertEquals(90L, this.configuration.getTranslationMemoryMaxAge());
+    }
+
+    @Test
+    void enableTranslationMemory()
+    {
+        when(this.xwikiPropertiesSource.getProperty(eq("machinetranslation.translationMemory.enabled"), any()))
+            .thenReturn(true);
+
+        assertTrue(this.configuration.isTranslationMemoryEnabled());
+    }
+}
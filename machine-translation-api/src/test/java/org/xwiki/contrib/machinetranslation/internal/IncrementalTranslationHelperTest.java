@@ -0,0 +1,194 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.invocation.InvocationOnMock;
+import org.xwiki.contrib.machinetranslation.MachineTranslationConfiguration;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.ParagraphBlock;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.ContentParser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.test.LogLevel;
+import org.xwiki.test.junit5.LogCaptureExtension;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link IncrementalTranslationHelper}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class IncrementalTranslationHelperTest
+{
+    private static final DocumentReference ORIGINAL_REFERENCE = new DocumentReference("wiki", "Space", "Page");
+
+    private static final String SOURCE_VERSION = "1.1";
+
+    @InjectMockComponents
+    private IncrementalTranslationHelper helper;
+
+    @MockComponent
+    private MachineTranslationConfiguration configuration;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    @MockComponent
+    private ContentParser parser;
+
+    @MockComponent
+    @Named("annotatedhtml/5.0")
+    private BlockRenderer annotatedHTMLRenderer;
+
+    @MockComponent
+    @Named("xwiki/2.1")
+    private BlockRenderer wikiRenderer;
+
+    @RegisterExtension
+    private LogCaptureExtension logCapture = new LogCaptureExtension(LogLevel.INFO);
+
+    private XWikiContext xcontext;
+
+    private XWiki xwiki;
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        when(this.configuration.isIncrementalTranslationEnabled()).thenReturn(true);
+        this.xcontext = mock(XWikiContext.class);
+        this.xwiki = mock(XWiki.class);
+        when(this.xcontextProvider.get()).thenReturn(this.xcontext);
+        when(this.xcontext.getWiki()).thenReturn(this.xwiki);
+
+        // The paragraphs of the test contents are made of a single word and separated by a blank line.
+        when(this.parser.parse(anyString(), eq(Syntax.XWIKI_2_1))).thenAnswer(invocation -> {
+            List<Block> paragraphs = new ArrayList<>();
+            for (String word : invocation.<String>getArgument(0).split("\n\n")) {
+                paragraphs.add(new ParagraphBlock(List.of(new WordBlock(word))));
+            }
+            return new XDOM(paragraphs);
+        });
+        doAnswer(invocation -> print(invocation, "<p>%s</p>")).when(this.annotatedHTMLRenderer)
+            .render(any(Block.class), any(WikiPrinter.class));
+        doAnswer(invocation -> print(invocation, "%s")).when(this.wikiRenderer)
+            .render(any(Block.class), any(WikiPrinter.class));
+    }
+
+    @Test
+    void retranslateAfterOneParagraphEdit() throws Exception
+    {
+        XWikiDocument translation = mockTranslation(SOURCE_VERSION, "Un\n\nDeux\n\nTrois");
+        XWikiDocument previousOriginal = mock(XWikiDocument.class);
+        when(previousOriginal.getContent()).thenReturn("One\n\nTwo\n\nThree");
+        XWikiDocument original = mock(XWikiDocument.class);
+        when(original.getDocumentReference()).thenReturn(ORIGINAL_REFERENCE);
+        when(original.getContent()).thenReturn("One\n\nTwo edited\n\nThree");
+        when(this.xwiki.getDocument(original, SOURCE_VERSION, this.xcontext)).thenReturn(previousOriginal);
+
+        IncrementalTranslationHelper.Changes changes =
+            this.helper.getChanges(original, this.helper.getPreviousTranslation(translation));
+
+        // Only the edited paragraph is sent to the translator.
+        assertEquals(1, changes.getChangedBlocks().size());
+        assertEquals("Two edited", ((WordBlock) changes.getChangedBlocks().get(0).getChildren().get(0)).getWord());
+        assertEquals("Un\n\nDeux modifié\n\nTrois", changes.merge(List.of("Deux modifié")));
+        assertEquals("Translating [wiki:Space.Page] incrementally: [1] of [3] blocks have changed",
+            this.logCapture.getMessage(0));
+    }
+
+    @Test
+    void getPreviousTranslationWithoutTranslationObject()
+    {
+        XWikiDocument translation = mock(XWikiDocument.class);
+
+        assertNull(this.helper.getPreviousTranslation(translation));
+    }
+
+    @Test
+    void getPreviousTranslationWhenDisabled()
+    {
+        when(this.configuration.isIncrementalTranslationEnabled()).thenReturn(false);
+        XWikiDocument translation = mockTranslation(SOURCE_VERSION, "Un");
+
+        assertNull(this.helper.getPreviousTranslation(translation));
+    }
+
+    @Test
+    void getChangesWhenTheBlocksDoNotMatch() throws Exception
+    {
+        XWikiDocument translation = mockTranslation(SOURCE_VERSION, "Un\n\nDeux");
+        XWikiDocument previousOriginal = mock(XWikiDocument.class);
+        when(previousOriginal.getContent()).thenReturn("One\n\nTwo\n\nThree");
+        XWikiDocument original = mock(XWikiDocument.class);
+        when(original.getDocumentReference()).thenReturn(ORIGINAL_REFERENCE);
+        when(this.xwiki.getDocument(original, SOURCE_VERSION, this.xcontext)).thenReturn(previousOriginal);
+
+        assertNull(this.helper.getChanges(original, this.helper.getPreviousTranslation(translation)));
+    }
+
+    private XWikiDocument mockTranslation(String sourceVersion, String content)
+    {
+        XWikiDocument translation = mock(XWikiDocument.class);
+        BaseObject translationObj = mock(BaseObject.class);
+        when(translation.getXObject(AbstractTranslator.TRANSLATION_CLASS_REFERENCE)).thenReturn(translationObj);
+        when(translationObj.getStringValue(AbstractTranslator.SOURCE_VERSION_PROPERTY)).thenReturn(sourceVersion);
+        when(translation.getDocumentReference()).thenReturn(new DocumentReference("wiki", "fr", "Page"));
+        when(translation.getContent()).thenReturn(content);
+        return translation;
+    }
+
+    private Object print(InvocationOnMock invocation, String format)
+    {
+        Block block = invocation.getArgument(0);
+        WikiPrinter printer = invocation.getArgument(1);
+        printer.print(String.format(format, ((WordBlock) block.getChildren().get(0)).getWord()));
+        return null;
+    }
+}
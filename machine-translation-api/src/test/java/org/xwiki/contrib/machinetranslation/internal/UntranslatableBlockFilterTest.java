@@ -0,0 +1,138 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.xwiki.contrib.machinetranslation.MachineTranslationConfiguration;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.MacroBlock;
+import org.xwiki.rendering.block.ParagraphBlock;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link UntranslatableBlockFilter}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class UntranslatableBlockFilterTest
+{
+    private static final String CODE = "int answer = 42;";
+
+    private static final String PLACEHOLDER = "{{mtplaceholder id=\"0\"/}}";
+
+    @InjectMockComponents
+    private UntranslatableBlockFilter filter;
+
+    @MockComponent
+    private MachineTranslationConfiguration configuration;
+
+    @MockComponent
+    @Named("xwiki/2.1")
+    private BlockRenderer wikiRenderer;
+
+    @MockComponent
+    @Named("annotatedhtml/5.0")
+    private BlockRenderer annotatedHTMLRenderer;
+
+    @BeforeEach
+    void setUp()
+    {
+        when(this.configuration.getUntranslatableMacros()).thenReturn("code, formula");
+
+        // Macros are rendered as wiki syntax, and only their content is rendered as annotated HTML.
+        doAnswer(invocation -> print(invocation, true)).when(this.wikiRenderer).render(any(Block.class),
+            any(WikiPrinter.class));
+        doAnswer(invocation -> print(invocation, false)).when(this.annotatedHTMLRenderer).render(any(Block.class),
+            any(WikiPrinter.class));
+    }
+
+    @Test
+    void replaceAndRestore()
+    {
+        MacroBlock code = new MacroBlock("code", Collections.emptyMap(), CODE, true);
+        ParagraphBlock paragraph = new ParagraphBlock(List.of(new WordBlock("Hello"), code));
+        MacroBlock info = new MacroBlock("info", Collections.emptyMap(), "Translated", false);
+        XDOM xdom = new XDOM(List.of(paragraph, info));
+
+        UntranslatableBlockFilter.Placeholders placeholders = this.filter.replace(xdom);
+
+        MacroBlock placeholder = (MacroBlock) paragraph.getChildren().get(1);
+        assertEquals("mtplaceholder", placeholder.getId());
+        assertEquals("0", placeholder.getParameter("id"));
+        assertSame(info, xdom.getChildren().get(1));
+        assertEquals(CODE.length(), placeholders.getSkippedCharacters());
+        assertEquals("Bonjour {{code}}" + CODE + "{{/code}}", placeholders.restore("Bonjour " + PLACEHOLDER));
+    }
+
+    @Test
+    void restoreKeepsUnknownPlaceholders()
+    {
+        XDOM xdom = new XDOM(List.of(new MacroBlock("formula", Collections.emptyMap(), "x^2", false)));
+
+        UntranslatableBlockFilter.Placeholders placeholders = this.filter.replace(xdom);
+
+        String unknown = "{{mtplaceholder id=\"1\"/}}";
+        assertEquals("{{formula}}x^2{{/formula}} " + unknown, placeholders.restore(PLACEHOLDER + " " + unknown));
+    }
+
+    @Test
+    void replaceWithoutUntranslatableBlocks()
+    {
+        XDOM xdom = new XDOM(List.of(new ParagraphBlock(List.of(new WordBlock("Hello")))));
+
+        UntranslatableBlockFilter.Placeholders placeholders = this.filter.replace(xdom);
+
+        assertSame(UntranslatableBlockFilter.Placeholders.NONE, placeholders);
+        assertEquals(PLACEHOLDER, placeholders.restore(PLACEHOLDER));
+    }
+
+    private Object print(InvocationOnMock invocation, boolean wikiSyntax)
+    {
+        Block block = invocation.getArgument(0);
+        WikiPrinter printer = invocation.getArgument(1);
+        if (block instanceof MacroBlock) {
+            MacroBlock macro = (MacroBlock) block;
+            String content = macro.getContent() != null ? macro.getContent() : "";
+            printer.print(wikiSyntax ? String.format("{{%s}}%s{{/%s}}", macro.getId(), content, macro.getId())
+                : content);
+        }
+        return null;
+    }
+}
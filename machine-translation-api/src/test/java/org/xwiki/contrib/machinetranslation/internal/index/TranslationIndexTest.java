@@ -0,0 +1,223 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.index;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.contrib.machinetranslation.internal.AbstractTranslator;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.text.StringUtils;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link TranslationIndex}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class TranslationIndexTest
+{
+    private static final String WIKI = "wiki";
+
+    private static final DocumentReference ORIGINAL = new DocumentReference(WIKI, "Space", "Original");
+
+    private static final DocumentReference OTHER_ORIGINAL = new DocumentReference(WIKI, "Space", "Other");
+
+    private static final DocumentReference FRENCH = new DocumentReference(WIKI, "Space", "French");
+
+    private static final DocumentReference GERMAN = new DocumentReference(WIKI, "Space", "German");
+
+    private static final Date DATE = new Date(1000L);
+
+    @InjectMockComponents
+    private TranslationIndex index;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @MockComponent
+    @Named("current")
+    private DocumentReferenceResolver<String> referenceResolver;
+
+    private final List<Object[]> dates = new ArrayList<>();
+
+    private final List<Object[]> translations = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        // Local references of the "Space" space only.
+        when(this.referenceResolver.resolve(anyString(), any())).thenAnswer(invocation -> {
+            EntityReference parent = invocation.getArgument(1);
+            return new DocumentReference(parent.extractReference(EntityType.WIKI).getName(), "Space",
+                StringUtils.substringAfter(invocation.getArgument(0), "."));
+        });
+
+        Query datesQuery = mockQuery(this.dates);
+        when(this.queryManager.createQuery(contains("DateProperty"), eq(Query.HQL))).thenReturn(datesQuery);
+        Query translationsQuery = mockQuery(this.translations);
+        when(this.queryManager.createQuery(contains("StringProperty"), eq(Query.HQL))).thenReturn(translationsQuery);
+
+        this.dates.add(new Object[] {"Space.French", DATE});
+        this.translations.add(new Object[] {"Space.French", "Titre", "fr", "Space.Original"});
+    }
+
+    @Test
+    void loadOnFirstUse() throws Exception
+    {
+        List<TranslationIndexEntry> entries = this.index.getTranslations(ORIGINAL);
+
+        assertEquals(1, entries.size());
+        TranslationIndexEntry entry = entries.get(0);
+        assertEquals(FRENCH, entry.getReference());
+        assertEquals(Locale.FRENCH, entry.getLocale());
+        assertEquals("Titre", entry.getTitle());
+        assertEquals(DATE, entry.getDate());
+        assertTrue(this.index.getTranslations(OTHER_ORIGINAL).isEmpty());
+
+        // The index of the wiki is loaded only once.
+        this.index.getTranslations(ORIGINAL);
+        verify(this.queryManager, times(2)).createQuery(anyString(), eq(Query.HQL));
+    }
+
+    @Test
+    void update() throws Exception
+    {
+        this.index.getTranslations(ORIGINAL);
+
+        this.index.update(mockTranslation(GERMAN, Locale.GERMAN, "Space.Original"));
+
+        assertEquals(List.of(FRENCH, GERMAN), getReferences(ORIGINAL));
+
+        // The translation now belongs to another original page.
+        this.index.update(mockTranslation(FRENCH, Locale.FRENCH, "Space.Other"));
+
+        assertEquals(List.of(GERMAN), getReferences(ORIGINAL));
+        assertEquals(List.of(FRENCH), getReferences(OTHER_ORIGINAL));
+
+        // The translation object has been removed.
+        this.index.update(mockTranslation(GERMAN, Locale.GERMAN, ""));
+
+        assertTrue(this.index.getTranslations(ORIGINAL).isEmpty());
+    }
+
+    @Test
+    void updateBeforeLoad() throws Exception
+    {
+        this.index.update(mockTranslation(GERMAN, Locale.GERMAN, "Space.Original"));
+
+        verify(this.queryManager, never()).createQuery(anyString(), anyString());
+        // The index is loaded from the database, which already holds the saved document.
+        assertEquals(List.of(FRENCH), getReferences(ORIGINAL));
+    }
+
+    @Test
+    void remove() throws Exception
+    {
+        this.index.getTranslations(ORIGINAL);
+
+        this.index.remove(FRENCH);
+
+        assertTrue(this.index.getTranslations(ORIGINAL).isEmpty());
+    }
+
+    @Test
+    void invalidate() throws Exception
+    {
+        this.index.getTranslations(ORIGINAL);
+        this.translations.clear();
+
+        this.index.invalidate(WIKI);
+
+        assertTrue(this.index.getTranslations(ORIGINAL).isEmpty());
+        verify(this.queryManager, times(4)).createQuery(anyString(), eq(Query.HQL));
+    }
+
+    @Test
+    void invalidateOtherWiki() throws Exception
+    {
+        this.index.getTranslations(ORIGINAL);
+        this.translations.clear();
+
+        this.index.invalidate("other");
+
+        assertEquals(List.of(FRENCH), getReferences(ORIGINAL));
+    }
+
+    private List<DocumentReference> getReferences(DocumentReference original) throws Exception
+    {
+        List<DocumentReference> references = new ArrayList<>();
+        for (TranslationIndexEntry entry : this.index.getTranslations(original)) {
+            references.add(entry.getReference());
+        }
+        return references;
+    }
+
+    private Query mockQuery(List<Object[]> results) throws Exception
+    {
+        Query query = mock(Query.class);
+        when(query.setWiki(anyString())).thenReturn(query);
+        when(query.bindValue(anyString(), any())).thenReturn(query);
+        when(query.execute()).thenAnswer(invocation -> new ArrayList<>(results));
+        return query;
+    }
+
+    private XWikiDocument mockTranslation(DocumentReference reference, Locale locale, String originalPage)
+    {
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReference()).thenReturn(reference);
+        when(document.getDefaultLocale()).thenReturn(locale);
+        when(document.getTitle()).thenReturn(reference.getName());
+        BaseObject translationObj = mock(BaseObject.class);
+        when(translationObj.getStringValue(AbstractTranslator.ORIGINAL_PAGE_PROPERTY)).thenReturn(originalPage);
+        when(translationObj.getDateValue(AbstractTranslator.TRANSLATION_DATE_PROPERTY)).thenReturn(DATE);
+        when(document.getXObject(AbstractTranslator.TRANSLATION_CLASS_REFERENCE)).thenReturn(translationObj);
+        return document;
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.job;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.contrib.machinetranslation.MachineTranslationConfiguration;
+import org.xwiki.contrib.machinetranslation.Translator;
+import org.xwiki.contrib.machinetranslation.TranslatorManager;
+import org.xwiki.contrib.machinetranslation.internal.DefaultUsage;
+import org.xwiki.contrib.machinetranslation.job.BulkTranslationJobStatus;
+import org.xwiki.contrib.machinetranslation.job.BulkTranslationRequest;
+import org.xwiki.contrib.machinetranslation.model.TranslationEstimate;
+import org.xwiki.contrib.machinetranslation.model.TranslationResult;
+import org.xwiki.environment.Environment;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.web.Utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link BulkTranslationJob}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class BulkTranslationJobTest
+{
+    private static final WikiReference WIKI = new WikiReference("wiki");
+
+    private static final List<Locale> LOCALES = Collections.singletonList(Locale.FRENCH);
+
+    @InjectMockComponents
+    private BulkTranslationJob job;
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @MockComponent
+    private TranslatorManager translatorManager;
+
+    @MockComponent
+    private MachineTranslationConfiguration configuration;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @MockComponent
+    @Named("current")
+    private DocumentReferenceResolver<String> documentReferenceResolver;
+
+    @MockComponent
+    @Named("default")
+    private EntityReferenceSerializer<String> serializer;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    @MockComponent
+    private Environment environment;
+
+    @MockComponent
+    private Execution execution;
+
+    @MockComponent
+    private ExecutionContextManager executionContextManager;
+
+    private Translator translator;
+
+    /**
+     * The characters counted in the usage of the translator.
+     */
+    private final AtomicLong usage = new AtomicLong();
+
+    private long limit;
+
+    private final List<DocumentReference> translated = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        // The workers run with an execution context initialized through the static component manager.
+        Utils.setComponentManager(this.componentManager);
+
+        this.translator = mock(Translator.class);
+        when(this.translatorManager.getTranslator()).thenReturn(this.translator);
+        when(this.translator.isTranslatable(any())).thenReturn(true);
+        when(this.translator.getUsage()).thenAnswer(invocation -> new DefaultUsage(this.usage.get(), this.limit));
+        when(this.translator.estimate(any(), any())).thenAnswer(invocation -> {
+            DocumentReference document = invocation.getArgument(0);
+            TranslationEstimate estimate = new TranslationEstimate(document);
+            estimate.add(Locale.FRENCH, getCharacters(document), 0, 0);
+            return estimate;
+        });
+        when(this.translator.translateToLocales(any(), any())).thenAnswer(invocation -> {
+            DocumentReference document = invocation.getArgument(0);
+            this.usage.addAndGet(getCharacters(document));
+            this.translated.add(document);
+            return Collections.singletonList(new TranslationResult(Locale.FRENCH, document, null));
+        });
+
+        when(this.documentReferenceResolver.resolve(anyString(), any()))
+            .thenAnswer(invocation -> new DocumentReference("wiki", "Space", invocation.getArgument(0)));
+        when(this.serializer.serialize(any())).thenAnswer(invocation -> String.valueOf(invocation.getArgument(0)));
+
+        XWikiContext xcontext = mock(XWikiContext.class);
+        when(xcontext.clone()).thenReturn(xcontext);
+        when(this.xcontextProvider.get()).thenReturn(xcontext);
+        when(this.environment.getPermanentDirectory())
+            .thenReturn(Files.createTempDirectory(Paths.get("target"), "bulk").toFile());
+    }
+
+    @Test
+    void translateTheCheapestDocumentsFittingInTheQuota() throws Exception
+    {
+        mockDocuments("Large30", "Small10", "Medium20");
+        this.limit = 35;
+
+        BulkTranslationJobStatus status = run();
+
+        assertEquals(Arrays.asList(getReference("Small10"), getReference("Medium20")), this.translated);
+        assertEquals(2, status.getTranslatedDocuments());
+        assertEquals(1, status.getDeferredDocuments());
+        assertEquals(0, status.getFailedDocuments());
+        assertEquals(30, status.getCharacters());
+        assertEquals(60, status.getEstimatedCharacters());
+    }
+
+    @Test
+    void translateAllDocumentsWithoutLimit() throws Exception
+    {
+        mockDocuments("Large30", "Small10", "Medium20");
+
+        BulkTranslationJobStatus status = run();
+
+        assertEquals(3, status.getTranslatedDocuments());
+        assertEquals(0, status.getDeferredDocuments());
+    }
+
+    @Test
+    void deferAllDocumentsWhenTheQuotaIsExhausted() throws Exception
+    {
+        mockDocuments("Large30", "Small10");
+        this.limit = 100;
+        this.usage.set(100);
+
+        BulkTranslationJobStatus status = run();
+
+        // The job starts anyway, the documents being deferred without being estimated.
+        assertEquals(0, status.getTranslatedDocuments());
+        assertEquals(2, status.getDeferredDocuments());
+        verify(this.translator, never()).estimate(any(), any());
+    }
+
+    @Test
+    void resume() throws Exception
+    {
+        mockDocuments("Large30", "Small10", "Medium20");
+        this.limit = 35;
+        run();
+        this.translated.clear();
+
+        // The quota has been renewed.
+        this.usage.set(0);
+        BulkTranslationRequest request = createRequest();
+        request.setResume(true);
+        BulkTranslationJobStatus status = run(request);
+
+        assertEquals(Collections.singletonList(getReference("Large30")), this.translated);
+        assertEquals(2, status.getSkippedDocuments());
+        assertEquals(1, status.getTranslatedDocuments());
+    }
+
+    private BulkTranslationJobStatus run() throws Exception
+    {
+        return run(createRequest());
+    }
+
+    private BulkTranslationJobStatus run(BulkTranslationRequest request) throws Exception
+    {
+        this.job.initialize(request);
+        this.job.runInternal();
+        return this.job.getStatus();
+    }
+
+    private BulkTranslationRequest createRequest()
+    {
+        BulkTranslationRequest request = new BulkTranslationRequest();
+        request.setRoot(WIKI);
+        request.setLocales(LOCALES);
+        // A single worker, so that the documents are translated in order.
+        request.setWorkers(1);
+        return request;
+    }
+
+    private void mockDocuments(String... names) throws Exception
+    {
+        Query query = mock(Query.class);
+        when(query.bindValue(anyString(), any())).thenReturn(query);
+        when(query.setWiki(anyString())).thenReturn(query);
+        when(query.execute()).thenReturn(Arrays.asList((Object[]) names));
+        when(this.queryManager.createQuery(anyString(), any())).thenReturn(query);
+    }
+
+    private static DocumentReference getReference(String name)
+    {
+        return new DocumentReference("wiki", "Space", name);
+    }
+
+    /**
+     * The documents are named after the number of characters they send.
+     */
+    private static long getCharacters(EntityReference document)
+    {
+        return Long.parseLong(document.getName().replaceAll("\\D", ""));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.job;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.contrib.machinetranslation.Translator;
+import org.xwiki.contrib.machinetranslation.internal.DefaultUsage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link TranslationQuota}.
+ *
+ * @version $Id$
+ */
+class TranslationQuotaTest
+{
+    private Translator translator;
+
+    private TranslationQuota quota;
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.translator = mock(Translator.class);
+        this.quota = new TranslationQuota(this.translator);
+    }
+
+    @Test
+    void unlimited() throws Exception
+    {
+        this.quota.refresh();
+
+        assertEquals(Long.MAX_VALUE, this.quota.getRemaining());
+        assertTrue(this.quota.reserve(Long.MAX_VALUE / 2));
+
+        when(this.translator.getUsage()).thenReturn(new DefaultUsage(1000, 0));
+
+        assertEquals(Long.MAX_VALUE, this.quota.getRemaining());
+        assertTrue(this.quota.reserve(Long.MAX_VALUE / 2));
+    }
+
+    @Test
+    void reserveUntilExhausted() throws Exception
+    {
+        when(this.translator.getUsage()).thenReturn(new DefaultUsage(0, 100));
+        this.quota.refresh();
+
+        assertTrue(this.quota.reserve(60));
+        assertEquals(40, this.quota.getRemaining());
+        assertFalse(this.quota.reserve(50));
+        assertTrue(this.quota.isExhausted());
+        // The following reservations of the batch fail too, even if they would fit.
+        assertFalse(this.quota.reserve(10));
+    }
+
+    @Test
+    void countSentCharactersOnce() throws Exception
+    {
+        when(this.translator.getUsage()).thenReturn(new DefaultUsage(0, 100));
+        this.quota.refresh();
+        assertTrue(this.quota.reserve(60));
+
+        // The reserved characters have been sent, and are now counted in the usage too.
+        when(this.translator.getUsage()).thenReturn(new DefaultUsage(60, 100));
+
+        assertEquals(40, this.quota.getRemaining());
+        assertTrue(this.quota.reserve(40));
+        assertEquals(0, this.quota.getRemaining());
+    }
+
+    @Test
+    void countUsageExceedingReservations() throws Exception
+    {
+        when(this.translator.getUsage()).thenReturn(new DefaultUsage(0, 100));
+        this.quota.refresh();
+        assertTrue(this.quota.reserve(10));
+
+        // Characters sent by other translations meanwhile.
+        when(this.translator.getUsage()).thenReturn(new DefaultUsage(50, 100));
+
+        assertEquals(50, this.quota.getRemaining());
+        assertFalse(this.quota.reserve(60));
+    }
+
+    @Test
+    void refreshForgetsTheReservationsOfThePreviousBatch() throws Exception
+    {
+        when(this.translator.getUsage()).thenReturn(new DefaultUsage(0, 100));
+        this.quota.refresh();
+        assertTrue(this.quota.reserve(80));
+        assertFalse(this.quota.reserve(80));
+
+        // The quota has been renewed.
+        when(this.translator.getUsage()).thenReturn(new DefaultUsage(0, 100));
+        this.quota.refresh();
+
+        assertFalse(this.quota.isExhausted());
+        assertEquals(100, this.quota.getRemaining());
+        assertTrue(this.quota.reserve(80));
+    }
+
+    @Test
+    void refreshWhenExhausted() throws Exception
+    {
+        when(this.translator.getUsage()).thenReturn(new DefaultUsage(100, 100));
+        this.quota.refresh();
+
+        assertTrue(this.quota.isExhausted());
+        assertFalse(this.quota.reserve(1));
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.memory;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.contrib.machinetranslation.MachineTranslationConfiguration;
+import org.xwiki.environment.Environment;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link TranslationMemory}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class TranslationMemoryTest
+{
+    private static final String DEEPL = "DeepL";
+
+    private static final long MAX_AGE_DAYS = 30L;
+
+    @InjectMockComponents
+    private TranslationMemory memory;
+
+    @MockComponent
+    private MachineTranslationConfiguration configuration;
+
+    @MockComponent
+    private CacheManager cacheManager;
+
+    @MockComponent
+    private Environment environment;
+
+    private final Map<String, String> hotTier = new HashMap<>();
+
+    private Path directory;
+
+    private Path expiredEntry;
+
+    private Path recentEntry;
+
+    @BeforeComponent
+    @SuppressWarnings("unchecked")
+    void configure() throws Exception
+    {
+        Cache<String> cache = mock(Cache.class);
+        when(cache.get(anyString())).thenAnswer(invocation -> this.hotTier.get(invocation.getArgument(0)));
+        doAnswer(invocation -> this.hotTier.put(invocation.getArgument(0), invocation.getArgument(1))).when(cache)
+            .set(anyString(), anyString());
+        when(this.cacheManager.<String>createNewCache(any())).thenReturn(cache);
+
+        File permanentDirectory = Files.createTempDirectory(Paths.get("target"), "memory").toFile();
+        when(this.environment.getPermanentDirectory()).thenReturn(permanentDirectory);
+        when(this.configuration.getTranslationMemoryMaxAge()).thenReturn(MAX_AGE_DAYS);
+
+        // Entries written before the memory is initialized, for the cleanup performed at startup.
+        this.directory = new File(permanentDirectory, "machinetranslation/memory").toPath();
+        this.expiredEntry = writeEntry("00expired", MAX_AGE_DAYS + 1);
+        this.recentEntry = writeEntry("00recent", MAX_AGE_DAYS - 1);
+    }
+
+    @Test
+    void getKeyIsStable()
+    {
+        assertEquals(getKey("Hello", ""), getKey("Hello", ""));
+    }
+
+    @Test
+    void getKeyDependsOnTheExactContent()
+    {
+        assertNotEquals(getKey("Hello", ""), getKey("Hello ", ""));
+        assertNotEquals(getKey("Hello", ""), getKey(" Hello", ""));
+        assertNotEquals(getKey("Hello", ""), getKey("hello", ""));
+    }
+
+    @Test
+    void getKeyDependsOnTheTranslationParameters()
+    {
+        String key = getKey("Hello", "");
+        assertNotEquals(key, this.memory.getKey("Pseudo", "Hello", Locale.ENGLISH, Locale.FRENCH, true, ""));
+        assertNotEquals(key, this.memory.getKey(DEEPL, "Hello", Locale.ENGLISH, Locale.GERMAN, true, ""));
+        assertNotEquals(key, this.memory.getKey(DEEPL, "Hello", Locale.ENGLISH, Locale.FRENCH, false, ""));
+        assertNotEquals(key, getKey("Hello", "glossary-1"));
+    }
+
+    @Test
+    void putAndGet()
+    {
+        String key = getKey("Hello", "");
+        assertFalse(this.memory.contains(key));
+        assertNull(this.memory.get(key));
+
+        this.memory.put(key, "Bonjour");
+
+        assertTrue(this.memory.contains(key));
+        assertEquals("Bonjour", this.memory.get(key));
+        assertEquals(1L, this.memory.getStatistics().get("memoryHits"));
+        assertEquals(1L, this.memory.getStatistics().get("misses"));
+    }
+
+    @Test
+    void getFromDiskAfterRestart() throws Exception
+    {
+        String key = getKey("Hello", "");
+        this.memory.put(key, "Bonjour");
+        this.hotTier.clear();
+        Path file = this.directory.resolve(key.substring(0, 2)).resolve(key);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(daysAgo(1)));
+
+        assertEquals("Bonjour", this.memory.get(key));
+        assertEquals(1L, this.memory.getStatistics().get("diskHits"));
+        // Reading an entry keeps it from expiring.
+        assertTrue(Files.getLastModifiedTime(file).toMillis() > daysAgo(1));
+    }
+
+    @Test
+    void deleteExpiredEntries() throws Exception
+    {
+        long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (Files.exists(this.expiredEntry) && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+
+        assertFalse(Files.exists(this.expiredEntry));
+        assertTrue(Files.exists(this.recentEntry));
+    }
+
+    @Test
+    void isEnabled()
+    {
+        assertFalse(this.memory.isEnabled());
+
+        when(this.configuration.isTranslationMemoryEnabled()).thenReturn(true);
+
+        assertTrue(this.memory.isEnabled());
+    }
+
+    private String getKey(String content, String glossaryVersion)
+    {
+        return this.memory.getKey(DEEPL, content, Locale.ENGLISH, Locale.FRENCH, true, glossaryVersion);
+    }
+
+    private Path writeEntry(String key, long age) throws Exception
+    {
+        Path file = this.directory.resolve(key.substring(0, 2)).resolve(key);
+        Files.createDirectories(file.getParent());
+        Files.write(file, key.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(daysAgo(age)));
+        return file;
+    }
+
+    private static long daysAgo(long days)
+    {
+        return System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days);
+    }
+}
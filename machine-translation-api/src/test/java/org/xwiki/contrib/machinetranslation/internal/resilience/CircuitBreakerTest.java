@@ -0,0 +1,113 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link CircuitBreaker}.
+ *
+ * @version $Id$
+ */
+class CircuitBreakerTest
+{
+    private static final long ONE_MINUTE = 60_000L;
+
+    @Test
+    void openAfterConsecutiveFailures()
+    {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(3, ONE_MINUTE);
+
+        assertTrue(circuitBreaker.allowCall());
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        circuitBreaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowCall());
+        assertEquals(1L, circuitBreaker.getStatistics().get("openings"));
+        assertEquals(1L, circuitBreaker.getStatistics().get("rejectedCalls"));
+    }
+
+    @Test
+    void successResetsFailures()
+    {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(3, ONE_MINUTE);
+
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowCall());
+    }
+
+    @Test
+    void closeAfterSuccessfulTrial()
+    {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, 0);
+
+        circuitBreaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowCall());
+        // A single trial call at a time.
+        assertFalse(circuitBreaker.allowCall());
+        circuitBreaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowCall());
+        assertTrue(circuitBreaker.allowCall());
+    }
+
+    @Test
+    void reopenAfterFailedTrial()
+    {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(3, 0);
+
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        // The trial call fails.
+        assertTrue(circuitBreaker.allowCall());
+        circuitBreaker.onFailure();
+
+        assertEquals(2L, circuitBreaker.getStatistics().get("openings"));
+    }
+
+    @Test
+    void ignoredTrialAllowsAnotherTrial()
+    {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, 0);
+
+        circuitBreaker.onFailure();
+        assertTrue(circuitBreaker.allowCall());
+        assertFalse(circuitBreaker.allowCall());
+        circuitBreaker.onIgnored();
+
+        assertTrue(circuitBreaker.allowCall());
+    }
+}
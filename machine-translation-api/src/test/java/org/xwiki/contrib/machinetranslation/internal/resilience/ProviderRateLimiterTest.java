@@ -0,0 +1,118 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.resilience;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link ProviderRateLimiter}.
+ *
+ * @version $Id$
+ */
+class ProviderRateLimiterTest
+{
+    private static final String IN_FLIGHT = "inFlight";
+
+    private static final String CONCURRENCY_LIMIT = "concurrencyLimit";
+
+    @Test
+    void acquireAndClose() throws Exception
+    {
+        ProviderRateLimiter rateLimiter = new ProviderRateLimiter(0, 0, 2);
+
+        ProviderRateLimiter.Permit permit = rateLimiter.acquire(10);
+        assertEquals(1, rateLimiter.getStatistics().get(IN_FLIGHT));
+        permit.close();
+
+        assertEquals(0, rateLimiter.getStatistics().get(IN_FLIGHT));
+        assertEquals(1L, rateLimiter.getStatistics().get("requests"));
+        assertEquals(2, rateLimiter.getStatistics().get(CONCURRENCY_LIMIT));
+    }
+
+    @Test
+    void throttledHalvesConcurrency() throws Exception
+    {
+        ProviderRateLimiter rateLimiter = new ProviderRateLimiter(0, 0, 4);
+
+        rateLimiter.acquire(10).throttled(0);
+
+        assertEquals(2, rateLimiter.getStatistics().get(CONCURRENCY_LIMIT));
+        assertEquals(1L, rateLimiter.getStatistics().get("throttled"));
+        assertEquals(0, rateLimiter.getStatistics().get(IN_FLIGHT));
+    }
+
+    @Test
+    void failedKeepsConcurrency() throws Exception
+    {
+        ProviderRateLimiter rateLimiter = new ProviderRateLimiter(0, 0, 4);
+
+        ProviderRateLimiter.Permit permit = rateLimiter.acquire(10);
+        permit.failed();
+        // A permit is only released once.
+        permit.close();
+
+        assertEquals(4, rateLimiter.getStatistics().get(CONCURRENCY_LIMIT));
+        assertEquals(0, rateLimiter.getStatistics().get(IN_FLIGHT));
+    }
+
+    @Test
+    void acquireWaitsForConcurrentRequests() throws Exception
+    {
+        ProviderRateLimiter rateLimiter = new ProviderRateLimiter(0, 0, 1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ProviderRateLimiter.Permit permit = rateLimiter.acquire(10);
+            Future<ProviderRateLimiter.Permit> next = executor.submit(() -> rateLimiter.acquire(10));
+            assertThrows(TimeoutException.class, () -> next.get(100, TimeUnit.MILLISECONDS));
+
+            permit.close();
+
+            assertNotNull(next.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void acquireWaitsForRequestTokens() throws Exception
+    {
+        ProviderRateLimiter rateLimiter = new ProviderRateLimiter(2, 0, 4);
+        // The bucket holds one second worth of requests.
+        rateLimiter.acquire(10).close();
+        rateLimiter.acquire(10).close();
+
+        long start = System.nanoTime();
+        rateLimiter.acquire(10).close();
+
+        // The next request token is available after half a second.
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(250));
+    }
+}
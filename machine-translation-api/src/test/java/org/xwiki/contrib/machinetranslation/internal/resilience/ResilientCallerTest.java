@@ -0,0 +1,172 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.internal.resilience;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.contrib.machinetranslation.internal.resilience.ResilientCaller.ErrorType;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for {@link ResilientCaller}.
+ *
+ * @version $Id$
+ */
+class ResilientCallerTest
+{
+    private static final String OPERATION = "translate";
+
+    private static final String RESULT = "result";
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final int MAX_CONCURRENCY = 4;
+
+    private static final String IN_FLIGHT = "inFlight";
+
+    private static final String CONCURRENCY_LIMIT = "concurrencyLimit";
+
+    private CircuitBreaker circuitBreaker;
+
+    private ProviderRateLimiter rateLimiter;
+
+    private ResilientCaller caller;
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    /**
+     * An error returned by the provider, classified by its type.
+     */
+    private static final class ProviderException extends Exception
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final ErrorType type;
+
+        ProviderException(ErrorType type)
+        {
+            super(type.name());
+            this.type = type;
+        }
+    }
+
+    @BeforeEach
+    void setUp()
+    {
+        this.circuitBreaker = new CircuitBreaker(MAX_ATTEMPTS, 60_000L);
+        this.rateLimiter = new ProviderRateLimiter(0, 0, MAX_CONCURRENCY);
+        this.caller = new ResilientCaller("Provider", MAX_ATTEMPTS, 1L, 2L, e -> ((ProviderException) e).type,
+            this.circuitBreaker, this.rateLimiter);
+    }
+
+    @Test
+    void callSucceeding() throws Exception
+    {
+        assertEquals(RESULT, this.caller.call(OPERATION, 10, () -> RESULT));
+
+        assertEquals(1L, this.rateLimiter.getStatistics().get("requests"));
+        assertEquals(0, this.rateLimiter.getStatistics().get(IN_FLIGHT));
+        assertEquals(CircuitBreaker.State.CLOSED, this.circuitBreaker.getState());
+    }
+
+    @Test
+    void retryTransientErrors() throws Exception
+    {
+        assertEquals(RESULT, this.caller.call(OPERATION, 10, () -> failFirst(ErrorType.TRANSIENT, 2)));
+
+        assertEquals(MAX_ATTEMPTS, this.attempts.get());
+        assertEquals(2L, this.caller.getStatistics().get("retries"));
+        assertEquals(2L, this.caller.getStatistics().get("transientFailures"));
+        // The failed attempts release their permit without reducing the concurrency.
+        assertEquals(0, this.rateLimiter.getStatistics().get(IN_FLIGHT));
+        assertEquals(MAX_CONCURRENCY, this.rateLimiter.getStatistics().get(CONCURRENCY_LIMIT));
+        assertEquals(CircuitBreaker.State.CLOSED, this.circuitBreaker.getState());
+    }
+
+    @Test
+    void giveUpAfterMaxAttempts()
+    {
+        ProviderException error = assertThrows(ProviderException.class,
+            () -> this.caller.call(OPERATION, 10, () -> failFirst(ErrorType.TRANSIENT, Integer.MAX_VALUE)));
+
+        assertSame(ErrorType.TRANSIENT, error.type);
+        assertEquals(MAX_ATTEMPTS, this.attempts.get());
+        assertEquals(0, this.rateLimiter.getStatistics().get(IN_FLIGHT));
+        assertEquals(CircuitBreaker.State.OPEN, this.circuitBreaker.getState());
+        assertThrows(ProviderUnavailableException.class, () -> this.caller.call(OPERATION, 10, () -> RESULT));
+    }
+
+    @Test
+    void throwPermanentErrorsRightAway()
+    {
+        assertThrows(ProviderException.class,
+            () -> this.caller.call(OPERATION, 10, () -> failFirst(ErrorType.PERMANENT, Integer.MAX_VALUE)));
+
+        assertEquals(1, this.attempts.get());
+        assertEquals(0, this.rateLimiter.getStatistics().get(IN_FLIGHT));
+        assertEquals(0, this.circuitBreaker.getStatistics().get("consecutiveFailures"));
+    }
+
+    @Test
+    void retryThrottledCalls() throws Exception
+    {
+        assertEquals(RESULT, this.caller.call(OPERATION, 10, () -> failFirst(ErrorType.THROTTLED, 1)));
+
+        assertEquals(2, this.attempts.get());
+        assertEquals(1L, this.rateLimiter.getStatistics().get("throttled"));
+        assertEquals(MAX_CONCURRENCY / 2, this.rateLimiter.getStatistics().get(CONCURRENCY_LIMIT));
+        assertEquals(CircuitBreaker.State.CLOSED, this.circuitBreaker.getState());
+    }
+
+    @Test
+    void giveUpWhenThrottledRepeatedly()
+    {
+        assertThrows(ProviderException.class,
+            () -> this.caller.call(OPERATION, 10, () -> failFirst(ErrorType.THROTTLED, Integer.MAX_VALUE)));
+
+        // Every attempt, including the last one, is reported as throttled to the rate limiter.
+        assertEquals((long) this.attempts.get(), this.rateLimiter.getStatistics().get("throttled"));
+        assertEquals(0, this.rateLimiter.getStatistics().get(IN_FLIGHT));
+        assertEquals(1, this.rateLimiter.getStatistics().get(CONCURRENCY_LIMIT));
+        // Throttling does not tell whether the provider is failing.
+        assertEquals(CircuitBreaker.State.CLOSED, this.circuitBreaker.getState());
+    }
+
+    @Test
+    void callOutsideOfTheRateLimiter() throws Exception
+    {
+        assertEquals(RESULT, this.caller.call(OPERATION, () -> failFirst(ErrorType.TRANSIENT, 1)));
+
+        assertEquals(0L, this.rateLimiter.getStatistics().get("requests"));
+    }
+
+    private String failFirst(ErrorType type, int failures) throws ProviderException
+    {
+        if (this.attempts.incrementAndGet() <= failures) {
+            throw new ProviderException(type);
+        }
+        return RESULT;
+    }
+}
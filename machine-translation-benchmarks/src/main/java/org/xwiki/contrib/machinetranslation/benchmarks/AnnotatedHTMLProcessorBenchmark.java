@@ -0,0 +1,147 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.contrib.machinetranslation.internal.AnnotatedHTMLProcessor;
+
+/**
+ * Compares the annotated HTML rewriting done by {@link AnnotatedHTMLProcessor} with the regular expression based
+ * implementation it replaces. Run with {@code java -jar target/benchmarks.jar AnnotatedHTMLProcessor -prof gc} to also
+ * get the allocation rates.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnnotatedHTMLProcessorBenchmark
+{
+    private static final String PARAGRAPH = "<p>He then eats an enormous amount of food at a "
+        + "<!--startwikilink:true|-|url|-|https://en.wikipedia.org/wiki/Cafeteria--><span class=\"wikiexternallink\">"
+        + "<a href=\"https://en.wikipedia.org/wiki/Cafeteria\">cafeteria</a></span><!--stopwikilink--> without "
+        + "paying, riding his <!--startmacro:glossaryReference|-|glossaryId=\"Glossary\" entryId=\"bicycle\"|-|"
+        + "bicycle--><!--stopmacro--> to get arrested.</p>\n";
+
+    /**
+     * Approximate size of the generated annotated HTML, in kilobytes.
+     */
+    @Param({ "2", "200" })
+    private int size;
+
+    private String html;
+
+    private String protectedHtml;
+
+    /**
+     * Generates the annotated HTML to be processed.
+     */
+    @Setup
+    public void setUp()
+    {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < this.size * 1024) {
+            builder.append(PARAGRAPH);
+        }
+        this.html = builder.toString();
+        this.protectedHtml = AnnotatedHTMLProcessor.protectComments(this.html);
+    }
+
+    /**
+     * @return the HTML without glossary references, using the former implementation
+     */
+    @Benchmark
+    public String stripGlossaryReferencesWithRegex()
+    {
+        Pattern pattern = Pattern.compile("<!--startmacro:glossaryReference\\|-\\|glossaryId=\".+?\" "
+            + "entryId=\".+?\"\\|-\\|(.+?)--><!--stopmacro-->");
+        StringBuilder builder = new StringBuilder();
+        Matcher matcher = pattern.matcher(this.html);
+        while (matcher.find()) {
+            matcher.appendReplacement(builder, matcher.group(1));
+        }
+        matcher.appendTail(builder);
+        return builder.toString();
+    }
+
+    /**
+     * @return the HTML without glossary references
+     */
+    @Benchmark
+    public String stripGlossaryReferences()
+    {
+        return AnnotatedHTMLProcessor.stripGlossaryReferences(this.html);
+    }
+
+    /**
+     * @return the HTML with protected comments, using the former implementation
+     */
+    @Benchmark
+    public String protectCommentsWithRegex()
+    {
+        String content = this.html.replaceAll("<!--", "<script class=\"notranslate\"><!--");
+        return content.replaceAll("-->", "--></script>");
+    }
+
+    /**
+     * @return the HTML with protected comments
+     */
+    @Benchmark
+    public String protectComments()
+    {
+        return AnnotatedHTMLProcessor.protectComments(this.html);
+    }
+
+    /**
+     * @return the HTML without comment protection, using the former implementation
+     */
+    @Benchmark
+    public String unprotectCommentsWithRegex()
+    {
+        String result = this.protectedHtml.replaceAll("<script class=\"notranslate\">", "");
+        return result.replaceAll("</script>", "");
+    }
+
+    /**
+     * @return the HTML without comment protection
+     */
+    @Benchmark
+    public String unprotectComments()
+    {
+        return AnnotatedHTMLProcessor.unprotectComments(this.protectedHtml);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.benchmarks;
+
+import java.io.StringReader;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.xwiki.component.embed.EmbeddableComponentManager;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+
+/**
+ * Component manager holding the rendering components found on the class path, shared by the benchmarks, and the
+ * rendering of the corpus pages to annotated HTML, as done before sending them to the translation service.
+ *
+ * @version $Id$
+ */
+public final class BenchmarkComponents
+{
+    /**
+     * Syntax of the corpus pages.
+     */
+    public static final String XWIKI_SYNTAX = "xwiki/2.1";
+
+    /**
+     * Syntax of the contents sent to the translation service.
+     */
+    public static final String ANNOTATED_HTML_SYNTAX = "annotatedhtml/5.0";
+
+    private static final Map<String, String> ANNOTATED_HTML = new ConcurrentHashMap<>();
+
+    private static ComponentManager componentManager;
+
+    private BenchmarkComponents()
+    {
+    }
+
+    /**
+     * @return the component manager, initialized on first use
+     */
+    public static synchronized ComponentManager getComponentManager()
+    {
+        if (componentManager == null) {
+            EmbeddableComponentManager embeddableComponentManager = new EmbeddableComponentManager();
+            embeddableComponentManager.initialize(BenchmarkComponents.class.getClassLoader());
+            componentManager = embeddableComponentManager;
+        }
+        return componentManager;
+    }
+
+    /**
+     * @param size the size of the page, see {@link BenchmarkCorpus}
+     * @return the corpus page rendered to annotated HTML, the macros not being executed
+     */
+    public static String getAnnotatedHTML(String size)
+    {
+        return ANNOTATED_HTML.computeIfAbsent(size, key -> {
+            try {
+                Parser parser = getComponentManager().getInstance(Parser.class, XWIKI_SYNTAX);
+                BlockRenderer renderer = getComponentManager().getInstance(BlockRenderer.class, ANNOTATED_HTML_SYNTAX);
+                XDOM xdom = parser.parse(new StringReader(BenchmarkCorpus.getPage(key)));
+                DefaultWikiPrinter printer = new DefaultWikiPrinter();
+                renderer.render(xdom, printer);
+                return printer.toString();
+            } catch (ComponentLookupException | ParseException e) {
+                throw new IllegalStateException("Failed to render the corpus page " + key, e);
+            }
+        });
+    }
+}
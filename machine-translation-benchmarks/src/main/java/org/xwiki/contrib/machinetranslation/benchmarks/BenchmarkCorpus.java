@@ -0,0 +1,115 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fixed corpus of realistic wiki pages the benchmarks are run against, so that their results can be compared from
+ * one release to another:
+ * <ul>
+ * <li>{@value #SMALL}: a short page with a few paragraphs, a list, a macro, a glossary reference and an image (about
+ * 1 KB)</li>
+ * <li>{@value #MEDIUM}: a handbook page with headings, lists, tables, links, glossary references, code, script and
+ * box macros, repeated up to about 64 KB</li>
+ * <li>{@value #LARGE}: the same handbook page repeated up to about 1 MB</li>
+ * </ul>
+ *
+ * @version $Id$
+ */
+public final class BenchmarkCorpus
+{
+    /**
+     * Small page.
+     */
+    public static final String SMALL = "small";
+
+    /**
+     * Medium page.
+     */
+    public static final String MEDIUM = "medium";
+
+    /**
+     * Large page.
+     */
+    public static final String LARGE = "large";
+
+    private static final int MEDIUM_SIZE = 64 * 1024;
+
+    private static final int LARGE_SIZE = 1024 * 1024;
+
+    private static final Map<String, String> PAGES = new ConcurrentHashMap<>();
+
+    private BenchmarkCorpus()
+    {
+    }
+
+    /**
+     * @param size the size of the page, one of {@link #SMALL}, {@link #MEDIUM} or {@link #LARGE}
+     * @return the content of the page, in XWiki 2.1 syntax
+     */
+    public static String getPage(String size)
+    {
+        return PAGES.computeIfAbsent(size, BenchmarkCorpus::loadPage);
+    }
+
+    private static String loadPage(String size)
+    {
+        switch (size) {
+            case SMALL:
+                return read("small.xwiki");
+            case MEDIUM:
+                return repeat(read("page.xwiki"), MEDIUM_SIZE);
+            case LARGE:
+                return repeat(read("page.xwiki"), LARGE_SIZE);
+            default:
+                throw new IllegalArgumentException("Unknown page size: " + size);
+        }
+    }
+
+    /**
+     * Repeats a page under numbered parts, so that the headings of the parts are all different.
+     */
+    private static String repeat(String page, int size)
+    {
+        StringBuilder builder = new StringBuilder(size + page.length());
+        for (int part = 1; builder.length() < size; part++) {
+            builder.append("= Part ").append(part).append(" =\n\n").append(page).append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static String read(String name)
+    {
+        try (InputStream stream = BenchmarkCorpus.class.getResourceAsStream("/corpus/" + name)) {
+            if (stream == null) {
+                throw new IllegalStateException("Missing corpus page: " + name);
+            }
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.contrib.machinetranslation.internal.AnnotatedHTMLProcessor;
+import org.xwiki.contrib.machinetranslation.internal.AnnotatedHTMLSplitter;
+
+/**
+ * Measures the rewriting of the annotated HTML of the corpus pages around the call to DeepL: splitting it into
+ * chunks, protecting the comments DeepL would move, and removing the protection from the translation, the
+ * translation itself being done by the {@link StubTranslator}.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommentProtectionBenchmark
+{
+    private static final int CHUNK_SIZE = 32 * 1024;
+
+    /**
+     * The corpus page, see {@link BenchmarkCorpus}.
+     */
+    @Param({ BenchmarkCorpus.SMALL, BenchmarkCorpus.MEDIUM, BenchmarkCorpus.LARGE })
+    private String size;
+
+    private String html;
+
+    private String protectedHtml;
+
+    private StubTranslator translator;
+
+    /**
+     * Renders the corpus page to annotated HTML.
+     */
+    @Setup
+    public void setUp()
+    {
+        this.html = BenchmarkComponents.getAnnotatedHTML(this.size);
+        this.protectedHtml = AnnotatedHTMLProcessor.protectComments(this.html);
+        this.translator = new StubTranslator();
+    }
+
+    /**
+     * @return the annotated HTML split into chunks
+     */
+    @Benchmark
+    public List<String> split()
+    {
+        return AnnotatedHTMLSplitter.split(this.html, CHUNK_SIZE);
+    }
+
+    /**
+     * @return the annotated HTML with protected comments
+     */
+    @Benchmark
+    public String protectComments()
+    {
+        return AnnotatedHTMLProcessor.protectComments(this.html);
+    }
+
+    /**
+     * @return the protected HTML without comment protection
+     */
+    @Benchmark
+    public String unprotectComments()
+    {
+        return AnnotatedHTMLProcessor.unprotectComments(this.protectedHtml);
+    }
+
+    /**
+     * @return the translated chunks, after protecting their comments and removing the protection of their
+     *     translations, as done by the DeepL translator
+     */
+    @Benchmark
+    public List<String> translateChunks()
+    {
+        List<String> texts = new ArrayList<>();
+        for (String chunk : AnnotatedHTMLSplitter.split(this.html, CHUNK_SIZE)) {
+            texts.add(AnnotatedHTMLProcessor.protectComments(chunk));
+        }
+        List<String> results = new ArrayList<>(texts.size());
+        for (String translation : this.translator.translateTexts(texts, Locale.ENGLISH, Locale.FRENCH, true)) {
+            results.add(AnnotatedHTMLProcessor.unprotectComments(translation));
+        }
+        return results;
+    }
+}
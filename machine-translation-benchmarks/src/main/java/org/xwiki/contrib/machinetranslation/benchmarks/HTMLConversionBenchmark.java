@@ -0,0 +1,148 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.benchmarks;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.xml.html.HTMLCleaner;
+import org.xwiki.xml.html.HTMLUtils;
+
+/**
+ * Measures the conversions between wiki syntax and annotated HTML done by {@code AbstractTranslator#toHTML} and
+ * {@code AbstractTranslator#fromAnnotatedHTML}, the latter being done for each translated chunk. The conversions are
+ * performed with the same steps as the HTML converter (cleaning, parsing and rendering), without executing the
+ * macros.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HTMLConversionBenchmark
+{
+    /**
+     * The corpus page, see {@link BenchmarkCorpus}.
+     */
+    @Param({ BenchmarkCorpus.SMALL, BenchmarkCorpus.MEDIUM, BenchmarkCorpus.LARGE })
+    private String size;
+
+    private String content;
+
+    private String html;
+
+    private Parser wikiParser;
+
+    private BlockRenderer htmlRenderer;
+
+    private HTMLCleaner htmlCleaner;
+
+    private Parser htmlParser;
+
+    private BlockRenderer wikiRenderer;
+
+    /**
+     * Looks up the conversion components.
+     *
+     * @throws ComponentLookupException if the conversion components are missing
+     */
+    @Setup
+    public void setUp() throws ComponentLookupException
+    {
+        ComponentManager componentManager = BenchmarkComponents.getComponentManager();
+        this.wikiParser = componentManager.getInstance(Parser.class, BenchmarkComponents.XWIKI_SYNTAX);
+        this.htmlRenderer =
+            componentManager.getInstance(BlockRenderer.class, BenchmarkComponents.ANNOTATED_HTML_SYNTAX);
+        this.htmlCleaner = componentManager.getInstance(HTMLCleaner.class);
+        this.htmlParser = componentManager.getInstance(Parser.class, "xhtml/1.0");
+        this.wikiRenderer = componentManager.getInstance(BlockRenderer.class, BenchmarkComponents.XWIKI_SYNTAX);
+        this.content = BenchmarkCorpus.getPage(this.size);
+        this.html = BenchmarkComponents.getAnnotatedHTML(this.size);
+    }
+
+    /**
+     * @return the page converted to annotated HTML
+     * @throws ParseException if the page cannot be parsed
+     */
+    @Benchmark
+    public String toHTML() throws ParseException
+    {
+        return toHTML(this.content);
+    }
+
+    /**
+     * @return the annotated HTML of the page converted back to wiki syntax
+     * @throws ParseException if the HTML cannot be parsed
+     */
+    @Benchmark
+    public String fromAnnotatedHTML() throws ParseException
+    {
+        return fromAnnotatedHTML(this.html);
+    }
+
+    /**
+     * @return the page converted to annotated HTML and back to wiki syntax
+     * @throws ParseException if the page or the HTML cannot be parsed
+     */
+    @Benchmark
+    public String roundTrip() throws ParseException
+    {
+        return fromAnnotatedHTML(toHTML(this.content));
+    }
+
+    private String toHTML(String wikiSyntax) throws ParseException
+    {
+        XDOM xdom = this.wikiParser.parse(new StringReader(wikiSyntax));
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.htmlRenderer.render(xdom, printer);
+        return printer.toString();
+    }
+
+    private String fromAnnotatedHTML(String annotatedHTML) throws ParseException
+    {
+        Document document = this.htmlCleaner.clean(new StringReader(annotatedHTML));
+        XDOM xdom = this.htmlParser.parse(new StringReader(HTMLUtils.toString(document)));
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.wikiRenderer.render(xdom, printer);
+        return printer.toString();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.benchmarks;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.contrib.machinetranslation.internal.AnnotatedHTMLProcessor;
+import org.xwiki.contrib.machinetranslation.internal.AnnotatedHTMLSplitter;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+
+/**
+ * Measures the preparation of a page for translation: parsing its content, rendering it to annotated HTML and
+ * stripping the glossary references, then splitting it into chunks when it exceeds the chunk size.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderingBenchmark
+{
+    private static final int CHUNK_SIZE = 32 * 1024;
+
+    /**
+     * The corpus page, see {@link BenchmarkCorpus}.
+     */
+    @Param({ BenchmarkCorpus.SMALL, BenchmarkCorpus.MEDIUM, BenchmarkCorpus.LARGE })
+    private String size;
+
+    private String content;
+
+    private XDOM xdom;
+
+    private Parser parser;
+
+    private BlockRenderer renderer;
+
+    /**
+     * Looks up the rendering components and parses the page once for the benchmarks which only render it.
+     *
+     * @throws ComponentLookupException if the rendering components are missing
+     * @throws ParseException if the page cannot be parsed
+     */
+    @Setup
+    public void setUp() throws ComponentLookupException, ParseException
+    {
+        this.parser = BenchmarkComponents.getComponentManager().getInstance(Parser.class,
+            BenchmarkComponents.XWIKI_SYNTAX);
+        this.renderer = BenchmarkComponents.getComponentManager().getInstance(BlockRenderer.class,
+            BenchmarkComponents.ANNOTATED_HTML_SYNTAX);
+        this.content = BenchmarkCorpus.getPage(this.size);
+        this.xdom = this.parser.parse(new StringReader(this.content));
+    }
+
+    /**
+     * @return the parsed page
+     * @throws ParseException if the page cannot be parsed
+     */
+    @Benchmark
+    public XDOM parse() throws ParseException
+    {
+        return this.parser.parse(new StringReader(this.content));
+    }
+
+    /**
+     * @return the page rendered to annotated HTML without glossary references
+     */
+    @Benchmark
+    public String render()
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.renderer.render(this.xdom, printer);
+        return AnnotatedHTMLProcessor.stripGlossaryReferences(printer.getBuffer());
+    }
+
+    /**
+     * @return the page rendered to annotated HTML without glossary references, split into chunks when it exceeds the
+     *     chunk size
+     */
+    @Benchmark
+    public List<String> renderChunks()
+    {
+        return AnnotatedHTMLSplitter.split(render(), CHUNK_SIZE);
+    }
+}
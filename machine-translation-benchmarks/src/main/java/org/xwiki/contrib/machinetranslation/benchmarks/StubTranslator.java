@@ -0,0 +1,101 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.xwiki.contrib.machinetranslation.Usage;
+import org.xwiki.contrib.machinetranslation.internal.AbstractTranslator;
+import org.xwiki.contrib.machinetranslation.model.Glossary;
+import org.xwiki.contrib.machinetranslation.model.GlossaryInfo;
+import org.xwiki.contrib.machinetranslation.model.LocalePair;
+
+/**
+ * Local translation provider answering instantly, so that the benchmarks only measure the code of the extension. The
+ * texts are returned untranslated, and the glossaries are supported between the languages DeepL supports them for.
+ *
+ * @version $Id$
+ */
+public class StubTranslator extends AbstractTranslator
+{
+    private static final List<String> GLOSSARY_LANGUAGES =
+        List.of("da", "de", "en", "es", "fr", "it", "ja", "ko", "nb", "nl", "pl", "pt", "ro", "ru", "sv", "uk", "zh");
+
+    @Override
+    public List<String> translateTexts(List<String> texts, Locale from, Locale to, boolean html)
+    {
+        return new ArrayList<>(texts);
+    }
+
+    @Override
+    public String normalizeLocale(Locale locale, NormalisationType type)
+    {
+        return locale.getLanguage();
+    }
+
+    @Override
+    public String getName()
+    {
+        return "stub";
+    }
+
+    @Override
+    public Usage getUsage()
+    {
+        // The stub provider is not metered.
+        return null;
+    }
+
+    @Override
+    public List<LocalePair> getGlossaryLocalePairs()
+    {
+        List<LocalePair> pairs = new ArrayList<>();
+        for (String source : GLOSSARY_LANGUAGES) {
+            for (String target : GLOSSARY_LANGUAGES) {
+                if (!source.equals(target)) {
+                    pairs.add(new LocalePair(source, target));
+                }
+            }
+        }
+        return pairs;
+    }
+
+    @Override
+    public List<GlossaryInfo> getGlossaries()
+    {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Map<String, String> getGlossaryEntries(String id)
+    {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public void updateGlossaries(List<Glossary> entries)
+    {
+        // Glossaries are not stored by the stub provider.
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Provider;
+
+import org.apache.commons.lang3.LocaleUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.context.Execution;
+import org.xwiki.contrib.machinetranslation.MachineTranslationConfiguration;
+import org.xwiki.contrib.machinetranslation.MachineTranslationException;
+import org.xwiki.contrib.machinetranslation.internal.RequestScopedCache;
+import org.xwiki.contrib.machinetranslation.model.LocalePair;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceProvider;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.model.validation.EntityNameValidation;
+import org.xwiki.model.validation.EntityNameValidationManager;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures the translator operations which do not call the translation service, with the {@link StubTranslator}. The
+ * wiki is replaced by mocks answering instantly; their overhead is part of the results, which are meant to be compared
+ * from one release to another rather than taken as absolute values.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TranslatorBenchmark
+{
+    private static final List<String> WIKI_LOCALES = Arrays.asList("en", "fr", "de", "es", "it", "pt_BR", "nl",
+        "pl", "ru", "ja", "zh_CN", "ko", "sv", "da", "nb", "fi", "cs", "el", "hu", "ro", "sk", "tr", "uk", "ar", "he",
+        "id", "lt", "lv", "et", "bg");
+
+    private static final Locale TRANSLATION_LOCALE = Locale.FRENCH;
+
+    private static final String TRANSLATION_TITLE = "Premiers pas avec le manuel du projet";
+
+    /**
+     * Number of locales available in the wiki.
+     */
+    @Param({ "5", "30" })
+    private int locales;
+
+    private StubTranslator translator;
+
+    private DocumentReference originalReference;
+
+    /**
+     * Creates the translator and the mocks of the wiki.
+     *
+     * @throws XWikiException never, required by the mocked signatures
+     */
+    @Setup
+    public void setUp() throws XWikiException
+    {
+        this.originalReference =
+            new DocumentReference("xwiki", Arrays.asList("en", "Handbook", "Development"), "WebHome");
+        XWikiDocument originalDocument = mock(XWikiDocument.class);
+        when(originalDocument.getDocumentReference()).thenReturn(this.originalReference);
+        when(originalDocument.getDefaultLocale()).thenReturn(Locale.ENGLISH);
+
+        XWikiContext xcontext = mock(XWikiContext.class);
+        XWiki xwiki = mock(XWiki.class);
+        when(xcontext.getWiki()).thenReturn(xwiki);
+        when(xwiki.getDocument(any(EntityReference.class), any(XWikiContext.class))).thenReturn(originalDocument);
+        List<Locale> availableLocales = new ArrayList<>();
+        for (String locale : WIKI_LOCALES.subList(0, this.locales)) {
+            availableLocales.add(LocaleUtils.toLocale(locale));
+        }
+        when(xwiki.getAvailableLocales(xcontext)).thenReturn(availableLocales);
+        Provider<XWikiContext> xcontextProvider = () -> xcontext;
+
+        ContextualAuthorizationManager authorizationManager = mock(ContextualAuthorizationManager.class);
+        when(authorizationManager.hasAccess(any(Right.class), any(EntityReference.class))).thenReturn(true);
+
+        MachineTranslationConfiguration configuration = mock(MachineTranslationConfiguration.class);
+        when(configuration.getSameNameTranslationClasses()).thenReturn("");
+
+        EntityNameValidation nameStrategy = mock(EntityNameValidation.class);
+        when(nameStrategy.transform(anyString()))
+            .thenAnswer(invocation -> invocation.getArgument(0, String.class).replace(' ', '-'));
+        EntityNameValidationManager nameValidationManager = mock(EntityNameValidationManager.class);
+        when(nameValidationManager.getEntityReferenceNameStrategy()).thenReturn(nameStrategy);
+
+        @SuppressWarnings("unchecked")
+        EntityReferenceSerializer<String> serializer = mock(EntityReferenceSerializer.class);
+        when(serializer.serialize(any(EntityReference.class)))
+            .thenAnswer(invocation -> invocation.getArgument(0, EntityReference.class).getName());
+
+        EntityReferenceProvider referenceProvider = mock(EntityReferenceProvider.class);
+        when(referenceProvider.getDefaultReference(EntityType.DOCUMENT))
+            .thenReturn(new EntityReference("WebHome", EntityType.DOCUMENT));
+
+        WikiDescriptorManager wikiDescriptorManager = mock(WikiDescriptorManager.class);
+        when(wikiDescriptorManager.getCurrentWikiReference()).thenReturn(new WikiReference("xwiki"));
+
+        // Without execution context, the values are computed for each call, as in a request using them once.
+        RequestScopedCache requestCache = new RequestScopedCache();
+        ReflectionUtils.setFieldValue(requestCache, "execution", mock(Execution.class));
+
+        this.translator = new StubTranslator();
+        ReflectionUtils.setFieldValue(this.translator, "logger", LoggerFactory.getLogger(StubTranslator.class));
+        ReflectionUtils.setFieldValue(this.translator, "translatorConfiguration", configuration);
+        ReflectionUtils.setFieldValue(this.translator, "xcontextProvider", xcontextProvider);
+        ReflectionUtils.setFieldValue(this.translator, "xwikiContextProvider", xcontextProvider);
+        ReflectionUtils.setFieldValue(this.translator, "authorizationManager", authorizationManager);
+        ReflectionUtils.setFieldValue(this.translator, "entityNameValidationManager", nameValidationManager);
+        ReflectionUtils.setFieldValue(this.translator, "entityReferenceSerializer", serializer);
+        ReflectionUtils.setFieldValue(this.translator, "defaultEntityReferenceProvider", referenceProvider);
+        ReflectionUtils.setFieldValue(this.translator, "wikiDescriptorManager", wikiDescriptorManager);
+        ReflectionUtils.setFieldValue(this.translator, "requestCache", requestCache);
+    }
+
+    /**
+     * @return the glossary support of each pair of wiki locales
+     * @throws MachineTranslationException never, the stub provider does not fail
+     */
+    @Benchmark
+    public Map<LocalePair, Boolean> getGlossaryLocalePairSupport() throws MachineTranslationException
+    {
+        return this.translator.getGlossaryLocalePairSupport();
+    }
+
+    /**
+     * @return the reference of the translation of a page, located under the space of the target locale
+     * @throws MachineTranslationException never, the mocked wiki does not fail
+     */
+    @Benchmark
+    public EntityReference computeTranslationReference() throws MachineTranslationException
+    {
+        return this.translator.computeTranslationReference(this.originalReference, TRANSLATION_TITLE,
+            TRANSLATION_LOCALE);
+    }
+}
@@ -20,40 +20,144 @@
 package org.xwiki.contrib.machinetranslation.deepl;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
 import org.xwiki.contrib.machinetranslation.MachineTranslationException;
 import org.xwiki.contrib.machinetranslation.Usage;
+import org.xwiki.contrib.machinetranslation.deepl.internal.DeeplClientProvider;
+import org.xwiki.contrib.machinetranslation.deepl.internal.DeeplGlossaryCache;
+import org.xwiki.contrib.machinetranslation.deepl.internal.DeeplUsageCache;
 import org.xwiki.contrib.machinetranslation.internal.AbstractTranslator;
+import org.xwiki.contrib.machinetranslation.internal.AnnotatedHTMLProcessor;
+import org.xwiki.contrib.machinetranslation.internal.AnnotatedHTMLSplitter;
 import org.xwiki.contrib.machinetranslation.internal.DefaultUsage;
+import org.xwiki.contrib.machinetranslation.internal.resilience.CircuitBreaker;
+import org.xwiki.contrib.machinetranslation.internal.resilience.ProviderRateLimiter;
+import org.xwiki.contrib.machinetranslation.internal.resilience.ResilientCaller;
 import org.xwiki.contrib.machinetranslation.model.Glossary;
 import org.xwiki.contrib.machinetranslation.model.GlossaryInfo;
 import org.xwiki.contrib.machinetranslation.model.LocalePair;
 import org.xwiki.localization.LocaleUtils;
 import org.xwiki.text.StringUtils;
 
+import com.deepl.api.ConnectionException;
 import com.deepl.api.DeepLException;
 import com.deepl.api.GlossaryEntries;
+import com.deepl.api.QuotaExceededException;
+import com.deepl.api.TextResult;
 import com.deepl.api.TextTranslationOptions;
+import com.deepl.api.TooManyRequestsException;
 import com.deepl.api.Translator;
 
 @Component
 @Named(DeeplTranslator.HINT)
 @Singleton
-public class DeeplTranslator extends AbstractTranslator
+public class DeeplTranslator extends AbstractTranslator implements Initializable, Disposable
 {
     static final String HINT = "deepl";
 
     static final String NAME = "DeepL";
 
+    /**
+     * Maximum number of texts DeepL accepts in a single translation request.
+     */
+    private static final int MAX_TEXTS_PER_REQUEST = 50;
+
+    /**
+     * Number of bytes above which texts are split into several requests, DeepL limiting the request size to 128 KiB.
+     */
+    private static final long MAX_REQUEST_SIZE = 100_000;
+
+    private static final long RETRY_BASE_DELAY = 500L;
+
+    private static final long RETRY_MAX_DELAY = 10_000L;
+
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    @Inject
+    private DeeplClientProvider clientProvider;
+
+    @Inject
+    private DeeplGlossaryCache glossaryCache;
+
+    @Inject
+    private DeeplUsageCache usageCache;
+
+    private ResilientCaller caller;
+
+    private ThreadPoolExecutor requestExecutor;
+
+    @Override
+    public void initialize()
+    {
+        ProviderRateLimiter rateLimiter =
+            new ProviderRateLimiter(this.translatorConfiguration.getRateLimitRequestsPerSecond(),
+                this.translatorConfiguration.getRateLimitCharactersPerSecond(),
+                this.translatorConfiguration.getMaxProviderConcurrency());
+        this.caller = new ResilientCaller(NAME, this.translatorConfiguration.getRetryMaxAttempts(),
+            RETRY_BASE_DELAY, RETRY_MAX_DELAY, DeeplTranslator::getErrorType,
+            new CircuitBreaker(this.translatorConfiguration.getCircuitBreakerFailureThreshold(),
+                TimeUnit.SECONDS.toMillis(this.translatorConfiguration.getCircuitBreakerOpenDuration())),
+            rateLimiter);
+        // Requests are sent by the calling thread itself when all the request threads are busy, so that a
+        // translation never waits for threads which may be waiting for it.
+        this.requestExecutor = new ThreadPoolExecutor(0, Math.max(1, this.translatorConfiguration
+            .getMaxProviderConcurrency()), KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<>(),
+            new BasicThreadFactory.Builder().namingPattern("DeepL request %d").daemon(true).build(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.requestExecutor != null) {
+            this.requestExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Classifies the DeepL errors by type, the DeepL client mapping each HTTP status to its own exception. Network
+     * errors and server errors are worth retrying. Client errors (authorization, quota, unknown glossary) are not, and
+     * do not count as failures of DeepL for the circuit breaker. Throttled requests are sent again once the rate
+     * limiter backoff delay has elapsed.
+     */
+    private static ResilientCaller.ErrorType getErrorType(Exception e)
+    {
+        if (e instanceof TooManyRequestsException) {
+            return ResilientCaller.ErrorType.THROTTLED;
+        }
+        if (e instanceof ConnectionException) {
+            return ResilientCaller.ErrorType.TRANSIENT;
+        }
+        // The DeepL client reports the statuses it has no exception for with the base exception, without the status:
+        // these are server errors, and bad requests, which cannot be told apart and are retried as well. Texts are
+        // split so that requests never exceed the size and text count limits of DeepL.
+        if (e.getClass() == DeepLException.class) {
+            return ResilientCaller.ErrorType.TRANSIENT;
+        }
+        return ResilientCaller.ErrorType.PERMANENT;
+    }
+
     private static List<String> getGlossariesByName(List<com.deepl.api.GlossaryInfo> deeplGlossaries,
         String glossaryName)
     {
@@ -71,10 +175,10 @@ public class DeeplTranslator extends AbstractTranslator
     {
         Translator translator = getTranslator();
         try {
-            String glossaryName = getGlossaryName(source, destination);
-            return translator.listGlossaries().stream()
-                .filter(entry -> entry.getName().equals(glossaryName))
-                .findFirst();
+            String prefix = getGlossaryNamePrefix();
+            String glossaryName = getGlossaryName(source, destination, prefix);
+            return this.glossaryCache.get(prefix, glossaryName,
+                () -> this.caller.call("listGlossaries", translator::listGlossaries));
         } catch (Exception e) {
             logger.error("Got unexpected error while synchronizing glossaries : [{}]", e.getMessage(), e);
             return Optional.empty();
@@ -82,60 +186,131 @@ public class DeeplTranslator extends AbstractTranslator
     }
 
     @Override
-    public String translate(String content, Locale from, Locale to, boolean html) throws MachineTranslationException
+    protected String getGlossaryVersion(Locale from, Locale to) throws MachineTranslationException
     {
-        if (StringUtils.isEmpty(content)) {
-            return content;
+        // Glossaries are re-created when updated, so their identifier changes with their entries.
+        Optional<com.deepl.api.GlossaryInfo> glossary = getGlossaryForLocales(from, to);
+        return glossary.isPresent() && glossary.get().isReady() ? glossary.get().getGlossaryId() : "";
+    }
+
+    @Override
+    protected long countCharacters(String content, boolean html)
+    {
+        return html ? AnnotatedHTMLProcessor.protectComments(content).length() : content.length();
+    }
+
+    @Override
+    protected List<String> translateTexts(List<String> contents, Locale from, Locale to, boolean html)
+        throws MachineTranslationException
+    {
+        List<String> results = new ArrayList<>(contents.size());
+        List<String> texts = new ArrayList<>(contents.size());
+        for (String content : contents) {
+            // DeepL moves HTML comments around when translating, see AnnotatedHTMLProcessor#protectComments.
+            texts.add(html ? AnnotatedHTMLProcessor.protectComments(content) : content);
         }
+
         Translator translator = getTranslator();
         logger.debug("Translator: [{}]", translator);
         TextTranslationOptions options = new TextTranslationOptions();
         if (html) {
             options.setTagHandling("html");
-            /**
-             * Deepl bug with HTML comments
-             * Example:
-             * <div>
-             *   reveals his deception and he is freed. He then eats an enormous amount of food at a
-             *   <!--startwikilink:true|-|url|-|https://en.wikipedia.org/wiki/Cafeteria-->
-             *   <span class="wikiexternallink">
-             * <a href="https://en.wikipedia.org/wiki/Cafeteria">cafeteria</a></span><!--stopwikilink-->
-             *   without paying to get arrested, and once again encounters Ellen in a
-             * </div>
-             *
-             * outputs:
-             * <div>
-             *   révèle sa supercherie et il est libéré. Il mange ensuite une énorme quantité de nourriture dans une<span
-             *         class="wikiexternallink"><a href="https://en.wikipedia.org/wiki/Cafeteria">cafétéria</a></span>
-             *   <!--startwikilink:true|-|url|-|https://en.wikipedia.org/wiki/Cafeteria--><!--stopwikilink--> sans payer pour se faire
-             *   arrêter, et rencontre à nouveau Ellen dans une salle d'attente.
-             * </div>
-             */
-            content = content.replaceAll("<!--", "<script class=\"notranslate\"><!--");
-            content = content.replaceAll("-->", "--></script>");
         }
         Optional<com.deepl.api.GlossaryInfo> glossaryId = getGlossaryForLocales(from, to);
         if (glossaryId.isPresent() && glossaryId.get().isReady()) {
             options.setGlossaryId(glossaryId.get().getGlossaryId());
         }
-        String result = null;
+        String sourceLang = normalizeLocale(from, NormalisationType.SOURCE_LANG);
+        String targetLang = normalizeLocale(to, NormalisationType.TARGET_LANG);
+
+        int chunkSize = this.translatorConfiguration.getChunkSize();
+        long maxRequestSize = chunkSize > 0 ? Math.min(chunkSize, MAX_REQUEST_SIZE) : MAX_REQUEST_SIZE;
+        List<List<String>> batches = new ArrayList<>();
+        int start = 0;
+        while (start < texts.size()) {
+            int end = getBatchEnd(texts, start, maxRequestSize);
+            batches.add(texts.subList(start, end));
+            start = end;
+        }
+        // The batches are sent concurrently, each one being retried on its own, within the limits of the rate limiter
+        // shared by all the callers.
+        List<Future<List<TextResult>>> futures = new ArrayList<>(batches.size());
         try {
-            result = translator.translateText(content,
-                normalizeLocale(from, NormalisationType.SOURCE_LANG),
-                normalizeLocale(to, NormalisationType.TARGET_LANG),
-                options).getText();
-            result = result.replaceAll("<script class=\"notranslate\">", "");
-            result = result.replaceAll("</script>", "");
+            for (List<String> batch : batches) {
+                FutureTask<List<TextResult>> future = new FutureTask<>(() -> this.caller.call("translateText",
+                    countCharacters(batch), () -> translator.translateText(batch, sourceLang, targetLang, options)));
+                futures.add(future);
+                if (batches.size() > 1) {
+                    this.requestExecutor.execute(future);
+                } else {
+                    future.run();
+                }
+            }
+            for (int i = 0; i < batches.size(); i++) {
+                List<String> batch = batches.get(i);
+                for (TextResult batchResult : getBatchResults(futures.get(i), batch)) {
+                    results.add(AnnotatedHTMLProcessor.unprotectComments(batchResult.getText()));
+                }
+                this.usageCache.addSentCharacters(countCharacters(batch));
+            }
+        } finally {
+            for (Future<List<TextResult>> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    private List<TextResult> getBatchResults(Future<List<TextResult>> future, List<String> batch)
+        throws MachineTranslationException
+    {
+        String abbr = StringUtils.abbreviate(batch.get(0), 100);
+        try {
+            return future.get();
         } catch (InterruptedException e) {
-            String abbr = StringUtils.abbreviate(content, 100);
             logger.debug("Error when translating [{}]", abbr);
             throw new MachineTranslationException(String.format("Interrupt exception when translating [%s]", abbr), e);
-        } catch (DeepLException e) {
-            String abbr = StringUtils.abbreviate(content, 100);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof QuotaExceededException) {
+                logger.debug("Quota exceeded when translating [{}]", abbr);
+                throw new MachineTranslationException(
+                    String.format("DeepL character quota exceeded when translating [%s]", abbr), cause);
+            } else if (cause instanceof MachineTranslationException) {
+                throw (MachineTranslationException) cause;
+            }
             logger.debug("Error when translating [{}]", abbr);
-            throw new MachineTranslationException(String.format("DeepL exception when translating [%s]", abbr), e);
+            throw new MachineTranslationException(String.format("DeepL exception when translating [%s]", abbr),
+                cause);
+        }
+    }
+
+    private static long countCharacters(List<String> texts)
+    {
+        long characters = 0;
+        for (String text : texts) {
+            characters += text.length();
         }
-        return result;
+        return characters;
+    }
+
+    /**
+     * Computes the end of a batch of texts to be sent in a single request, so that DeepL limits on the number of
+     * texts and on the request size are respected.
+     */
+    private static int getBatchEnd(List<String> texts, int start, long maxRequestSize)
+    {
+        int end = start;
+        long size = 0;
+        while (end < texts.size() && end - start < MAX_TEXTS_PER_REQUEST) {
+            size += AnnotatedHTMLSplitter.getSize(texts.get(end));
+            // Always send at least one text, even if it exceeds the request size by itself.
+            if (end > start && size > maxRequestSize) {
+                break;
+            }
+            end++;
+        }
+        return end;
     }
 
     /**
@@ -178,25 +353,38 @@ public class DeeplTranslator extends AbstractTranslator
 
     public Translator getTranslator() throws MachineTranslationException
     {
-        String apiKey = translatorConfiguration.getApiKey();
-        try {
-            if (StringUtils.isNotEmpty(apiKey)) {
-                return new Translator(apiKey);
-            } else {
-                throw new MachineTranslationException("Invalid API key");
-            }
-        } catch (Exception e) {
-            throw new MachineTranslationException("Invalid API key");
-        }
+        return this.clientProvider.getClient();
+    }
+
+    @Override
+    public Map<String, Object> getStatistics()
+    {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("client", this.clientProvider.getStatistics());
+        statistics.put("glossaryCache", this.glossaryCache.getStatistics());
+        statistics.put("resilience", this.caller.getStatistics());
+        statistics.put("usageCache", this.usageCache.getStatistics());
+        return statistics;
     }
 
+    /**
+     * Returns the usage of the current wiki from a cached snapshot, updated with the characters sent since it was
+     * retrieved from DeepL and refreshed in the background, so that no call to DeepL is needed once it is loaded.
+     */
+    @Override
     public Usage getUsage() throws MachineTranslationException
     {
         //TODO: check programming rights
+        return this.usageCache.get(this::loadUsage);
+    }
+
+    private Usage loadUsage() throws MachineTranslationException
+    {
         Translator translator = getTranslator();
         try {
-            if (translator != null && translator.getUsage() != null && translator.getUsage().getCharacter() != null) {
-                com.deepl.api.Usage.Detail character = translator.getUsage().getCharacter();
+            com.deepl.api.Usage usage = this.caller.call("getUsage", translator::getUsage);
+            if (usage != null && usage.getCharacter() != null) {
+                com.deepl.api.Usage.Detail character = usage.getCharacter();
                 return new DefaultUsage(character.getCount(), character.getLimit());
             }
         } catch (DeepLException | InterruptedException e) {
@@ -215,7 +403,7 @@ public class DeeplTranslator extends AbstractTranslator
     {
         Translator translator = getTranslator();
         try {
-            return translator.getGlossaryLanguages().stream()
+            return this.caller.call("getGlossaryLanguages", translator::getGlossaryLanguages).stream()
                 .map(item -> new LocalePair(item.getSourceLanguage(), item.getTargetLanguage()))
                 .collect(Collectors.toList());
         } catch (InterruptedException e) {
@@ -233,7 +421,10 @@ public class DeeplTranslator extends AbstractTranslator
         Translator translator = getTranslator();
         try {
             String glossaryNamePrefix = getGlossaryNamePrefix();
-            return translator.listGlossaries()
+            List<com.deepl.api.GlossaryInfo> deeplGlossaries =
+                this.caller.call("listGlossaries", translator::listGlossaries);
+            this.glossaryCache.put(glossaryNamePrefix, deeplGlossaries);
+            return deeplGlossaries
                 .stream()
                 .filter(entry -> entry.getName().startsWith(glossaryNamePrefix))
                 .map(item -> new GlossaryInfo(item.getGlossaryId(), item.getName(), item.isReady(),
@@ -255,7 +446,7 @@ public class DeeplTranslator extends AbstractTranslator
     {
         Translator translator = getTranslator();
         try {
-            return translator.getGlossaryEntries(id);
+            return this.caller.call("getGlossaryEntries", () -> translator.getGlossaryEntries(id));
         } catch (InterruptedException e) {
             logger.debug("Error when getting glossaries details [{}]", e.getMessage(), e);
             throw new MachineTranslationException("Interrupt exception when getting glossaries details", e);
@@ -269,9 +460,9 @@ public class DeeplTranslator extends AbstractTranslator
     public void updateGlossaries(List<Glossary> entries) throws MachineTranslationException
     {
         Translator translator = getTranslator();
+        String glossaryNamePrefix = getGlossaryNamePrefix();
         try {
             List<com.deepl.api.GlossaryInfo> deeplGlossaries = translator.listGlossaries();
-            String glossaryNamePrefix = getGlossaryNamePrefix();
 
             for (Glossary entry : entries) {
                 String glossaryName = getGlossaryName(entry.getGlossaryInfo().getSourceLocale(),
@@ -301,6 +492,9 @@ public class DeeplTranslator extends AbstractTranslator
         } catch (DeepLException e) {
             logger.debug("Error when synchronizing glossaries [{}]", e.getMessage(), e);
             throw new MachineTranslationException("DeepL exception when synchronizing glossaries", e);
+        } finally {
+            // Glossaries are deleted and re-created, so their identifiers have changed.
+            this.glossaryCache.invalidate(glossaryNamePrefix);
         }
     }
 
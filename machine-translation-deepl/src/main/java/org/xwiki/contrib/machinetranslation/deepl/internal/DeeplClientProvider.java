@@ -0,0 +1,177 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.deepl.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.machinetranslation.MachineTranslationConfiguration;
+import org.xwiki.contrib.machinetranslation.MachineTranslationException;
+import org.xwiki.text.StringUtils;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import com.deepl.api.Translator;
+import com.deepl.api.TranslatorOptions;
+
+/**
+ * Holds one long-lived DeepL client per wiki, so that the HTTP connections opened by the client can be kept alive and
+ * reused between calls. A client is only rebuilt when the API key configured for its wiki changes.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+@Component(roles = DeeplClientProvider.class)
+@Singleton
+public class DeeplClientProvider
+{
+    /**
+     * Default value of the JVM {@code http.maxConnections} property, see {@link java.net.HttpURLConnection}.
+     */
+    private static final String DEFAULT_HTTP_MAX_CONNECTIONS = "5";
+
+    private static final String HTTP_KEEP_ALIVE_PROPERTY = "http.keepAlive";
+
+    private static final String HTTP_MAX_CONNECTIONS_PROPERTY = "http.maxConnections";
+
+    @Inject
+    private MachineTranslationConfiguration translatorConfiguration;
+
+    @Inject
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @Inject
+    private Logger logger;
+
+    private final Map<String, Client> clients = new ConcurrentHashMap<>();
+
+    private final AtomicLong createdClients = new AtomicLong();
+
+    private final AtomicLong reusedClients = new AtomicLong();
+
+    /**
+     * A DeepL client along with the API key and server URL it has been built for.
+     */
+    private static final class Client
+    {
+        private final String apiKey;
+
+        private final String serverUrl;
+
+        private final Translator translator;
+
+        private final long creationDate = System.currentTimeMillis();
+
+        private final AtomicLong lookups = new AtomicLong();
+
+        Client(String apiKey, String serverUrl, Translator translator)
+        {
+            this.apiKey = apiKey;
+            this.serverUrl = serverUrl;
+            this.translator = translator;
+        }
+    }
+
+    /**
+     * Returns the DeepL client of the current wiki, creating it if needed. The client sends its requests to the
+     * configured server URL if any, e.g. a local stand-in of DeepL, and to the DeepL server matching the API key
+     * otherwise.
+     *
+     * @return the DeepL client to use for the current wiki
+     * @throws MachineTranslationException if the configured API key is invalid
+     */
+    public Translator getClient() throws MachineTranslationException
+    {
+        String apiKey = this.translatorConfiguration.getApiKey();
+        if (StringUtils.isEmpty(apiKey)) {
+            throw new MachineTranslationException("Invalid API key");
+        }
+        String serverUrl = this.translatorConfiguration.getServerUrl();
+        String wikiId = this.wikiDescriptorManager.getCurrentWikiId();
+        try {
+            Client client = this.clients.compute(wikiId, (key, current) -> {
+                if (current != null && Objects.equals(current.apiKey, apiKey)
+                    && Objects.equals(current.serverUrl, serverUrl)) {
+                    this.reusedClients.incrementAndGet();
+                    return current;
+                }
+                this.logger.debug("Creating DeepL client for wiki [{}]", key);
+                this.createdClients.incrementAndGet();
+                // The calls are retried by the translator, which also handles throttling and the circuit breaker.
+                TranslatorOptions options = new TranslatorOptions().setMaxRetries(0);
+                if (StringUtils.isNotEmpty(serverUrl)) {
+                    options.setServerUrl(serverUrl);
+                }
+                return new Client(apiKey, serverUrl, new Translator(apiKey, options));
+            });
+            client.lookups.incrementAndGet();
+            return client.translator;
+        } catch (Exception e) {
+            throw new MachineTranslationException("Invalid API key", e);
+        }
+    }
+
+    /**
+     * Drops the client of the given wiki, forcing a new one to be created on next use. Called when the wiki is
+     * deleted.
+     *
+     * @param wikiId the wiki identifier
+     */
+    public void invalidate(String wikiId)
+    {
+        this.clients.remove(wikiId);
+    }
+
+    /**
+     * Returns counters of the DeepL clients created and reused, along with the values of the JVM properties
+     * configuring the HTTP keep-alive of {@link java.net.HttpURLConnection}, used by the clients. The reuse of the
+     * HTTP connections themselves is not measured.
+     *
+     * @return statistics about the reuse of the DeepL clients and the JVM HTTP keep-alive properties
+     */
+    public Map<String, Object> getStatistics()
+    {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("createdClients", this.createdClients.get());
+        statistics.put("reusedClients", this.reusedClients.get());
+        statistics.put("activeClients", this.clients.size());
+        Map<String, Object> jvmProperties = new LinkedHashMap<>();
+        jvmProperties.put(HTTP_KEEP_ALIVE_PROPERTY, System.getProperty(HTTP_KEEP_ALIVE_PROPERTY, "true"));
+        jvmProperties.put(HTTP_MAX_CONNECTIONS_PROPERTY,
+            System.getProperty(HTTP_MAX_CONNECTIONS_PROPERTY, DEFAULT_HTTP_MAX_CONNECTIONS));
+        statistics.put("jvmHttpKeepAliveProperties", jvmProperties);
+        Map<String, Object> wikis = new LinkedHashMap<>();
+        for (Map.Entry<String, Client> entry : this.clients.entrySet()) {
+            Map<String, Object> wiki = new LinkedHashMap<>();
+            wiki.put("creationDate", entry.getValue().creationDate);
+            wiki.put("lookups", entry.getValue().lookups.get());
+            wikis.put(entry.getKey(), wiki);
+        }
+        statistics.put("wikis", wikis);
+        return statistics;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.deepl.internal;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.machinetranslation.MachineTranslationConfiguration;
+import org.xwiki.contrib.machinetranslation.MachineTranslationException;
+
+import com.deepl.api.DeepLException;
+import com.deepl.api.GlossaryInfo;
+
+/**
+ * Caches, for each glossary name prefix (hence for each wiki), the identifier and ready state of the glossaries known
+ * by DeepL, so that translating a text does not require listing all the glossaries first.
+ * <p>
+ * The glossaries of a prefix are loaded all at once on first use, then reloaded once the configured TTL has expired.
+ * Glossaries which are not ready yet are looked up again more often, since DeepL usually makes them available within
+ * seconds.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+@Component(roles = DeeplGlossaryCache.class)
+@Singleton
+public class DeeplGlossaryCache
+{
+    private static final long NOT_READY_REFRESH_DELAY = TimeUnit.SECONDS.toMillis(10);
+
+    @Inject
+    private MachineTranslationConfiguration translatorConfiguration;
+
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Loads the glossaries from the provider.
+     */
+    @FunctionalInterface
+    public interface Loader
+    {
+        /**
+         * @return all the glossaries known by the provider
+         * @throws DeepLException in case DeepL returns an error
+         * @throws InterruptedException if the call is interrupted
+         * @throws MachineTranslationException if DeepL cannot be called
+         */
+        List<GlossaryInfo> load() throws DeepLException, InterruptedException, MachineTranslationException;
+    }
+
+    /**
+     * The glossaries of a given prefix, as seen at a given date.
+     */
+    private static final class Snapshot
+    {
+        private final Map<String, GlossaryInfo> glossaries;
+
+        private final long date = System.currentTimeMillis();
+
+        Snapshot(Map<String, GlossaryInfo> glossaries)
+        {
+            this.glossaries = glossaries;
+        }
+    }
+
+    /**
+     * Resolves a glossary from its name.
+     *
+     * @param prefix the glossary name prefix of the current wiki
+     * @param glossaryName the name of the glossary, as computed from the prefix and the source and target locales
+     * @param loader used to load the glossaries when they are not cached or expired
+     * @return the glossary if it exists
+     * @throws DeepLException in case DeepL returns an error when loading the glossaries
+     * @throws InterruptedException if loading the glossaries is interrupted
+     * @throws MachineTranslationException if DeepL cannot be called to load the glossaries
+     */
+    public Optional<GlossaryInfo> get(String prefix, String glossaryName, Loader loader)
+        throws DeepLException, InterruptedException, MachineTranslationException
+    {
+        Snapshot snapshot = this.snapshots.get(prefix);
+        if (snapshot != null && !isExpired(snapshot, snapshot.glossaries.get(glossaryName))) {
+            this.hits.incrementAndGet();
+            return Optional.ofNullable(snapshot.glossaries.get(glossaryName));
+        }
+        this.misses.incrementAndGet();
+        snapshot = update(prefix, loader.load());
+        return Optional.ofNullable(snapshot.glossaries.get(glossaryName));
+    }
+
+    /**
+     * Replaces the cached glossaries of a prefix with freshly loaded ones.
+     *
+     * @param prefix the glossary name prefix of the current wiki
+     * @param glossaries all the glossaries known by the provider
+     */
+    public void put(String prefix, List<GlossaryInfo> glossaries)
+    {
+        update(prefix, glossaries);
+    }
+
+    /**
+     * Forgets the glossaries of a prefix, typically after they have been updated.
+     *
+     * @param prefix the glossary name prefix of the current wiki
+     */
+    public void invalidate(String prefix)
+    {
+        this.snapshots.remove(prefix);
+    }
+
+    /**
+     * @return the hit and miss counters of the cache
+     */
+    public Map<String, Object> getStatistics()
+    {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("hits", this.hits.get());
+        statistics.put("misses", this.misses.get());
+        statistics.put("prefixes", this.snapshots.size());
+        return statistics;
+    }
+
+    private Snapshot update(String prefix, List<GlossaryInfo> glossaries)
+    {
+        Map<String, GlossaryInfo> byName = new HashMap<>();
+        for (GlossaryInfo glossary : glossaries) {
+            // Keep the first glossary with a given name, as done when listing them.
+            if (glossary.getName().startsWith(prefix)) {
+                byName.putIfAbsent(glossary.getName(), glossary);
+            }
+        }
+        Snapshot snapshot = new Snapshot(Collections.unmodifiableMap(byName));
+        this.snapshots.put(prefix, snapshot);
+        return snapshot;
+    }
+
+    private boolean isExpired(Snapshot snapshot, GlossaryInfo glossary)
+    {
+        long age = System.currentTimeMillis() - snapshot.date;
+        if (glossary != null && !glossary.isReady()) {
+            return age > NOT_READY_REFRESH_DELAY;
+        }
+        return age > TimeUnit.SECONDS.toMillis(this.translatorConfiguration.getGlossaryCacheTTL());
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.deepl.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.contrib.machinetranslation.MachineTranslationConfiguration;
+import org.xwiki.contrib.machinetranslation.MachineTranslationException;
+import org.xwiki.contrib.machinetranslation.Usage;
+import org.xwiki.contrib.machinetranslation.internal.DefaultUsage;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.util.AbstractXWikiRunnable;
+
+/**
+ * Keeps, for each wiki, a snapshot of the DeepL usage, so that reading it does not require calling DeepL.
+ * <p>
+ * The snapshot is loaded from DeepL on first use only. Afterwards, the characters sent for translation are added to
+ * it locally, and the snapshots of all the wikis are reloaded periodically by a dedicated background thread, whether
+ * they are read or not, the previous snapshot being returned in the meantime.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+@Component(roles = DeeplUsageCache.class)
+@Singleton
+public class DeeplUsageCache implements Initializable, Disposable
+{
+    @Inject
+    private MachineTranslationConfiguration translatorConfiguration;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @Inject
+    private Logger logger;
+
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong loads = new AtomicLong();
+
+    private final AtomicLong refreshes = new AtomicLong();
+
+    private ScheduledExecutorService refreshExecutor;
+
+    /**
+     * Loads the usage from DeepL.
+     */
+    @FunctionalInterface
+    public interface Loader
+    {
+        /**
+         * @return the usage as known by DeepL, or null if DeepL does not report any character usage
+         * @throws MachineTranslationException in case the usage cannot be retrieved
+         */
+        Usage load() throws MachineTranslationException;
+    }
+
+    /**
+     * The usage reported by DeepL for a given API key, and the characters sent since it has been requested.
+     */
+    private static final class Snapshot
+    {
+        private final String apiKey;
+
+        private final Usage usage;
+
+        private final Loader loader;
+
+        private final AtomicLong sentCharacters;
+
+        Snapshot(String apiKey, Usage usage, Loader loader, long sentCharacters)
+        {
+            this.apiKey = apiKey;
+            this.usage = usage;
+            this.loader = loader;
+            this.sentCharacters = new AtomicLong(sentCharacters);
+        }
+    }
+
+    @Override
+    public void initialize()
+    {
+        long interval = this.translatorConfiguration.getUsageRefreshInterval();
+        if (interval > 0) {
+            // DeepL is not called from the translation threads, which page translations wait for.
+            this.refreshExecutor = Executors.newSingleThreadScheduledExecutor(
+                new BasicThreadFactory.Builder().namingPattern("DeepL usage refresh").daemon(true).build());
+            this.refreshExecutor.scheduleWithFixedDelay(new AbstractXWikiRunnable()
+            {
+                @Override
+                protected void runInternal()
+                {
+                    // An error would cancel the next refreshes.
+                    try {
+                        refreshAll();
+                    } catch (Exception e) {
+                        DeeplUsageCache.this.logger.warn("Failed to refresh the DeepL usage. Root cause: [{}]",
+                            ExceptionUtils.getRootCauseMessage(e));
+                    }
+                }
+            }, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.refreshExecutor != null) {
+            this.refreshExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the usage of the current wiki, loading it synchronously only if it has never been loaded for the
+     * configured API key.
+     *
+     * @param loader used to load the usage from DeepL, in the context of the wiki
+     * @return the usage, or null if DeepL does not report any character usage
+     * @throws MachineTranslationException in case the usage needs to be loaded and loading it fails
+     */
+    public Usage get(Loader loader) throws MachineTranslationException
+    {
+        String wikiId = this.wikiDescriptorManager.getCurrentWikiId();
+        String apiKey = this.translatorConfiguration.getApiKey();
+        Snapshot snapshot = this.snapshots.get(wikiId);
+        if (snapshot == null || !Objects.equals(snapshot.apiKey, apiKey)) {
+            this.loads.incrementAndGet();
+            snapshot = new Snapshot(apiKey, loader.load(), loader, 0);
+            this.snapshots.put(wikiId, snapshot);
+        } else {
+            this.hits.incrementAndGet();
+        }
+        if (snapshot.usage == null) {
+            return null;
+        }
+        return new DefaultUsage(snapshot.usage.getCount() + snapshot.sentCharacters.get(),
+            snapshot.usage.getLimit());
+    }
+
+    /**
+     * Records characters sent to DeepL for translation in the current wiki.
+     *
+     * @param characters the number of characters sent
+     */
+    public void addSentCharacters(long characters)
+    {
+        // Atomic with the replacement of the snapshot by a refresh, so that no characters are lost.
+        this.snapshots.computeIfPresent(this.wikiDescriptorManager.getCurrentWikiId(), (wikiId, snapshot) -> {
+            snapshot.sentCharacters.addAndGet(characters);
+            return snapshot;
+        });
+    }
+
+    /**
+     * Drops the usage snapshot of the given wiki, so that it is no longer refreshed.
+     *
+     * @param wikiId the wiki identifier
+     */
+    public void invalidate(String wikiId)
+    {
+        this.snapshots.remove(wikiId);
+    }
+
+    /**
+     * @return the hit, load and background refresh counters of the cache
+     */
+    public Map<String, Object> getStatistics()
+    {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("hits", this.hits.get());
+        statistics.put("loads", this.loads.get());
+        statistics.put("refreshes", this.refreshes.get());
+        statistics.put("wikis", this.snapshots.size());
+        return statistics;
+    }
+
+    private void refreshAll()
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+        for (Map.Entry<String, Snapshot> entry : this.snapshots.entrySet()) {
+            // The usage is loaded with the configuration of its wiki.
+            xcontext.setWikiId(entry.getKey());
+            refresh(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void refresh(String wikiId, Snapshot snapshot)
+    {
+        this.refreshes.incrementAndGet();
+        long sentBeforeRefresh = snapshot.sentCharacters.get();
+        Usage usage;
+        try {
+            usage = snapshot.loader.load();
+        } catch (Exception e) {
+            this.logger.warn("Failed to refresh the DeepL usage of wiki [{}]. Root cause: [{}]", wikiId,
+                ExceptionUtils.getRootCauseMessage(e));
+            return;
+        }
+        // The characters sent while the usage was requested may not be counted by DeepL yet: they are carried over,
+        // at the risk of counting some twice rather than overstating the remaining quota.
+        this.snapshots.computeIfPresent(wikiId, (key, current) -> current != snapshot ? current
+            : new Snapshot(snapshot.apiKey, usage, snapshot.loader, current.sentCharacters.get() - sentBeforeRefresh));
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.deepl.internal;
+
+import java.util.Collections;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.event.WikiDeletedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+/**
+ * Drops the DeepL client and usage snapshot of a deleted wiki, so that they are neither kept in memory nor refreshed.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+@Component
+@Named(DeeplWikiDeletedListener.NAME)
+@Singleton
+public class DeeplWikiDeletedListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "machinetranslation.deepl.wikiDeleted";
+
+    @Inject
+    private DeeplClientProvider clientProvider;
+
+    @Inject
+    private DeeplUsageCache usageCache;
+
+    /**
+     * Default constructor.
+     */
+    public DeeplWikiDeletedListener()
+    {
+        super(NAME, Collections.singletonList(new WikiDeletedEvent()));
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        String wikiId = ((WikiDeletedEvent) event).getWikiId();
+        this.clientProvider.invalidate(wikiId);
+        this.usageCache.invalidate(wikiId);
+    }
+}
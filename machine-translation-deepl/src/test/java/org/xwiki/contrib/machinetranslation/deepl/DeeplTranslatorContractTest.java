@@ -0,0 +1,260 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.deepl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.contrib.machinetranslation.MachineTranslationConfiguration;
+import org.xwiki.contrib.machinetranslation.MachineTranslationException;
+import org.xwiki.contrib.machinetranslation.Translator.NormalisationType;
+import org.xwiki.contrib.machinetranslation.deepl.internal.DeeplClientProvider;
+import org.xwiki.contrib.machinetranslation.deepl.internal.DeeplGlossaryCache;
+import org.xwiki.contrib.machinetranslation.deepl.internal.DeeplUsageCache;
+import org.xwiki.contrib.machinetranslation.model.Glossary;
+import org.xwiki.contrib.machinetranslation.model.GlossaryInfo;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import com.xpn.xwiki.XWikiContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the contract between the {@link DeeplTranslator} and the DeepL API against a {@link MockDeeplServer}: the
+ * requests it sends, how many of them, and how it handles the provider errors. It catches regressions of the
+ * batching, comment protection, glossary and usage caching, and retries, without a DeepL account nor network access.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+@ComponentList({ DeeplClientProvider.class, DeeplGlossaryCache.class, DeeplUsageCache.class })
+class DeeplTranslatorContractTest
+{
+    private static final String WIKI = "xwiki";
+
+    private static final int BATCH_SIZE = 20;
+
+    private static final String COMMENT = "<!--startmacro:info|-||-|-->";
+
+    private static final String TEXT = "text";
+
+    @InjectMockComponents
+    private DeeplTranslator translator;
+
+    @MockComponent
+    private MachineTranslationConfiguration configuration;
+
+    @MockComponent
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    private MockDeeplServer server;
+
+    @BeforeComponent
+    void configure() throws Exception
+    {
+        this.server = new MockDeeplServer();
+
+        when(this.configuration.getApiKey()).thenReturn("00000000-0000-0000-0000-000000000000:fx");
+        when(this.configuration.getServerUrl()).thenReturn(this.server.getUrl());
+        when(this.configuration.getGlossaryNamePrefix()).thenReturn("");
+        when(this.configuration.getGlossaryCacheTTL()).thenReturn(3600L);
+        when(this.configuration.getUsageRefreshInterval()).thenReturn(3600L);
+        when(this.configuration.getRetryMaxAttempts()).thenReturn(3);
+        when(this.configuration.getCircuitBreakerFailureThreshold()).thenReturn(5);
+        when(this.configuration.getCircuitBreakerOpenDuration()).thenReturn(30L);
+        when(this.configuration.getMaxProviderConcurrency()).thenReturn(4);
+
+        when(this.wikiDescriptorManager.getCurrentWikiId()).thenReturn(WIKI);
+        XWikiContext xcontext = mock(XWikiContext.class);
+        when(xcontext.getWikiId()).thenReturn(WIKI);
+        when(this.xcontextProvider.get()).thenReturn(xcontext);
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        this.server.close();
+    }
+
+    @Test
+    void normalizeLocale() throws Exception
+    {
+        assertNormalized("en", NormalisationType.TARGET_LANG, "en-GB");
+        assertNormalized("en_US", NormalisationType.TARGET_LANG, "en-US");
+        assertNormalized("pt", NormalisationType.TARGET_LANG, "pt-BR");
+        assertNormalized("pt_PT", NormalisationType.TARGET_LANG, "pt-PT");
+        assertNormalized("fr_FR", NormalisationType.TARGET_LANG, "fr");
+        assertNormalized("en_US", NormalisationType.SOURCE_LANG, "en");
+        assertNormalized("pt_BR", NormalisationType.SOURCE_LANG_GLOSSARY, "pt");
+        assertNormalized("zh_CN", NormalisationType.TARGET_LANG_GLOSSARY, "zh");
+    }
+
+    /**
+     * Texts are sent in a single request, with their comments protected from DeepL and restored in the results.
+     */
+    @Test
+    void translateTextsInOneRequest() throws Exception
+    {
+        List<String> texts = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            texts.add(String.format("<p>%sParagraph %d of the page.</p>", COMMENT, i));
+        }
+
+        assertEquals(texts, this.translator.translateTexts(texts, Locale.ENGLISH, Locale.FRENCH, true));
+
+        MockDeeplServer.Endpoint translate = this.server.getEndpoint(MockDeeplServer.TRANSLATE);
+        assertEquals(1, translate.getRequests());
+        Map<String, List<String>> parameters = translate.getLastParameters();
+        List<String> sent = parameters.getOrDefault(TEXT, Collections.emptyList());
+        assertEquals(BATCH_SIZE, sent.size());
+        assertTrue(sent.get(0).contains("notranslate"));
+        assertFalse(sent.get(0).contains(COMMENT));
+        assertEquals(Collections.singletonList("html"), parameters.get("tag_handling"));
+        assertEquals(Collections.singletonList("fr"), parameters.get("target_lang"));
+    }
+
+    /**
+     * The glossaries are listed once and then looked up in the cache.
+     */
+    @Test
+    void listGlossariesOnce() throws Exception
+    {
+        for (int i = 0; i < 5; i++) {
+            this.translator.translateTexts(Collections.singletonList("Hello " + i), Locale.ENGLISH, Locale.GERMAN,
+                false);
+        }
+
+        assertEquals(1, this.server.getRequests(MockDeeplServer.LIST_GLOSSARIES));
+    }
+
+    /**
+     * Updating a glossary re-creates it, and the new glossary is used by the next translations.
+     */
+    @Test
+    void updateGlossaries() throws Exception
+    {
+        Glossary glossary = new Glossary(Collections.singletonMap("wiki", "wiki"),
+            new GlossaryInfo(null, null, false, Locale.ENGLISH, Locale.FRENCH, 1));
+        this.translator.updateGlossaries(Collections.singletonList(glossary));
+        this.translator.updateGlossaries(Collections.singletonList(glossary));
+
+        assertEquals(2, this.server.getRequests(MockDeeplServer.CREATE_GLOSSARY));
+        assertEquals(1, this.server.getRequests(MockDeeplServer.DELETE_GLOSSARY));
+        List<GlossaryInfo> glossaries = this.translator.getGlossaries();
+        assertEquals(1, glossaries.size());
+
+        this.translator.translateTexts(Collections.singletonList("The wiki"), Locale.ENGLISH, Locale.FRENCH, false);
+
+        assertEquals(Collections.singletonList(glossaries.get(0).getGlossaryId()),
+            this.server.getEndpoint(MockDeeplServer.TRANSLATE).getLastParameters().get("glossary_id"));
+    }
+
+    /**
+     * The usage is loaded once and then updated with the characters sent.
+     */
+    @Test
+    void updateUsageLocally() throws Exception
+    {
+        long before = this.translator.getUsage().getCount();
+        this.translator.translateTexts(Collections.singletonList("12345"), Locale.ENGLISH, Locale.FRENCH, false);
+
+        assertEquals(before + 5, this.translator.getUsage().getCount());
+        assertEquals(1, this.server.getRequests(MockDeeplServer.USAGE));
+    }
+
+    /**
+     * Server errors are retried until the translation succeeds.
+     */
+    @Test
+    void retryServerErrors() throws Exception
+    {
+        this.server.injectErrors(MockDeeplServer.TRANSLATE, 503, 1);
+
+        assertEquals(Collections.singletonList("Retried"),
+            this.translator.translateTexts(Collections.singletonList("Retried"), Locale.ENGLISH, Locale.FRENCH, false));
+        assertEquals(2, this.server.getRequests(MockDeeplServer.TRANSLATE));
+    }
+
+    /**
+     * An exceeded quota is reported at once, without retrying.
+     */
+    @Test
+    void failRightAwayWhenQuotaExceeded()
+    {
+        this.server.injectErrors(MockDeeplServer.TRANSLATE, 456, 1);
+
+        assertThrows(MachineTranslationException.class, () -> this.translator
+            .translateTexts(Collections.singletonList("Quota"), Locale.ENGLISH, Locale.FRENCH, false));
+        assertEquals(1, this.server.getRequests(MockDeeplServer.TRANSLATE));
+    }
+
+    /**
+     * The DeepL client reports bad requests like server errors, so they are retried as well.
+     */
+    @Test
+    void retryBadRequests() throws Exception
+    {
+        this.server.injectErrors(MockDeeplServer.TRANSLATE, 400, 1);
+
+        assertEquals(Collections.singletonList("Bad"),
+            this.translator.translateTexts(Collections.singletonList("Bad"), Locale.ENGLISH, Locale.FRENCH, false));
+        assertEquals(2, this.server.getRequests(MockDeeplServer.TRANSLATE));
+    }
+
+    /**
+     * A request failing on each attempt is reported once the maximum number of attempts is reached.
+     */
+    @Test
+    void failAfterMaxAttemptsOnBadRequest()
+    {
+        this.server.injectErrors(MockDeeplServer.TRANSLATE, 400, 3);
+
+        assertThrows(MachineTranslationException.class, () -> this.translator
+            .translateTexts(Collections.singletonList("Bad"), Locale.ENGLISH, Locale.FRENCH, false));
+        assertEquals(3, this.server.getRequests(MockDeeplServer.TRANSLATE));
+    }
+
+    private void assertNormalized(String locale, NormalisationType type, String expected)
+        throws MachineTranslationException
+    {
+        Locale actualLocale = new Locale.Builder().setLanguageTag(locale.replace('_', '-')).build();
+        assertEquals(expected, this.translator.normalizeLocale(actualLocale, type), locale);
+    }
+}
@@ -0,0 +1,540 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.deepl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process stand-in for the DeepL REST API, to which the DeepL client can be pointed with its server URL option
+ * (see the {@code machinetranslation.serverUrl} property). It supports the endpoints used by the DeepL translator:
+ * text translation (the texts are returned untranslated), usage, glossary language pairs, and the glossaries, which
+ * are kept in memory.
+ * <p>
+ * The requests are counted per endpoint along with the size of their payloads, so that the number of calls made by
+ * the translator can be checked. Latency and errors can be injected to check its resilience.
+ *
+ * @version $Id$
+ */
+public class MockDeeplServer implements AutoCloseable
+{
+    /**
+     * Text translation endpoint.
+     */
+    public static final String TRANSLATE = "translate";
+
+    /**
+     * Usage endpoint.
+     */
+    public static final String USAGE = "usage";
+
+    /**
+     * Glossary language pairs endpoint.
+     */
+    public static final String GLOSSARY_LANGUAGES = "glossaryLanguages";
+
+    /**
+     * Glossary listing endpoint.
+     */
+    public static final String LIST_GLOSSARIES = "listGlossaries";
+
+    /**
+     * Glossary creation endpoint.
+     */
+    public static final String CREATE_GLOSSARY = "createGlossary";
+
+    /**
+     * Glossary information endpoint.
+     */
+    public static final String GET_GLOSSARY = "getGlossary";
+
+    /**
+     * Glossary deletion endpoint.
+     */
+    public static final String DELETE_GLOSSARY = "deleteGlossary";
+
+    /**
+     * Glossary entries endpoint.
+     */
+    public static final String GLOSSARY_ENTRIES = "glossaryEntries";
+
+    private static final String API_PATH = "/v2/";
+
+    private static final String GLOSSARIES_PATH = "glossaries";
+
+    private static final String ENTRIES_PATH = "/entries";
+
+    private static final String JSON = "application/json";
+
+    private static final String GET = "GET";
+
+    private static final String POST = "POST";
+
+    private static final String DELETE = "DELETE";
+
+    private static final String TEXT = "text";
+
+    private static final String SOURCE_LANG = "source_lang";
+
+    private static final String TARGET_LANG = "target_lang";
+
+    private static final String NAME = "name";
+
+    private static final String COMMA = ",";
+
+    private static final int OK = 200;
+
+    private static final int CREATED = 201;
+
+    private static final int NO_CONTENT = 204;
+
+    private static final int NOT_FOUND = 404;
+
+    private static final int QUOTA_EXCEEDED = 456;
+
+    private static final String[] GLOSSARY_LANGUAGE_CODES =
+        { "da", "de", "en", "es", "fr", "it", "ja", "ko", "nb", "nl", "pl", "pt", "ro", "ru", "sv", "uk", "zh" };
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    private final Map<String, MockGlossary> glossaries = new ConcurrentHashMap<>();
+
+    private final AtomicLong characters = new AtomicLong();
+
+    private volatile long characterLimit = 500_000L;
+
+    private volatile long latency;
+
+    /**
+     * The requests received by an endpoint, and the errors to inject in its next responses.
+     */
+    public static final class Endpoint
+    {
+        private final AtomicLong requests = new AtomicLong();
+
+        private final AtomicLong requestBytes = new AtomicLong();
+
+        private final AtomicLong responseBytes = new AtomicLong();
+
+        private final AtomicInteger injectedErrors = new AtomicInteger();
+
+        private volatile int injectedStatus;
+
+        private volatile Map<String, List<String>> lastParameters = Collections.emptyMap();
+
+        /**
+         * @return the number of requests received
+         */
+        public long getRequests()
+        {
+            return this.requests.get();
+        }
+
+        /**
+         * @return the total size of the bodies of the requests received, in bytes
+         */
+        public long getRequestBytes()
+        {
+            return this.requestBytes.get();
+        }
+
+        /**
+         * @return the total size of the bodies of the responses sent, in bytes
+         */
+        public long getResponseBytes()
+        {
+            return this.responseBytes.get();
+        }
+
+        /**
+         * @return the parameters of the last request received, from its query string or its form encoded body
+         */
+        public Map<String, List<String>> getLastParameters()
+        {
+            return this.lastParameters;
+        }
+    }
+
+    /**
+     * A glossary created through the API.
+     */
+    private static final class MockGlossary
+    {
+        private final String id = UUID.randomUUID().toString();
+
+        private final String name;
+
+        private final String sourceLang;
+
+        private final String targetLang;
+
+        private final String entries;
+
+        MockGlossary(String name, String sourceLang, String targetLang, String entries)
+        {
+            this.name = name;
+            this.sourceLang = sourceLang;
+            this.targetLang = targetLang;
+            this.entries = entries;
+        }
+
+        private int getEntryCount()
+        {
+            return (int) this.entries.lines().filter(line -> !line.isBlank()).count();
+        }
+
+        private String toJSON()
+        {
+            return String.format("{\"glossary_id\":%s,\"name\":%s,\"ready\":true,\"source_lang\":%s,"
+                + "\"target_lang\":%s,\"creation_time\":\"2024-01-01T00:00:00.000Z\",\"entry_count\":%d}",
+                quote(this.id), quote(this.name), quote(this.sourceLang), quote(this.targetLang), getEntryCount());
+        }
+    }
+
+    /**
+     * Starts the server on a free port of the loopback interface.
+     *
+     * @throws IOException if the server cannot be started
+     */
+    public MockDeeplServer() throws IOException
+    {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newCachedThreadPool(
+            new BasicThreadFactory.Builder().namingPattern("Mock DeepL %d").daemon(true).build());
+        this.server.setExecutor(this.executor);
+        this.server.createContext(API_PATH, this::handle);
+        this.server.start();
+    }
+
+    /**
+     * @return the URL to configure as the DeepL server URL
+     */
+    public String getUrl()
+    {
+        return "http://" + this.server.getAddress().getHostString() + ':' + this.server.getAddress().getPort();
+    }
+
+    /**
+     * @param endpoint the endpoint name, e.g. {@link #TRANSLATE}
+     * @return the requests received by the endpoint
+     */
+    public Endpoint getEndpoint(String endpoint)
+    {
+        return this.endpoints.computeIfAbsent(endpoint, key -> new Endpoint());
+    }
+
+    /**
+     * @param endpoint the endpoint name, e.g. {@link #TRANSLATE}
+     * @return the number of requests received by the endpoint
+     */
+    public long getRequests(String endpoint)
+    {
+        return getEndpoint(endpoint).getRequests();
+    }
+
+    /**
+     * @return the number of characters translated so far, as reported by the usage endpoint
+     */
+    public long getCharacters()
+    {
+        return this.characters.get();
+    }
+
+    /**
+     * @param characterLimit the number of characters which can be translated, as reported by the usage endpoint
+     */
+    public void setCharacterLimit(long characterLimit)
+    {
+        this.characterLimit = characterLimit;
+    }
+
+    /**
+     * @param latency the time taken by each request, in milliseconds
+     */
+    public void setLatency(long latency)
+    {
+        this.latency = latency;
+    }
+
+    /**
+     * Makes the next requests to an endpoint fail.
+     *
+     * @param endpoint the endpoint name, e.g. {@link #TRANSLATE}
+     * @param status the HTTP status of the failed responses, e.g. 429 (too many requests), 456 (quota exceeded) or
+     *     503 (service unavailable)
+     * @param count the number of requests to fail
+     */
+    public void injectErrors(String endpoint, int status, int count)
+    {
+        Endpoint target = getEndpoint(endpoint);
+        target.injectedStatus = status;
+        target.injectedErrors.set(count);
+    }
+
+    /**
+     * Forgets the recorded requests, the injected errors and the glossaries.
+     */
+    public void reset()
+    {
+        this.endpoints.clear();
+        this.glossaries.clear();
+        this.characters.set(0);
+        this.latency = 0;
+    }
+
+    @Override
+    public void close()
+    {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath().substring(API_PATH.length());
+            String method = exchange.getRequestMethod();
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            String endpointName = getEndpointName(method, path);
+            if (endpointName == null) {
+                respond(exchange, null, NOT_FOUND, JSON, "{\"message\":\"Not found\"}");
+                return;
+            }
+            Endpoint endpoint = getEndpoint(endpointName);
+            endpoint.requests.incrementAndGet();
+            endpoint.requestBytes.addAndGet(body.length);
+            Map<String, List<String>> parameters = getParameters(exchange, body);
+            endpoint.lastParameters = parameters;
+            if (this.latency > 0) {
+                Thread.sleep(this.latency);
+            }
+            if (endpoint.injectedErrors.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+                respond(exchange, endpoint, endpoint.injectedStatus, JSON, "{\"message\":\"Injected error\"}");
+                return;
+            }
+            dispatch(exchange, endpoint, endpointName, path, parameters);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String getEndpointName(String method, String path)
+    {
+        if ("translate".equals(path) && POST.equals(method)) {
+            return TRANSLATE;
+        } else if ("usage".equals(path)) {
+            return USAGE;
+        } else if ("glossary-language-pairs".equals(path)) {
+            return GLOSSARY_LANGUAGES;
+        } else if (GLOSSARIES_PATH.equals(path)) {
+            return GET.equals(method) ? LIST_GLOSSARIES : CREATE_GLOSSARY;
+        } else if (path.startsWith(GLOSSARIES_PATH + '/')) {
+            if (path.endsWith(ENTRIES_PATH)) {
+                return GLOSSARY_ENTRIES;
+            }
+            return DELETE.equals(method) ? DELETE_GLOSSARY : GET_GLOSSARY;
+        }
+        return null;
+    }
+
+    private void dispatch(HttpExchange exchange, Endpoint endpoint, String endpointName, String path,
+        Map<String, List<String>> parameters) throws IOException
+    {
+        switch (endpointName) {
+            case TRANSLATE:
+                translate(exchange, endpoint, parameters);
+                break;
+            case USAGE:
+                respond(exchange, endpoint, OK, JSON, String.format("{\"character_count\":%d,\"character_limit\":%d}",
+                    this.characters.get(), this.characterLimit));
+                break;
+            case GLOSSARY_LANGUAGES:
+                respond(exchange, endpoint, OK, JSON, getGlossaryLanguages());
+                break;
+            case LIST_GLOSSARIES:
+                List<String> infos = new ArrayList<>();
+                this.glossaries.values().forEach(glossary -> infos.add(glossary.toJSON()));
+                respond(exchange, endpoint, OK, JSON, "{\"glossaries\":[" + String.join(COMMA, infos) + "]}");
+                break;
+            case CREATE_GLOSSARY:
+                MockGlossary created = new MockGlossary(getParameter(parameters, NAME),
+                    getParameter(parameters, SOURCE_LANG), getParameter(parameters, TARGET_LANG),
+                    getParameter(parameters, "entries"));
+                this.glossaries.put(created.id, created);
+                respond(exchange, endpoint, CREATED, JSON, created.toJSON());
+                break;
+            default:
+                handleGlossary(exchange, endpoint, endpointName, path);
+        }
+    }
+
+    private void handleGlossary(HttpExchange exchange, Endpoint endpoint, String endpointName, String path)
+        throws IOException
+    {
+        String id = path.substring(GLOSSARIES_PATH.length() + 1);
+        if (id.endsWith(ENTRIES_PATH)) {
+            id = id.substring(0, id.length() - ENTRIES_PATH.length());
+        }
+        MockGlossary glossary = DELETE_GLOSSARY.equals(endpointName) ? this.glossaries.remove(id)
+            : this.glossaries.get(id);
+        if (glossary == null) {
+            respond(exchange, endpoint, NOT_FOUND, JSON, "{\"message\":\"Glossary not found\"}");
+        } else if (DELETE_GLOSSARY.equals(endpointName)) {
+            respond(exchange, endpoint, NO_CONTENT, null, null);
+        } else if (GLOSSARY_ENTRIES.equals(endpointName)) {
+            respond(exchange, endpoint, OK, "text/tab-separated-values", glossary.entries);
+        } else {
+            respond(exchange, endpoint, OK, JSON, glossary.toJSON());
+        }
+    }
+
+    private void translate(HttpExchange exchange, Endpoint endpoint, Map<String, List<String>> parameters)
+        throws IOException
+    {
+        List<String> texts = parameters.getOrDefault(TEXT, Collections.emptyList());
+        long count = 0;
+        for (String text : texts) {
+            count += text.length();
+        }
+        if (this.characters.get() + count > this.characterLimit) {
+            respond(exchange, endpoint, QUOTA_EXCEEDED, JSON, "{\"message\":\"Quota exceeded\"}");
+            return;
+        }
+        this.characters.addAndGet(count);
+        String sourceLang = getParameter(parameters, SOURCE_LANG);
+        String detectedLang = quote(sourceLang != null ? sourceLang.toUpperCase() : "EN");
+        List<String> translations = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            translations.add("{\"detected_source_language\":" + detectedLang + ",\"text\":" + quote(text) + '}');
+        }
+        respond(exchange, endpoint, OK, JSON, "{\"translations\":[" + String.join(COMMA, translations) + "]}");
+    }
+
+    private static String getGlossaryLanguages()
+    {
+        List<String> pairs = new ArrayList<>();
+        for (String source : GLOSSARY_LANGUAGE_CODES) {
+            for (String target : GLOSSARY_LANGUAGE_CODES) {
+                if (!source.equals(target)) {
+                    pairs.add(String.format("{\"source_lang\":%s,\"target_lang\":%s}", quote(source),
+                        quote(target)));
+                }
+            }
+        }
+        return "{\"supported_languages\":[" + String.join(COMMA, pairs) + "]}";
+    }
+
+    private static void respond(HttpExchange exchange, Endpoint endpoint, int status, String contentType,
+        String body) throws IOException
+    {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+        if (endpoint != null) {
+            endpoint.responseBytes.addAndGet(bytes.length);
+        }
+    }
+
+    /**
+     * Reads the parameters of a request, from its query string and its form encoded body, the DeepL client sending
+     * the texts to translate as repeated {@code text} parameters.
+     */
+    private static Map<String, List<String>> getParameters(HttpExchange exchange, byte[] body)
+    {
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        addParameters(exchange.getRequestURI().getRawQuery(), parameters);
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType != null && contentType.startsWith("application/x-www-form-urlencoded")) {
+            addParameters(new String(body, StandardCharsets.UTF_8), parameters);
+        }
+        return parameters;
+    }
+
+    private static void addParameters(String encoded, Map<String, List<String>> parameters)
+    {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String pair : encoded.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            parameters.computeIfAbsent(URLDecoder.decode(key, StandardCharsets.UTF_8), name -> new ArrayList<>())
+                .add(URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String getParameter(Map<String, List<String>> parameters, String name)
+    {
+        List<String> values = parameters.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    private static String quote(String value)
+    {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < ' ') {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.pseudo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.contrib.machinetranslation.MachineTranslationException;
+import org.xwiki.contrib.machinetranslation.Usage;
+import org.xwiki.contrib.machinetranslation.internal.AbstractTranslator;
+import org.xwiki.contrib.machinetranslation.internal.DefaultUsage;
+import org.xwiki.contrib.machinetranslation.internal.resilience.CircuitBreaker;
+import org.xwiki.contrib.machinetranslation.internal.resilience.ProviderRateLimiter;
+import org.xwiki.contrib.machinetranslation.internal.resilience.ResilientCaller;
+import org.xwiki.contrib.machinetranslation.internal.resilience.ResilientCaller.ErrorType;
+import org.xwiki.contrib.machinetranslation.model.Glossary;
+import org.xwiki.contrib.machinetranslation.model.GlossaryInfo;
+import org.xwiki.contrib.machinetranslation.model.LocalePair;
+import org.xwiki.contrib.machinetranslation.pseudo.internal.PseudoLocalizer;
+import org.xwiki.contrib.machinetranslation.pseudo.internal.PseudoTranslatorConfiguration;
+
+import com.xpn.xwiki.XWikiContext;
+
+/**
+ * Translator which does not call any remote service: it pseudo-localizes the texts, see {@link PseudoLocalizer}. It
+ * can be used to run the translation pipeline offline, and to load test it, its latency, failures and character
+ * limit being configurable, see {@link PseudoTranslatorConfiguration}. Its calls go through the same rate limiter,
+ * retries and circuit breaker as the calls to DeepL. The glossaries are kept in memory.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+@Component
+@Named(PseudoTranslator.HINT)
+@Singleton
+public class PseudoTranslator extends AbstractTranslator implements Initializable
+{
+    static final String HINT = "pseudo";
+
+    static final String NAME = "Pseudo";
+
+    private static final long RETRY_BASE_DELAY = 500L;
+
+    private static final long RETRY_MAX_DELAY = 10_000L;
+
+    private static final long THOUSAND_CHARACTERS = 1000L;
+
+    @Inject
+    private PseudoTranslatorConfiguration pseudoConfiguration;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    /**
+     * The glossaries of all the wikis, by name, the glossary names being prefixed per wiki.
+     */
+    private final Map<String, Glossary> glossaries = new ConcurrentHashMap<>();
+
+    /**
+     * The number of characters translated in each wiki.
+     */
+    private final Map<String, AtomicLong> characters = new ConcurrentHashMap<>();
+
+    private ResilientCaller caller;
+
+    /**
+     * Transient error injected according to the configured failure rate.
+     */
+    private static final class InjectedFailureException extends Exception
+    {
+        private static final long serialVersionUID = 1L;
+
+        InjectedFailureException()
+        {
+            super("Injected failure of the pseudo translation service");
+        }
+    }
+
+    @Override
+    public void initialize()
+    {
+        ProviderRateLimiter rateLimiter =
+            new ProviderRateLimiter(this.translatorConfiguration.getRateLimitRequestsPerSecond(),
+                this.translatorConfiguration.getRateLimitCharactersPerSecond(),
+                this.translatorConfiguration.getMaxProviderConcurrency());
+        this.caller = new ResilientCaller(NAME, this.translatorConfiguration.getRetryMaxAttempts(),
+            RETRY_BASE_DELAY, RETRY_MAX_DELAY,
+            e -> e instanceof InjectedFailureException ? ErrorType.TRANSIENT : ErrorType.PERMANENT,
+            new CircuitBreaker(this.translatorConfiguration.getCircuitBreakerFailureThreshold(),
+                TimeUnit.SECONDS.toMillis(this.translatorConfiguration.getCircuitBreakerOpenDuration())),
+            rateLimiter);
+    }
+
+    @Override
+    protected String getGlossaryVersion(Locale from, Locale to) throws MachineTranslationException
+    {
+        Glossary glossary = this.glossaries.get(getGlossaryName(from, to, getGlossaryNamePrefix()));
+        return glossary != null ? glossary.getGlossaryInfo().getGlossaryId() : "";
+    }
+
+    @Override
+    protected List<String> translateTexts(List<String> texts, Locale from, Locale to, boolean html)
+        throws MachineTranslationException
+    {
+        long count = 0;
+        for (String text : texts) {
+            count += text.length();
+        }
+        AtomicLong translatedCharacters = getTranslatedCharacters();
+        long limit = this.pseudoConfiguration.getCharacterLimit();
+        if (limit > 0 && translatedCharacters.get() + count > limit) {
+            throw new MachineTranslationException(
+                String.format("Pseudo translation character limit [%d] exceeded", limit));
+        }
+        Glossary glossary = this.glossaries.get(getGlossaryName(from, to, getGlossaryNamePrefix()));
+        PseudoLocalizer localizer =
+            new PseudoLocalizer(glossary != null ? glossary.getEntries() : Collections.emptyMap());
+        long requestCharacters = count;
+        try {
+            List<String> results =
+                this.caller.call("translateText", requestCharacters,
+                    () -> translateBatch(texts, html, localizer, requestCharacters));
+            translatedCharacters.addAndGet(count);
+            return results;
+        } catch (InterruptedException e) {
+            throw new MachineTranslationException("Interrupt exception when pseudo translating", e);
+        } catch (InjectedFailureException e) {
+            throw new MachineTranslationException("Failed to pseudo translate", e);
+        }
+    }
+
+    /**
+     * Simulates a request to a translation service.
+     */
+    private List<String> translateBatch(List<String> texts, boolean html, PseudoLocalizer localizer,
+        long requestCharacters) throws InjectedFailureException, InterruptedException
+    {
+        long latency = this.pseudoConfiguration.getLatency()
+            + this.pseudoConfiguration.getLatencyPerThousandCharacters() * requestCharacters / THOUSAND_CHARACTERS;
+        if (latency > 0) {
+            Thread.sleep(latency);
+        }
+        if (ThreadLocalRandom.current().nextDouble() < this.pseudoConfiguration.getFailureRate()) {
+            throw new InjectedFailureException();
+        }
+        List<String> results = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            results.add(localizer.localize(text, html));
+        }
+        return results;
+    }
+
+    private AtomicLong getTranslatedCharacters()
+    {
+        return this.characters.computeIfAbsent(getCurrentWikiReference().getName(), wiki -> new AtomicLong());
+    }
+
+    @Override
+    public String normalizeLocale(Locale locale, NormalisationType type) throws MachineTranslationException
+    {
+        // Any locale can be pseudo translated.
+        return locale != null ? locale.toString() : null;
+    }
+
+    @Override
+    public Map<String, Object> getStatistics()
+    {
+        return Collections.singletonMap("resilience", this.caller.getStatistics());
+    }
+
+    @Override
+    public Usage getUsage() throws MachineTranslationException
+    {
+        return new DefaultUsage(getTranslatedCharacters().get(), this.pseudoConfiguration.getCharacterLimit());
+    }
+
+    /*
+     * Glossary part
+     */
+
+    @Override
+    public List<LocalePair> getGlossaryLocalePairs() throws MachineTranslationException
+    {
+        // Glossaries are supported between all the locales of the wiki.
+        XWikiContext xcontext = this.xcontextProvider.get();
+        List<Locale> locales = xcontext.getWiki().getAvailableLocales(xcontext);
+        List<LocalePair> pairs = new ArrayList<>();
+        for (Locale source : locales) {
+            for (Locale target : locales) {
+                if (!source.equals(target)) {
+                    pairs.add(new LocalePair(source, target));
+                }
+            }
+        }
+        return pairs;
+    }
+
+    @Override
+    public List<GlossaryInfo> getGlossaries() throws MachineTranslationException
+    {
+        String glossaryNamePrefix = getGlossaryNamePrefix();
+        List<GlossaryInfo> glossaryInfos = new ArrayList<>();
+        for (Glossary glossary : this.glossaries.values()) {
+            if (glossary.getGlossaryInfo().getName().startsWith(glossaryNamePrefix)) {
+                glossaryInfos.add(glossary.getGlossaryInfo());
+            }
+        }
+        return glossaryInfos;
+    }
+
+    @Override
+    public Map<String, String> getGlossaryEntries(String id) throws MachineTranslationException
+    {
+        for (Glossary glossary : this.glossaries.values()) {
+            if (glossary.getGlossaryInfo().getGlossaryId().equals(id)) {
+                return glossary.getEntries();
+            }
+        }
+        throw new MachineTranslationException(String.format("Unknown glossary [%s]", id));
+    }
+
+    @Override
+    public void updateGlossaries(List<Glossary> entries) throws MachineTranslationException
+    {
+        String glossaryNamePrefix = getGlossaryNamePrefix();
+        for (Glossary entry : entries) {
+            Locale source = entry.getGlossaryInfo().getSourceLocale();
+            Locale target = entry.getGlossaryInfo().getTargetLocale();
+            String glossaryName = getGlossaryName(source, target, glossaryNamePrefix);
+            logger.info("Updating glossary: [{}]", glossaryName);
+            // A new identifier, as when a DeepL glossary is re-created, so that the translations made with the
+            // previous entries are not reused.
+            Map<String, String> glossaryEntries = Collections.unmodifiableMap(new LinkedHashMap<>(entry.getEntries()));
+            GlossaryInfo glossaryInfo = new GlossaryInfo(UUID.randomUUID().toString(), glossaryName, true, source,
+                target, glossaryEntries.size());
+            this.glossaries.put(glossaryName, new Glossary(glossaryEntries, glossaryInfo));
+        }
+    }
+
+    @Override
+    public String getName()
+    {
+        return NAME;
+    }
+}
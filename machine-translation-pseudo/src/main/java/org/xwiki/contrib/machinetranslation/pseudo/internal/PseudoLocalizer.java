@@ -0,0 +1,199 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.pseudo.internal;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pseudo-localizes texts: the letters are replaced by accented look-alikes, so that a translated text is still
+ * readable while untranslated texts stand out. Plain texts are also wrapped in brackets, to spot the truncated ones.
+ * The transformation is deterministic. In HTML, only the text is transformed: the tags, comments, entities and the
+ * contents of the script and style elements are kept as is. Glossary terms are replaced by their translation.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+public final class PseudoLocalizer
+{
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    private static final String PSEUDO_LETTERS = "áƀçďéƒĝĥíĵķĺɱñóƥʠŕšţúṽŵẋýžÁƁÇĎÉƑĜĤÍĴĶĹṀÑÓƤɊŔŠŢÚṼŴẊÝŽ";
+
+    private static final String COMMENT_START = "<!--";
+
+    private static final String COMMENT_END = "-->";
+
+    private static final String[] RAW_TEXT_ELEMENTS = { "script", "style" };
+
+    private static final int MAX_ENTITY_LENGTH = 10;
+
+    private final List<Map.Entry<String, String>> glossary;
+
+    /**
+     * @param glossary the translation of the glossary terms, which are not pseudo-localized
+     */
+    public PseudoLocalizer(Map<String, String> glossary)
+    {
+        // The longest terms first, so that they win over the terms they contain.
+        this.glossary = new ArrayList<>(glossary.entrySet());
+        this.glossary.sort(Comparator.comparingInt(entry -> -entry.getKey().length()));
+    }
+
+    /**
+     * @param text the text to pseudo-localize
+     * @param html true if the text is HTML
+     * @return the pseudo-localized text
+     */
+    public String localize(String text, boolean html)
+    {
+        StringBuilder output = new StringBuilder(text.length() + 2);
+        if (!html) {
+            output.append('[');
+            localizeText(text, 0, text.length(), output);
+            return output.append(']').toString();
+        }
+        int textStart = 0;
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            int end = i;
+            if (c == '<') {
+                end = getMarkupEnd(text, i);
+            } else if (c == '&') {
+                end = getEntityEnd(text, i);
+            }
+            if (end > i) {
+                localizeText(text, textStart, i, output);
+                output.append(text, i, end);
+                i = end;
+                textStart = end;
+            } else {
+                i++;
+            }
+        }
+        localizeText(text, textStart, text.length(), output);
+        return output.toString();
+    }
+
+    /**
+     * @return the end of the tag, comment or raw text element starting at the given position, the position itself
+     *     if there is none
+     */
+    private static int getMarkupEnd(String html, int start)
+    {
+        if (html.startsWith(COMMENT_START, start)) {
+            int end = html.indexOf(COMMENT_END, start + COMMENT_START.length());
+            return end < 0 ? html.length() : end + COMMENT_END.length();
+        }
+        if (start + 1 >= html.length()
+            || !(Character.isLetter(html.charAt(start + 1)) || "/!?".indexOf(html.charAt(start + 1)) >= 0)) {
+            // A lone '<' is text.
+            return start;
+        }
+        int end = getTagEnd(html, start);
+        for (String element : RAW_TEXT_ELEMENTS) {
+            if (html.regionMatches(true, start + 1, element, 0, element.length())) {
+                int close = indexOfIgnoreCase(html, "</" + element, end);
+                return close < 0 ? html.length() : getTagEnd(html, close);
+            }
+        }
+        return end;
+    }
+
+    private static int getTagEnd(String html, int start)
+    {
+        char quote = 0;
+        for (int i = start + 1; i < html.length(); i++) {
+            char c = html.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i + 1;
+            }
+        }
+        return html.length();
+    }
+
+    private static int indexOfIgnoreCase(String text, String searched, int from)
+    {
+        for (int i = from; i <= text.length() - searched.length(); i++) {
+            if (text.regionMatches(true, i, searched, 0, searched.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int getEntityEnd(String html, int start)
+    {
+        int limit = Math.min(html.length(), start + MAX_ENTITY_LENGTH);
+        for (int i = start + 1; i < limit; i++) {
+            char c = html.charAt(i);
+            if (c == ';') {
+                return i > start + 1 ? i + 1 : start;
+            } else if (!Character.isLetterOrDigit(c) && c != '#') {
+                return start;
+            }
+        }
+        return start;
+    }
+
+    private void localizeText(String text, int start, int end, StringBuilder output)
+    {
+        int i = start;
+        while (i < end) {
+            Map.Entry<String, String> term = getTerm(text, i, end);
+            if (term != null) {
+                output.append(term.getValue());
+                i += term.getKey().length();
+            } else {
+                char c = text.charAt(i);
+                int letter = LETTERS.indexOf(c);
+                output.append(letter >= 0 ? PSEUDO_LETTERS.charAt(letter) : c);
+                i++;
+            }
+        }
+    }
+
+    /**
+     * @return the glossary term starting at the given position, as a whole word, or null if there is none
+     */
+    private Map.Entry<String, String> getTerm(String text, int start, int end)
+    {
+        if (this.glossary.isEmpty() || (start > 0 && Character.isLetterOrDigit(text.charAt(start - 1)))) {
+            return null;
+        }
+        for (Map.Entry<String, String> term : this.glossary) {
+            int termEnd = start + term.getKey().length();
+            if (!term.getKey().isEmpty() && termEnd <= end && text.startsWith(term.getKey(), start)
+                && (termEnd == text.length() || !Character.isLetterOrDigit(text.charAt(termEnd)))) {
+                return term;
+            }
+        }
+        return null;
+    }
+}
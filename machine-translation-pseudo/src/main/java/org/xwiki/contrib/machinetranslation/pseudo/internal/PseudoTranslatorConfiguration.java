@@ -0,0 +1,78 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.machinetranslation.pseudo.internal;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.configuration.ConfigurationSource;
+
+/**
+ * Configuration of the pseudo translator, read from {@code xwiki.properties}, which lets the translator behave like
+ * a remote translation service: answering after some latency, failing from time to time, and limiting the number of
+ * characters translated.
+ *
+ * @version $Id$
+ * @since 1.3
+ */
+@Component(roles = PseudoTranslatorConfiguration.class)
+@Singleton
+public class PseudoTranslatorConfiguration
+{
+    private static final String PREFIX = "machinetranslation.pseudo.";
+
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource xwikiPropertiesSource;
+
+    /**
+     * @return the time each request takes, in milliseconds, regardless of its size
+     */
+    public long getLatency()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "latency", 0L);
+    }
+
+    /**
+     * @return the additional time each request takes per thousand characters, in milliseconds
+     */
+    public long getLatencyPerThousandCharacters()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "latencyPerThousandCharacters", 0L);
+    }
+
+    /**
+     * @return the probability, between 0 and 1, that a request fails with a transient error
+     */
+    public double getFailureRate()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "failureRate", 0D);
+    }
+
+    /**
+     * @return the number of characters which can be translated in each wiki, 0 for no limit
+     */
+    public long getCharacterLimit()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "characterLimit", 0L);
+    }
+}